@@ -0,0 +1,170 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.lua;
+
+import me.scarlet.undertailor.environment.overworld.WorldObject;
+import me.scarlet.undertailor.lua.LuaLibrary.LibraryFunction;
+import me.scarlet.undertailor.lua.lib.meta.LuaInputDataMeta;
+import me.scarlet.undertailor.lua.lib.meta.LuaPressDataMeta;
+import me.scarlet.undertailor.lua.lib.meta.LuaWorldObjectMeta;
+import me.scarlet.undertailor.util.InputRetriever.InputData;
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LoadState;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.compiler.LuaC;
+import org.luaj.vm2.lib.BaseLib;
+import org.luaj.vm2.lib.VarArgFunction;
+
+import java.util.HashMap;
+
+/**
+ * Standalone timing harness for the fixed-arity meta accessors
+ * of {@link LuaWorldObjectMeta}, {@link LuaPressDataMeta} and
+ * {@link LuaInputDataMeta}, called from interpreted Lua.
+ * 
+ * <p>Each accessor is timed as registered, and again wrapped so
+ * that every call is packed into {@link Varargs} and checked by
+ * count the way a plain {@link LibraryFunction} is. Run with
+ * <code>gradle :core:bench</code>, optionally passing
+ * <code>-PbenchArgs="[calls] [rounds]"</code>; the fastest round
+ * of each is reported.</p>
+ * 
+ * <p>Calls keeping more than one result, like the
+ * <code>local x, y</code> getPosition case, are packed by the
+ * interpreter either way and should show no gain.</p>
+ */
+public class LuaLibraryBenchmark {
+    
+    private static final String LOOP = "local f, o, n = ... "
+        + "for i = 1, n do %s end";
+    
+    // accessor name, then the statement calling it as f on o
+    private static final String[][] WORLDOBJECT_CALLS = {
+            {"getID", "f(o)"},
+            {"getRotation", "f(o)"},
+            {"setRotation", "f(o, 90)"},
+            {"getHeight", "f(o)"},
+            {"setHeight", "f(o, 2)"},
+            {"getZ", "f(o)"},
+            {"setZ", "f(o, 2)"},
+            {"getPosition", "f(o)"},
+            {"getPosition", "local x, y = f(o)"},
+            {"setPosition", "f(o, 1, 2)"},
+            {"getScale", "f(o)"},
+            {"setScale", "f(o, 2)"},
+            {"canCollide", "f(o)"},
+            {"isVisible", "f(o)"},
+            {"setVisible", "f(o, true)"}
+    };
+    
+    private static final String[][] PRESSDATA_CALLS = {
+            {"justPressed", "f(o)"},
+            {"justPressed", "f(o, 0.5)"},
+            {"justReleased", "f(o)"},
+            {"isPressed", "f(o)"},
+            {"getHoldTime", "f(o)"}
+    };
+    
+    private static final String[][] INPUTDATA_CALLS = {
+            {"getPressData", "f(o, 0)"},
+            {"isConsumed", "f(o)"}
+    };
+    
+    /**
+     * Forwards every call as {@link Varargs}, as luaj does for
+     * a {@link LibraryFunction} that only implements
+     * {@link LibraryFunction#execute(Varargs)}.
+     */
+    static class Packed extends VarArgFunction {
+        
+        private final LuaValue function;
+        
+        Packed(LuaValue function) {
+            this.function = function;
+        }
+        
+        @Override
+        public Varargs invoke(Varargs args) {
+            return function.invoke(args);
+        }
+    }
+    
+    static class BenchObject extends WorldObject {
+        @Override
+        public String getObjectName() {
+            return "bench";
+        }
+    }
+    
+    public static void main(String[] args) {
+        int calls = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        
+        Globals globals = new Globals();
+        globals.load(new BaseLib());
+        LoadState.install(globals);
+        LuaC.install(globals);
+        
+        InputData input = new InputData(new HashMap<>());
+        System.out.println("calls per round: " + calls + ", rounds: " + rounds);
+        time(globals, LuaWorldObjectMeta.create(new BenchObject()), WORLDOBJECT_CALLS, calls, rounds);
+        time(globals, LuaPressDataMeta.create(input.getPressData(0)), PRESSDATA_CALLS, calls, rounds);
+        time(globals, LuaInputDataMeta.create(input), INPUTDATA_CALLS, calls, rounds);
+    }
+    
+    private static void time(Globals globals, LuaValue object, String[][] shapes, int calls, int rounds) {
+        LuaValue index = object.getmetatable().get(LuaValue.INDEX);
+        for(String[] shape : shapes) {
+            LuaValue function = index.get(shape[0]);
+            LuaValue loop = globals.load(String.format(LOOP, shape[1]), shape[0]);
+            time(shape[0] + ": " + shape[1], loop, object, function, new Packed(function), calls, rounds);
+        }
+    }
+    
+    // rounds alternate between the two flavors so neither gets a warmer jit
+    private static void time(String shape, LuaValue loop, LuaValue object, LuaValue fixed, LuaValue packed, int calls, int rounds) {
+        Varargs fixedLoop = LuaValue.varargsOf(fixed, object, LuaValue.valueOf(calls));
+        Varargs packedLoop = LuaValue.varargsOf(packed, object, LuaValue.valueOf(calls));
+        loop.invoke(packedLoop); // warmup
+        loop.invoke(fixedLoop);
+        
+        long bestPacked = Long.MAX_VALUE;
+        long bestFixed = Long.MAX_VALUE;
+        for(int i = 0; i < rounds; i++) {
+            bestPacked = Math.min(bestPacked, time(loop, packedLoop));
+            bestFixed = Math.min(bestFixed, time(loop, fixedLoop));
+        }
+        
+        System.out.println(String.format("%-36s packed %7.2f ns/call, fixed %7.2f ns/call (%.2fx)",
+            shape, (double) bestPacked / calls, (double) bestFixed / calls, (double) bestPacked / bestFixed));
+    }
+    
+    private static long time(LuaValue loop, Varargs loopArgs) {
+        long start = System.nanoTime();
+        loop.invoke(loopArgs);
+        return System.nanoTime() - start;
+    }
+}
@@ -31,6 +31,7 @@ import javafx.scene.Scene;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextArea;
+import javafx.scene.control.TextField;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.layout.ColumnConstraints;
 import javafx.scene.layout.GridPane;
@@ -42,6 +43,11 @@ import me.scarlet.undertailor.util.JFXUtil;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
 
 public class Console {
     
@@ -103,12 +109,18 @@ public class Console {
 
     private Stage stage;
     private TextArea output;
+    private TextField input;
     private ConsoleThread thread;
+    private Queue<String> pending;
+    private Map<String, Consumer<String[]>> commands;
     
     public Console() {
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.commands = new HashMap<>();
         Blocker.block(() -> {
             this.stage = new Stage();
             this.output = new TextArea();
+            this.input = new TextField();
             AnchorPane pane = new AnchorPane();
             GridPane header = new GridPane();
             CheckBox wrap = new CheckBox("Wrap Text");
@@ -133,6 +145,14 @@ public class Console {
                 wrap.fire();
             }
             
+            input.setOnAction(event -> {
+                String line = input.getText().trim();
+                input.clear();
+                if(!line.isEmpty()) {
+                    pending.add(line); // ran on the game thread, see processCommands
+                }
+            });
+            
             GridPane.setColumnIndex(consoleTitle, 0);
             GridPane.setColumnIndex(wrap, 1);
             header.getColumnConstraints().add(new ColumnConstraints());
@@ -143,10 +163,12 @@ public class Console {
             
             pane.getChildren().add(header);
             pane.getChildren().add(output);
+            pane.getChildren().add(input);
             
             JFXUtil.setAnchorBounds(header, 15.0, null, 20.0, 20.0);
             JFXUtil.setAnchorBounds(output, 20.0);
-            JFXUtil.setAnchorBounds(output, 50.0, null, null, null);
+            JFXUtil.setAnchorBounds(output, 50.0, 55.0, null, null);
+            JFXUtil.setAnchorBounds(input, null, 20.0, 20.0, 20.0);
             JFXUtil.loadIcon(stage, "defaultIcon_small.png");
             JFXUtil.loadIcon(stage, "defaultIcon.png");
             
@@ -164,6 +186,42 @@ public class Console {
         return thread;
     }
     
+    /**
+     * Registers a command that can be typed into the console.
+     * 
+     * <p>The handler is given the arguments following the
+     * command's name, and is called on the game thread.</p>
+     */
+    public void registerCommand(String name, Consumer<String[]> handler) {
+        this.commands.put(name.toLowerCase(), handler);
+    }
+    
+    /**
+     * Runs the commands entered into the console since the
+     * last call to this method.
+     */
+    public void processCommands() {
+        String line;
+        while((line = pending.poll()) != null) {
+            String[] split = line.split("\\s+");
+            String[] args = new String[split.length - 1];
+            System.arraycopy(split, 1, args, 0, args.length);
+            
+            Undertailor.instance.log(Undertailor.MANAGER_TAG, "> " + line);
+            Consumer<String[]> handler = commands.get(split[0].toLowerCase());
+            if(handler == null) {
+                Undertailor.instance.warn(Undertailor.MANAGER_TAG, "unknown command " + split[0]);
+                continue;
+            }
+            
+            try {
+                handler.accept(args);
+            } catch(Exception e) {
+                Undertailor.instance.warn(Undertailor.MANAGER_TAG, "command " + split[0] + " failed: " + e.getMessage());
+            }
+        }
+    }
+    
     void appendText(String text) {
         output.appendText(text);
     }
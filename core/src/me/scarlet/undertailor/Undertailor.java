@@ -50,9 +50,12 @@ import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import me.scarlet.undertailor.environment.Environment;
+import me.scarlet.undertailor.gfx.AtlasPacker;
 import me.scarlet.undertailor.lua.Lua;
+import me.scarlet.undertailor.lua.LuaBudget;
 import me.scarlet.undertailor.lua.LuaImplementable;
 import me.scarlet.undertailor.lua.LuaLibrary;
+import me.scarlet.undertailor.lua.LuaProfiler;
 import me.scarlet.undertailor.lua.impl.StyleImplementable;
 import me.scarlet.undertailor.lua.impl.UIComponentImplementable;
 import me.scarlet.undertailor.lua.impl.WorldObjectImplementable;
@@ -68,15 +71,20 @@ import me.scarlet.undertailor.manager.StyleManager;
 import me.scarlet.undertailor.manager.TilemapManager;
 import me.scarlet.undertailor.texts.Font;
 import me.scarlet.undertailor.util.Blocker;
+import me.scarlet.undertailor.util.FrameProfiler;
 import me.scarlet.undertailor.util.InputRetriever;
 import me.scarlet.undertailor.util.InputRetriever.InputData;
 import me.scarlet.undertailor.util.JFXUtil;
 import me.scarlet.undertailor.util.LuaUtil;
 import me.scarlet.undertailor.util.MultiRenderer;
 import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaClosure;
 import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaValue;
 
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
 
 public class Undertailor extends ApplicationAdapter {
@@ -152,6 +160,10 @@ public class Undertailor extends ApplicationAdapter {
         return Undertailor.instance.sheetManager;
     }
     
+    public static FrameProfiler getProfiler() {
+        return Undertailor.instance.profiler;
+    }
+    
     public static ScriptManager getScriptManager() {
         return Undertailor.instance.scriptManager;
     }
@@ -172,6 +184,8 @@ public class Undertailor extends ApplicationAdapter {
     
     private DisposerThread disposer;
     private MultiRenderer renderer;
+    private FrameProfiler profiler;
+    private AtlasPacker atlas;
     private Console console;
     
     private ScriptManager scriptManager;
@@ -227,10 +241,16 @@ public class Undertailor extends ApplicationAdapter {
         }
         
         this.renderer = new MultiRenderer();
+        this.profiler = new FrameProfiler();
+        this.profiler.setEnabled(debug);
         
         this.scriptManager = new ScriptManager();
         this.scriptManager.registerLibraries(LIBS);
         this.scriptManager.registerImplementables(IMPLS);
+        this.scriptManager.setCacheDirectory(new File(Undertailor.ASSETS_DIRECTORY, "cache/scripts/"));
+        this.console.registerCommand("luaprof", this::luaprof);
+        this.console.registerCommand("luabudget", this::luabudget);
+        this.console.registerCommand("luajc", this::luajc);
         
         this.fontManager = new FontManager();
         this.audioManager = new AudioManager();
@@ -247,6 +267,12 @@ public class Undertailor extends ApplicationAdapter {
         styleManager.loadObjects(new File(Undertailor.ASSETS_DIRECTORY, "fonts/styles/"));
         animationManager.loadObjects(new File(Undertailor.ASSETS_DIRECTORY, "animation/"));
         
+        this.atlas = new AtlasPacker();
+        fontManager.queueTextures(atlas);
+        sheetManager.queueTextures(atlas);
+        tilemapManager.queueTextures(atlas);
+        atlas.pack();
+        
         this.environmentManager = new EnvironmentManager();
         this.inputRetriever = new InputRetriever();
         
@@ -261,7 +287,11 @@ public class Undertailor extends ApplicationAdapter {
         File mainFile = new File(Undertailor.ASSETS_DIRECTORY, "main.lua");
         if(mainFile.exists()) {
             Globals globals = scriptManager.generateGlobals(true);
-            globals.loadfile(mainFile.getAbsolutePath()).invoke();
+            try {
+                scriptManager.loadScript(mainFile, globals).invoke();
+            } catch(FileNotFoundException e) {
+                error("tailor", "main.lua file could not be read");
+            }
         } else {
             error("tailor", "main.lua file not found; no start code was executed");
         }
@@ -284,7 +314,10 @@ public class Undertailor extends ApplicationAdapter {
         
         Font bitop = fontManager.getFont("8bitop");
         bitop.write(Gdx.graphics.getFramesPerSecond() + "", null, null, 10, 427, 2);
+        profiler.renderOverlay(10, 10);
+        profiler.begin(FrameProfiler.FLUSH);
         renderer.flush();
+        profiler.end(FrameProfiler.FLUSH);
         
         if(activeEnv != null) {
             activeEnv.process(delta, input);
@@ -293,15 +326,125 @@ public class Undertailor extends ApplicationAdapter {
         if(input.getPressData(Keys.F3).justPressed(0)) {
             this.console.show();
         }
+        
+        if(input.getPressData(Keys.F4).justPressed(0)) {
+            profiler.setShowingOverlay(!profiler.isShowingOverlay());
+        }
+        
+        if(input.getPressData(Keys.F5).justPressed(0)) {
+            profiler.dump();
+        }
+        
+        console.processCommands();
+        profiler.endFrame();
             
         inputRetriever.update();
     }
     
+    // luaprof start | stop [file] | report [count]
+    private void luaprof(String[] args) {
+        LuaProfiler luaProfiler = scriptManager.getProfiler();
+        String action = args.length > 0 ? args[0].toLowerCase() : "report";
+        if(action.equals("start")) {
+            luaProfiler.start();
+            log(LuaProfiler.PROFILER_TAG, "lua profiler started");
+        } else if(action.equals("stop")) {
+            luaProfiler.stop();
+            File output = new File(Undertailor.ASSETS_DIRECTORY, args.length > 1 ? args[1] : "profiles/lua-" + System.currentTimeMillis() + ".folded");
+            try {
+                luaProfiler.export(output);
+                luaProfiler.report(10);
+                log(LuaProfiler.PROFILER_TAG, "collapsed stacks written to " + output.getPath());
+            } catch(IOException e) {
+                warn(LuaProfiler.PROFILER_TAG, "could not write " + output.getPath() + ": " + e.getMessage());
+            }
+        } else if(action.equals("report")) {
+            luaProfiler.report(args.length > 1 ? Integer.parseInt(args[1]) : 10);
+        } else {
+            warn(LuaProfiler.PROFILER_TAG, "usage: luaprof start | stop [file] | report [count]");
+        }
+    }
+    
+    // luabudget <instructions> [millis] [callback] | off
+    private void luabudget(String[] args) {
+        LuaBudget budget = scriptManager.getBudget();
+        String action = args.length > 0 ? args[0].toLowerCase() : "";
+        if(action.equals("off")) {
+            budget.clearLimits();
+            log(LuaBudget.BUDGET_TAG, "script budgets disabled");
+        } else if(!action.isEmpty()) {
+            try {
+                int instructions = Integer.parseInt(args[0]);
+                float millis = args.length > 1 ? Float.parseFloat(args[1]) : 0F;
+                String callback = args.length > 2 ? args[2] : null;
+                budget.setLimit(callback, instructions, millis);
+                log(LuaBudget.BUDGET_TAG, "budget of " + (callback == null ? "all callbacks" : callback) + " set to " + instructions + " instructions, " + millis + "ms");
+            } catch(NumberFormatException e) {
+                warn(LuaBudget.BUDGET_TAG, "usage: luabudget <instructions> [millis] [callback] | off");
+            }
+        } else {
+            warn(LuaBudget.BUDGET_TAG, "usage: luabudget <instructions> [millis] [callback] | off");
+        }
+    }
+    
+    // luajc on | off | bench <script> [runs]
+    private void luajc(String[] args) {
+        String action = args.length > 0 ? args[0].toLowerCase() : "";
+        if(action.equals("on") || action.equals("off")) {
+            scriptManager.setCompiling(action.equals("on"));
+            log(ScriptManager.MANAGER_TAG, "luajc compilation " + (scriptManager.isCompiling() ? "enabled" : "disabled") + " for scripts loaded from now on");
+        } else if(action.equals("bench") && args.length > 1) {
+            File script = new File(Undertailor.ASSETS_DIRECTORY, args[1]);
+            int runs = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+            try {
+                long interpreted = this.benchScript(script, runs, false);
+                long compiled = this.benchScript(script, runs, true);
+                log(ScriptManager.MANAGER_TAG, String.format("%s over %d runs: interpreted %.2fms, compiled %.2fms (%.2fx)", args[1], runs,
+                    interpreted / 1000000.0, compiled / 1000000.0, (double) interpreted / Math.max(1L, compiled)));
+            } catch(FileNotFoundException e) {
+                warn(ScriptManager.MANAGER_TAG, "no script at " + script.getPath());
+            } catch(LuaError e) {
+                warn(ScriptManager.MANAGER_TAG, "bench failed: " + e.getMessage());
+            }
+        } else {
+            warn(ScriptManager.MANAGER_TAG, "usage: luajc on | off | bench <script> [runs]");
+        }
+    }
+    
+    // times the script's global bench function, or its chunk if it has none, after a warmup of the same length
+    private long benchScript(File script, int runs, boolean compile) throws FileNotFoundException {
+        Globals env = scriptManager.generateGlobals();
+        LuaValue chunk = scriptManager.loadScript(script, env, compile);
+        if(compile && chunk instanceof LuaClosure) {
+            throw new LuaError("script could not be compiled");
+        }
+        
+        chunk.call();
+        LuaValue target = env.rawget("bench").isfunction() ? env.rawget("bench") : chunk;
+        for(int i = 0; i < runs; i++) {
+            target.call();
+        }
+        
+        long start = System.nanoTime();
+        for(int i = 0; i < runs; i++) {
+            target.call();
+        }
+        
+        return System.nanoTime() - start;
+    }
+    
     @Override
     public void resize(int width, int height) {
         this.environmentManager.resize(width, height);
     }
     
+    @Override
+    public void dispose() {
+        sheetManager.dispose();
+        atlas.dispose();
+        renderer.dispose();
+    }
+    
     public boolean isPaused() {
         return this.paused;
     }
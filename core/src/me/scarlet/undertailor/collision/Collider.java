@@ -36,6 +36,13 @@ public interface Collider {
     BoundingBox getBoundingBox(String id);
     void setBoundingBox(String id, BoundingBox box);
     void onCollide(Collider collider);
+    default void onCollisionBegin(Collider collider) {}
+    default void onCollisionEnd(Collider collider) {}
+    default boolean receivesContactEvents() { return true; }
+    default boolean receivesPersistEvents() { return false; } // onCollide every step; read when a contact begins
+    default void savePreviousTransform() {} // called before every physics step, for interpolation
+    default short getCategoryBits() { return CollisionLayers.DEFAULT; }
+    default short getMaskBits() { return CollisionLayers.ALL; }
     boolean isCollisionIgnored(Collider collider);
     void setIgnoreCollisionWith(Collider collider, boolean flag);
     boolean canCollide();
@@ -25,12 +25,10 @@
 package me.scarlet.undertailor.collision;
 
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.Box2DDebugRenderer;
-import com.badlogic.gdx.physics.box2d.Contact;
-import com.badlogic.gdx.physics.box2d.ContactImpulse;
-import com.badlogic.gdx.physics.box2d.ContactListener;
-import com.badlogic.gdx.physics.box2d.Manifold;
 import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
 import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.manager.EnvironmentManager;
 
@@ -42,16 +40,24 @@ public class CollisionHandler {
     
     public static final Map<Collider, Set<Collider>> RETURN_MAP;
     public static final float PHYSICS_STEP = 1F/60F;
+    public static final int DEFAULT_MAX_SUBSTEPS = 5;
     
     static {
         RETURN_MAP = new HashMap<>();
     }
     
     private World world;
+    private ContactQueue contacts;
+    private Array<Body> bodies;
     private float timeAccumulator;
+    private float tickLength;
+    private int maxSubsteps;
     private Box2DDebugRenderer renderer;
     
     public CollisionHandler() {
+        this.bodies = new Array<>();
+        this.tickLength = PHYSICS_STEP;
+        this.maxSubsteps = DEFAULT_MAX_SUBSTEPS;
         this.reset();
         renderer = new Box2DDebugRenderer();
     }
@@ -59,47 +65,73 @@ public class CollisionHandler {
     public void reset() {
         this.timeAccumulator = 0F;
         this.world = new World(new Vector2(0F, 0F), true);
-        this.world.setContactListener(new ContactListener() {
-            
-            @Override
-            public void preSolve(Contact contact, Manifold oldManifold) {}
-            
-            @Override
-            public void postSolve(Contact contact, ContactImpulse impulse) {}
-            
-            @Override
-            public void endContact(Contact contact) {
-                Object uda = contact.getFixtureA().getBody().getUserData();
-                Object udb = contact.getFixtureB().getBody().getUserData();
-                if(uda instanceof Collider && udb instanceof Collider) {
-                    ((Collider) uda).getContacts().remove(udb);
-                    ((Collider) udb).getContacts().remove(uda);
-                }
-            }
-            
-            @Override
-            public void beginContact(Contact contact) {
-                Object uda = contact.getFixtureA().getBody().getUserData();
-                Object udb = contact.getFixtureB().getBody().getUserData();
-                if(uda instanceof Collider && udb instanceof Collider) {
-                    ((Collider) uda).getContacts().add((Collider) udb);
-                    ((Collider) udb).getContacts().add((Collider) uda);
-                }
-            }
-        });
+        this.contacts = new ContactQueue();
+        this.world.setContactListener(contacts);
     }
     
     public World getWorld() {
         return this.world;
     }
     
+    public ContactQueue getContactQueue() {
+        return this.contacts;
+    }
+    
+    public float getTickRate() {
+        return 1F / tickLength;
+    }
+    
+    public void setTickRate(float tickRate) {
+        this.tickLength = 1F / (tickRate <= 0F ? 1F / PHYSICS_STEP : tickRate);
+    }
+    
+    public int getMaxSubsteps() {
+        return maxSubsteps;
+    }
+    
+    /**
+     * Sets the maximum amount of physics steps ran in a single
+     * call to {@link #step(float)}. Time beyond what those steps
+     * cover is dropped, slowing the simulation down instead of
+     * letting it spiral after a long frame.
+     */
+    public void setMaxSubsteps(int maxSubsteps) {
+        this.maxSubsteps = maxSubsteps < 1 ? 1 : maxSubsteps;
+    }
+    
+    /**
+     * Returns how far, from 0 to 1, the current time is between
+     * the last physics step and the next one; used to
+     * interpolate rendered positions.
+     */
+    public float getAlpha() {
+        return timeAccumulator / tickLength;
+    }
+    
     public void step(float delta) {
         this.timeAccumulator += delta;
-        while(this.timeAccumulator > PHYSICS_STEP) {
-            this.world.step(PHYSICS_STEP, 6, 2);
-            this.timeAccumulator -= PHYSICS_STEP;
+        int steps = 0;
+        while(this.timeAccumulator >= tickLength && steps < maxSubsteps) {
+            world.getBodies(bodies);
+            for(int i = 0; i < bodies.size; i++) {
+                Object userData = bodies.get(i).getUserData();
+                if(userData instanceof Collider) {
+                    ((Collider) userData).savePreviousTransform();
+                }
+            }
+            
+            this.world.step(tickLength, 6, 2);
+            this.contacts.flush();
+            this.timeAccumulator -= tickLength;
+            steps++;
         }
         
+        if(this.timeAccumulator >= tickLength) {
+            this.timeAccumulator %= tickLength; // hit the substep cap; drop the backlog
+        }
+        
+        bodies.clear();
+        
         EnvironmentManager envMan = Undertailor.getEnvironmentManager();
         if(envMan.getActiveEnvironment() != null && envMan.isRenderingHitboxes()) {
             this.renderer.render(world, Undertailor.getEnvironmentManager().getActiveEnvironment().getOverworldController().getCamera().combined);
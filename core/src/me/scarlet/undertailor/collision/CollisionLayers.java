@@ -0,0 +1,140 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.collision;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Registry of named collision layers, mapped onto the 16
+ * category bits of Box2D's collision filters.
+ * 
+ * <p>Fixtures only collide if each one's category is within
+ * the other's mask, which Box2D checks during the broadphase,
+ * before any contact is produced.</p>
+ * 
+ * <p>Layers must be registered through
+ * {@link #registerLayer(String)} before they can be looked
+ * up; looking up an unknown name fails rather than taking
+ * one of the 16 bits.</p>
+ */
+public class CollisionLayers {
+    
+    public static final String LAYER_DEFAULT = "default";
+    public static final String LAYER_PLAYER = "player";
+    public static final String LAYER_ENTRYPOINT = "entrypoint";
+    public static final String LAYER_WALL = "wall";
+    public static final String LAYER_ALL = "all";
+    
+    public static final short DEFAULT = 0x0001; // box2d's default category
+    public static final short ALL = (short) 0xFFFF;
+    
+    private static final Map<String, Short> LAYERS;
+    
+    static {
+        LAYERS = new LinkedHashMap<>();
+        registerLayer(LAYER_DEFAULT);
+        registerLayer(LAYER_PLAYER);
+        registerLayer(LAYER_ENTRYPOINT);
+        registerLayer(LAYER_WALL);
+    }
+    
+    /**
+     * Registers a layer with the given name, assigning it the
+     * next free category bit. Registering an existing layer
+     * again returns its bit.
+     * 
+     * @throws IllegalArgumentException if all 16 bits are
+     *             already taken
+     */
+    public static short registerLayer(String name) {
+        if(name.equals(LAYER_ALL)) {
+            return ALL;
+        }
+        
+        Short bit = LAYERS.get(name);
+        if(bit == null) {
+            if(LAYERS.size() >= 16) {
+                throw new IllegalArgumentException("cannot register more than 16 collision layers");
+            }
+            
+            bit = (short) (1 << LAYERS.size());
+            LAYERS.put(name, bit);
+        }
+        
+        return bit;
+    }
+    
+    public static boolean hasLayer(String name) {
+        return name.equals(LAYER_ALL) || LAYERS.containsKey(name);
+    }
+    
+    /**
+     * Returns the category bit of the registered layer with
+     * the given name.
+     * 
+     * @throws IllegalArgumentException if no layer with the
+     *             name was registered
+     */
+    public static short getLayer(String name) {
+        if(name.equals(LAYER_ALL)) {
+            return ALL;
+        }
+        
+        Short bit = LAYERS.get(name);
+        if(bit == null) {
+            throw new IllegalArgumentException("unknown collision layer " + name);
+        }
+        
+        return bit;
+    }
+    
+    public static short getBits(String... names) {
+        short bits = 0;
+        for(String name : names) {
+            bits |= getLayer(name);
+        }
+        
+        return bits;
+    }
+    
+    public static String[] getNames(short bits) {
+        if(bits == ALL) {
+            return new String[] {LAYER_ALL};
+        }
+        
+        List<String> names = new ArrayList<>();
+        for(Entry<String, Short> entry : LAYERS.entrySet()) {
+            if((bits & entry.getValue()) != 0) {
+                names.add(entry.getKey());
+            }
+        }
+        
+        return names.toArray(new String[names.size()]);
+    }
+}
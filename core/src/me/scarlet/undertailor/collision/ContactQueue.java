@@ -0,0 +1,245 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.collision;
+
+import com.badlogic.gdx.physics.box2d.Contact;
+import com.badlogic.gdx.physics.box2d.ContactImpulse;
+import com.badlogic.gdx.physics.box2d.ContactListener;
+import com.badlogic.gdx.physics.box2d.Manifold;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects contacts reported by Box2D into begin and end
+ * events per pair of {@link Collider}s.
+ * 
+ * <p>Box2D reports contacts per fixture; a pair of colliders
+ * touching through several bounding boxes only begins once
+ * its first fixture contact begins, and only ends once its
+ * last one ends. Queued events are dispatched by
+ * {@link #flush()} after every physics step, while
+ * {@link #dispatchPersist()} walks the pairs currently in
+ * contact of which a collider
+ * {@link Collider#receivesPersistEvents() receives persist
+ * events}.</p>
+ */
+public class ContactQueue implements ContactListener {
+    
+    private static final byte NONE = 0;
+    private static final byte BEGIN = 1;
+    private static final byte END = 2;
+    
+    static class ColliderPair {
+        
+        private Collider a, b;
+        private int fixtures;
+        private byte pending;
+        private boolean queued;
+        private boolean persisting;
+        
+        ColliderPair set(Collider a, Collider b) {
+            this.a = a;
+            this.b = b;
+            return this;
+        }
+        
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(a) ^ System.identityHashCode(b);
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            if(!(obj instanceof ColliderPair)) {
+                return false;
+            }
+            
+            ColliderPair other = (ColliderPair) obj;
+            return (a == other.a && b == other.b) || (a == other.b && b == other.a);
+        }
+    }
+    
+    private Map<ColliderPair, ColliderPair> pairs;
+    private List<ColliderPair> queue;
+    private List<ColliderPair> persisting;
+    private ColliderPair probe;
+    
+    public ContactQueue() {
+        this.pairs = new HashMap<>();
+        this.queue = new ArrayList<>();
+        this.persisting = new ArrayList<>();
+        this.probe = new ColliderPair();
+    }
+    
+    /**
+     * Returns the count of collider pairs currently in contact.
+     */
+    public int getPairCount() {
+        return pairs.size();
+    }
+    
+    /**
+     * Returns the count of collider pairs currently in contact
+     * that are walked by {@link #dispatchPersist()}.
+     */
+    public int getPersistingCount() {
+        return persisting.size();
+    }
+    
+    @Override
+    public void beginContact(Contact contact) {
+        Object uda = contact.getFixtureA().getBody().getUserData();
+        Object udb = contact.getFixtureB().getBody().getUserData();
+        if(!(uda instanceof Collider) || !(udb instanceof Collider)) {
+            return;
+        }
+        
+        ColliderPair pair = pairs.get(probe.set((Collider) uda, (Collider) udb));
+        if(pair == null) {
+            pair = new ColliderPair().set((Collider) uda, (Collider) udb);
+            pairs.put(pair, pair);
+        }
+        
+        pair.fixtures++;
+        if(pair.fixtures == 1) {
+            this.queue(pair, pair.pending == END ? NONE : BEGIN); // ended and began again within one step; still touching
+        }
+    }
+    
+    @Override
+    public void endContact(Contact contact) {
+        Object uda = contact.getFixtureA().getBody().getUserData();
+        Object udb = contact.getFixtureB().getBody().getUserData();
+        if(!(uda instanceof Collider) || !(udb instanceof Collider)) {
+            return;
+        }
+        
+        ColliderPair pair = pairs.get(probe.set((Collider) uda, (Collider) udb));
+        if(pair == null || pair.fixtures == 0) {
+            return;
+        }
+        
+        pair.fixtures--;
+        if(pair.fixtures == 0) {
+            this.queue(pair, pair.pending == BEGIN ? NONE : END);
+        }
+    }
+    
+    @Override public void preSolve(Contact contact, Manifold oldManifold) {}
+    @Override public void postSolve(Contact contact, ContactImpulse impulse) {}
+    
+    /**
+     * Dispatches the begin and end events queued since the
+     * last flush.
+     */
+    public void flush() {
+        for(int i = 0; i < queue.size(); i++) {
+            ColliderPair pair = queue.get(i);
+            byte pending = pair.pending;
+            pair.pending = NONE;
+            pair.queued = false;
+            if(pair.fixtures == 0) {
+                pairs.remove(pair);
+            }
+            
+            if(pending == BEGIN) {
+                pair.a.getContacts().add(pair.b);
+                pair.b.getContacts().add(pair.a);
+                if(!pair.persisting && (pair.a.receivesPersistEvents() || pair.b.receivesPersistEvents())) {
+                    pair.persisting = true;
+                    persisting.add(pair);
+                }
+                
+
+                if(reacts(pair.a, pair.b)) {
+                    pair.a.onCollisionBegin(pair.b);
+                }
+                if(reacts(pair.b, pair.a)) {
+                    pair.b.onCollisionBegin(pair.a);
+                }
+            } else if(pending == END) {
+                pair.a.getContacts().remove(pair.b);
+                pair.b.getContacts().remove(pair.a);
+                if(pair.persisting) {
+                    pair.persisting = false;
+                    persisting.remove(pair);
+                }
+                
+
+                if(reactsToEnd(pair.a, pair.b)) {
+                    pair.a.onCollisionEnd(pair.b);
+                }
+                if(reactsToEnd(pair.b, pair.a)) {
+                    pair.b.onCollisionEnd(pair.a);
+                }
+            }
+        }
+        
+        queue.clear();
+    }
+    
+    /**
+     * Calls {@link Collider#onCollide(Collider)} on the
+     * colliders receiving persist events, for every pair they
+     * are currently in contact through. Pairs of colliders
+     * receiving none are never walked.
+     */
+    public void dispatchPersist() {
+        for(int i = 0; i < persisting.size(); i++) {
+            ColliderPair pair = persisting.get(i);
+            if(pair.a.receivesPersistEvents() && reacts(pair.a, pair.b)) {
+                pair.a.onCollide(pair.b);
+            }
+            if(pair.b.receivesPersistEvents() && reacts(pair.b, pair.a)) {
+                pair.b.onCollide(pair.a);
+            }
+        }
+    }
+    
+    public void clear() {
+        pairs.clear();
+        queue.clear();
+        persisting.clear();
+    }
+    
+    private void queue(ColliderPair pair, byte pending) {
+        pair.pending = pending;
+        if(!pair.queued) {
+            pair.queued = true;
+            queue.add(pair);
+        }
+    }
+    
+    private static boolean reacts(Collider object, Collider other) {
+        return object.canCollide() && other.canCollide() && reactsToEnd(object, other);
+    }
+    
+    private static boolean reactsToEnd(Collider object, Collider other) {
+        return object.receivesContactEvents() && !other.isOneSidedReaction() && !object.isCollisionIgnored(other);
+    }
+}
@@ -25,14 +25,24 @@
 package me.scarlet.undertailor.collision.bbshapes;
 
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.Filter;
+import me.scarlet.undertailor.collision.Collider;
+import me.scarlet.undertailor.collision.CollisionLayers;
+import me.scarlet.undertailor.lua.LuaObjectValue;
+import me.scarlet.undertailor.lua.LuaWrappable;
 
-public abstract class AbstractBoundingBox implements BoundingBox {
+public abstract class AbstractBoundingBox implements BoundingBox, LuaWrappable {
 
     private float scale;
     private float rotation;
     private boolean sensor;
     private boolean canCollide;
     private Vector2 offset;
+    private short categoryBits; // 0 inherits from the owning collider
+    private short maskBits;
+    
+    private LuaObjectValue<?> luaWrapper;
     
     public AbstractBoundingBox() {
         this.canCollide = true;
@@ -40,6 +50,8 @@ public abstract class AbstractBoundingBox implements BoundingBox {
         this.rotation = 0F;
         this.scale = 1F;
         this.offset = new Vector2(0, 0);
+        this.categoryBits = 0;
+        this.maskBits = 0;
     }
     
     @Override
@@ -91,4 +103,52 @@ public abstract class AbstractBoundingBox implements BoundingBox {
     public void setOffset(float x, float y) {
         this.offset.set(x, y);
     }
+    
+    @Override
+    public short getCategoryBits() {
+        return this.categoryBits;
+    }
+    
+    @Override
+    public void setCategoryBits(short bits) {
+        this.categoryBits = bits;
+    }
+    
+    @Override
+    public short getMaskBits() {
+        return this.maskBits;
+    }
+    
+    @Override
+    public void setMaskBits(short bits) {
+        this.maskBits = bits;
+    }
+    
+    /**
+     * Fills the given filter with this box's category and
+     * mask, falling back to those of the {@link Collider}
+     * owning the given body where this box sets none.
+     */
+    protected void applyFilter(Filter filter, Body body) {
+        Object owner = body.getUserData();
+        short category = CollisionLayers.DEFAULT;
+        short mask = CollisionLayers.ALL;
+        if(owner instanceof Collider) {
+            category = ((Collider) owner).getCategoryBits();
+            mask = ((Collider) owner).getMaskBits();
+        }
+        
+        filter.categoryBits = this.categoryBits == 0 ? category : this.categoryBits;
+        filter.maskBits = this.maskBits == 0 ? mask : this.maskBits;
+    }
+    
+    @Override
+    public LuaObjectValue<?> getLuaWrapper() {
+        return luaWrapper;
+    }
+    
+    @Override
+    public void setLuaWrapper(LuaObjectValue<?> wrapper) {
+        this.luaWrapper = wrapper;
+    }
 }
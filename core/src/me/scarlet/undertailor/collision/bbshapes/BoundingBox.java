@@ -42,5 +42,9 @@ public interface BoundingBox {
     float getScale();
     void setScale(float scale);
     boolean hasTarget();
+    short getCategoryBits();
+    void setCategoryBits(short bits);
+    short getMaskBits();
+    void setMaskBits(short bits);
     
 }
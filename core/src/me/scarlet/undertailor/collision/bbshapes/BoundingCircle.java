@@ -27,6 +27,7 @@ package me.scarlet.undertailor.collision.bbshapes;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.CircleShape;
 import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.FixtureDef;
 
 /**
  * Radial bounding box.
@@ -79,7 +80,13 @@ public class BoundingCircle extends AbstractBoundingBox {
                 CircleShape circle = new CircleShape();
                 circle.setPosition(this.getOffset());
                 circle.setRadius(radius * this.getScale());
-                body.createFixture(circle, 0.5F);
+                FixtureDef fixDef = new FixtureDef();
+                fixDef.isSensor = this.isSensor();
+                fixDef.shape = circle;
+                fixDef.density = 0.5F;
+                this.applyFilter(fixDef.filter, body);
+                
+                this.lastFixture = body.createFixture(fixDef);
                 circle.dispose();
             }
         }
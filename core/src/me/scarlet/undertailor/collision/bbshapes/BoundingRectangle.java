@@ -75,6 +75,7 @@ public class BoundingRectangle extends AbstractBoundingBox {
                 fixDef.shape = polygon;
                 fixDef.friction = 0.0F;
                 fixDef.density = 1F;
+                this.applyFilter(fixDef.filter, body);
                 
                 this.lastFixture = body.createFixture(fixDef);
                 polygon.dispose();
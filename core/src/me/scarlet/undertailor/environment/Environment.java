@@ -25,10 +25,14 @@
 package me.scarlet.undertailor.environment;
 
 import com.badlogic.gdx.utils.Disposable;
+import me.scarlet.undertailor.Undertailor;
+import me.scarlet.undertailor.lua.LuaObjectValue;
+import me.scarlet.undertailor.lua.LuaWrappable;
 import me.scarlet.undertailor.manager.EnvironmentManager;
+import me.scarlet.undertailor.util.FrameProfiler;
 import me.scarlet.undertailor.util.InputRetriever.InputData;
 
-public class Environment implements Disposable {
+public class Environment implements Disposable, LuaWrappable {
     
     private EnvironmentManager envMan;
     private String name;
@@ -37,6 +41,8 @@ public class Environment implements Disposable {
     private Scheduler scheduler;
     private UIController ui;
     
+    private LuaObjectValue<?> luaWrapper;
+    
     public Environment(EnvironmentManager envMan, String name) {
         this.envMan = envMan;
         this.name = name;
@@ -51,14 +57,24 @@ public class Environment implements Disposable {
     }
     
     public void process(float delta, InputData input) {
+        FrameProfiler profiler = Undertailor.getProfiler();
+        profiler.begin(FrameProfiler.SCHEDULER);
         this.scheduler.process(delta, input);
+        profiler.end(FrameProfiler.SCHEDULER);
+        profiler.begin(FrameProfiler.UI_PROCESS);
         this.ui.process(delta, input);
+        profiler.end(FrameProfiler.UI_PROCESS);
+        profiler.begin(FrameProfiler.OVERWORLD_PROCESS);
         this.ovw.process(delta, input);
+        profiler.end(FrameProfiler.OVERWORLD_PROCESS);
     }
     
     public void render() {
+        FrameProfiler profiler = Undertailor.getProfiler();
         this.ovw.render();
+        profiler.begin(FrameProfiler.UI_RENDER);
         this.ui.render();
+        profiler.end(FrameProfiler.UI_RENDER);
     }
     
     public Scheduler getScheduler() {
@@ -87,4 +103,14 @@ public class Environment implements Disposable {
     public void dispose() {
         this.ovw.dispose();
     }
+    
+    @Override
+    public LuaObjectValue<?> getLuaWrapper() {
+        return luaWrapper;
+    }
+    
+    @Override
+    public void setLuaWrapper(LuaObjectValue<?> wrapper) {
+        this.luaWrapper = wrapper;
+    }
 }
@@ -25,25 +25,31 @@
 package me.scarlet.undertailor.environment;
 
 import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Disposable;
 import com.badlogic.gdx.utils.viewport.Viewport;
 import me.scarlet.undertailor.Undertailor;
+import me.scarlet.undertailor.collision.CollisionLayers;
 import me.scarlet.undertailor.environment.overworld.WorldObject;
 import me.scarlet.undertailor.environment.overworld.WorldRoom;
 import me.scarlet.undertailor.environment.overworld.WorldRoom.Entrypoint;
 import me.scarlet.undertailor.environment.overworld.map.RoomMap;
 import me.scarlet.undertailor.environment.scheduler.Task;
+import me.scarlet.undertailor.lua.LuaObjectValue;
+import me.scarlet.undertailor.lua.LuaWrappable;
+import me.scarlet.undertailor.util.FrameProfiler;
 import me.scarlet.undertailor.util.InputRetriever.InputData;
 import me.scarlet.undertailor.util.Renderable;
 
 import java.util.Iterator;
 import java.util.Set;
 
-public class OverworldController implements Renderable, Disposable {
+public class OverworldController implements Renderable, Disposable, LuaWrappable {
     
     public static final int RENDER_WIDTH = 640;
     public static final int RENDER_HEIGHT = 480;
+    public static final float DEFAULT_CULLING_MARGIN = 40F; // two tiles
     public static final String MANAGER_TAG = "overworld";
     
     private float zoom;
@@ -52,6 +58,9 @@ public class OverworldController implements Renderable, Disposable {
     private boolean isRendering;
     private boolean isProcessing, oldIsProcessing;
     private boolean cameraFixing;
+    private boolean culling;
+    private float cullingMargin;
+    private Rectangle viewBounds;
     private WorldRoom currentRoom;
     private boolean renderHitboxes;
     private OrthographicCamera camera;
@@ -61,6 +70,8 @@ public class OverworldController implements Renderable, Disposable {
     //private RoomLoader roomLoader;
     private Environment env;
     
+    private LuaObjectValue<?> luaWrapper;
+    
     public OverworldController(Environment env, Viewport port) {
         this.camera = new OrthographicCamera(RENDER_WIDTH, RENDER_HEIGHT);
         this.env = env;
@@ -72,6 +83,9 @@ public class OverworldController implements Renderable, Disposable {
         this.oldIsProcessing = true;
         this.isProcessing = true;
         this.cameraFixing = true;
+        this.culling = true;
+        this.cullingMargin = DEFAULT_CULLING_MARGIN;
+        this.viewBounds = new Rectangle();
         this.renderHitboxes = true;
         this.entryTransition = null;
         this.exitTransition = null;
@@ -101,8 +115,30 @@ public class OverworldController implements Renderable, Disposable {
         return charId;
     }
     
+    /**
+     * Sets the id of the object acting as the player character
+     * in the current room.
+     * 
+     * <p>The character is moved onto the player collision
+     * layer, which entrypoints collide with; the previous
+     * character, if still on that layer, goes back to the
+     * default one. Objects given a custom layer keep it.</p>
+     */
     public void setCharacterID(long id) {
+        WorldObject old = this.getCharacter();
+        if(old != null && old.getCategoryBits() == CollisionLayers.getLayer(CollisionLayers.LAYER_PLAYER)) {
+            old.setCategoryBits(CollisionLayers.DEFAULT);
+        }
+        
         this.charId = id;
+        WorldObject character = this.getCharacter();
+        if(character != null && character.getCategoryBits() == CollisionLayers.DEFAULT) {
+            character.setCategoryBits(CollisionLayers.getLayer(CollisionLayers.LAYER_PLAYER));
+        }
+    }
+    
+    private WorldObject getCharacter() {
+        return currentRoom == null || charId < 0 ? null : currentRoom.getObject(charId);
     }
     
     public WorldRoom getCurrentRoom() {
@@ -172,6 +208,8 @@ public class OverworldController implements Renderable, Disposable {
         } else {
             this.setCameraPosition(0, 0);
         }
+        
+        env.getScheduler().onRoomChange(room);
     }
     
     public Vector2 getCameraPosition() {
@@ -233,6 +271,47 @@ public class OverworldController implements Renderable, Disposable {
         }
     }
     
+    public boolean isCulling() {
+        return culling;
+    }
+    
+    public void setCulling(boolean flag) {
+        this.culling = flag;
+    }
+    
+    public float getCullingMargin() {
+        return cullingMargin;
+    }
+    
+    public void setCullingMargin(float margin) {
+        this.cullingMargin = margin < 0F ? 0F : margin;
+    }
+    
+    /**
+     * Returns the area of the room currently visible through
+     * the camera, expanded by the culling margin.
+     * 
+     * <p>The returned rectangle is reused between calls and
+     * should not be held onto. Returns null if culling is
+     * disabled, meaning everything should be drawn.</p>
+     * 
+     * @return the visible area of the room, or null
+     */
+    public Rectangle getViewBounds() {
+        if(!culling) {
+            return null;
+        }
+        
+        float width = Math.abs(camera.zoom) * camera.viewportWidth;
+        float height = Math.abs(camera.zoom) * camera.viewportHeight;
+        viewBounds.set(camera.position.x - (width / 2.0F) - cullingMargin,
+                camera.position.y - (height / 2.0F) - cullingMargin,
+                width + (cullingMargin * 2),
+                height + (cullingMargin * 2));
+        
+        return viewBounds;
+    }
+    
     public boolean isRenderingHitboxes() {
         return renderHitboxes;
     }
@@ -273,7 +352,9 @@ public class OverworldController implements Renderable, Disposable {
         
         if(currentRoom != null) {
             Undertailor.getRenderer().setProjectionMatrix(camera.combined);
+            Undertailor.getProfiler().begin(FrameProfiler.ROOM_RENDER);
             currentRoom.render();
+            Undertailor.getProfiler().end(FrameProfiler.ROOM_RENDER);
         }
     }
     
@@ -311,4 +392,14 @@ public class OverworldController implements Renderable, Disposable {
             this.currentRoom.dispose();
         }
     }
+    
+    @Override
+    public LuaObjectValue<?> getLuaWrapper() {
+        return luaWrapper;
+    }
+    
+    @Override
+    public void setLuaWrapper(LuaObjectValue<?> wrapper) {
+        this.luaWrapper = wrapper;
+    }
 }
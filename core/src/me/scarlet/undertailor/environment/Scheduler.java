@@ -24,17 +24,38 @@
 
 package me.scarlet.undertailor.environment;
 
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
 import me.scarlet.undertailor.Undertailor;
+import me.scarlet.undertailor.environment.overworld.WorldRoom;
+import me.scarlet.undertailor.environment.scheduler.LuaCoroutine;
 import me.scarlet.undertailor.environment.scheduler.Task;
+import me.scarlet.undertailor.environment.ui.UIObject;
+import me.scarlet.undertailor.lua.LuaBudget;
+import me.scarlet.undertailor.lua.LuaObjectValue;
+import me.scarlet.undertailor.lua.LuaWrappable;
+import me.scarlet.undertailor.lua.lib.meta.LuaWorldRoomMeta;
 import me.scarlet.undertailor.util.InputRetriever.InputData;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaFunction;
+import org.luaj.vm2.LuaThread;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.PriorityQueue;
 
-public class Scheduler {
+public class Scheduler implements LuaWrappable {
     
     public static long nextId;
     public static final String MANAGER_TAG = "scheduler";
@@ -43,59 +64,215 @@ public class Scheduler {
         nextId = 0;
     }
     
+    /**
+     * A task parked until a point in game time, kept in the
+     * deadline queue.
+     */
+    private static class TimedTask implements Comparable<TimedTask> {
+        
+        private long id;
+        private Task task;
+        private double due;
+        private double last;
+        private float interval; // <= 0 runs once
+        private boolean sleeping; // returns to polling once due
+        private boolean cancelled;
+        
+        TimedTask(long id, Task task, double last, double due, float interval, boolean sleeping) {
+            this.id = id;
+            this.task = task;
+            this.last = last;
+            this.due = due;
+            this.interval = interval;
+            this.sleeping = sleeping;
+            this.cancelled = false;
+        }
+        
+        @Override
+        public int compareTo(TimedTask other) {
+            int compared = Double.compare(due, other.due);
+            return compared != 0 ? compared : Long.compare(id, other.id);
+        }
+    }
+    
     private Environment env;
     private Map<Long, Task> tasks;
     private Map<Long, Task> activeTasks;
+    private Map<Long, TimedTask> timedTasks;
+    private PriorityQueue<TimedTask> timedQueue;
+    private List<TimedTask> pendingSleeps; // put to sleep while the task loop ran
+    private boolean processingTasks;
+    private double time;
+    private long frame;
+    
+    // coroutines, parked in the wait list of their condition
+    private LuaCoroutine current;
+    private Map<Long, LuaCoroutine> coroutines;
+    private Deque<LuaCoroutine> readyCoroutines;
+    private PriorityQueue<LuaCoroutine> timeWaits;
+    private Map<Long, List<LuaCoroutine>> frameWaits;
+    private Map<Integer, List<LuaCoroutine>> pressWaits;
+    private Map<UIObject, List<LuaCoroutine>> destroyWaits;
+    private List<LuaCoroutine> roomWaits;
+    private List<Integer> pressed;
+    
+    private LuaObjectValue<?> luaWrapper;
     
     public Scheduler(Environment env) {
         this.env = env;
         this.tasks = new HashMap<>();
         this.activeTasks = new LinkedHashMap<>();
+        this.timedTasks = new HashMap<>();
+        this.timedQueue = new PriorityQueue<>();
+        this.pendingSleeps = new ArrayList<>();
+        this.processingTasks = false;
+        this.time = 0;
+        this.frame = 0;
+        
+        this.current = null;
+        this.coroutines = new HashMap<>();
+        this.readyCoroutines = new ArrayDeque<>();
+        this.timeWaits = new PriorityQueue<>(Comparator.comparingDouble(LuaCoroutine::getWakeTime));
+        this.frameWaits = new HashMap<>();
+        this.pressWaits = new HashMap<>();
+        this.destroyWaits = new HashMap<>();
+        this.roomWaits = new ArrayList<>();
+        this.pressed = new ArrayList<>();
     }
     
     public Environment getEnvironment() {
         return this.env;
     }
     
+    /**
+     * Returns the game time processed by this
+     * {@link Scheduler}, in seconds.
+     */
+    public double getTime() {
+        return time;
+    }
+    
     public void process(float delta, InputData data) {
+        this.time += delta;
+        this.frame++;
+        
+        // wake coroutines whose condition fired; the rest cost nothing
+        while(!timeWaits.isEmpty() && timeWaits.peek().getWakeTime() <= time) {
+            this.wake(timeWaits.poll(), LuaValue.NONE);
+        }
+        
+        List<LuaCoroutine> framed = frameWaits.remove(frame);
+        if(framed != null) {
+            framed.forEach(coroutine -> this.wake(coroutine, LuaValue.NONE));
+        }
+        
+        if(data != null && !pressWaits.isEmpty()) {
+            for(int key : pressWaits.keySet()) {
+                if(data.getPressData(key).justPressed(0)) {
+                    pressed.add(key);
+                }
+            }
+            
+            for(int key : pressed) {
+                pressWaits.remove(key).forEach(coroutine -> this.wake(coroutine, LuaValue.NONE));
+            }
+            
+            pressed.clear();
+        }
+        
+        this.resumeCoroutines();
+        
+        // only tasks that are due are touched
+        while(!timedQueue.isEmpty() && timedQueue.peek().due <= time) {
+            TimedTask timed = timedQueue.poll();
+            if(timed.cancelled) {
+                continue;
+            }
+            
+            if(timed.sleeping) {
+                timedTasks.remove(timed.id);
+                tasks.put(timed.id, timed.task); // polled again from this frame on
+                this.debug("task ", timed.id, timed.task, " woke up");
+                continue;
+            }
+            
+            try {
+                boolean finished = timed.task.process((float) (time - timed.last), data);
+                if(timed.cancelled) {
+                    continue; // cancelled itself
+                }
+                
+                if(finished || timed.interval <= 0) {
+                    timedTasks.remove(timed.id);
+                    this.debug("timed task ", timed.id, timed.task, " finished and was removed");
+                    timed.task.onFinish(false);
+                } else {
+                    timed.last = time;
+                    timed.due += timed.interval;
+                    if(timed.due <= time) {
+                        timed.due = time + timed.interval; // drop missed runs rather than catching up
+                    }
+                    
+                    timedQueue.add(timed);
+                }
+            } catch(Exception e) {
+                timedTasks.remove(timed.id);
+                Undertailor.instance.warn(MANAGER_TAG, "timed task " + nameOf(timed.id, timed.task) + " was removed due to caught error: " + e.getClass().getSimpleName() + ": " + e.getMessage());
+                e.printStackTrace();
+                timed.task.onFinish(true);
+            }
+        }
+        
+        this.processingTasks = true;
         Iterator<Entry<Long, Task>> iterator = tasks.entrySet().iterator();
         while(iterator.hasNext()) {
             Entry<Long, Task> entry = iterator.next();
             long id = entry.getKey();
             Task task = entry.getValue();
-            String taskName = (task.getName() == null ? "#" + id : task.getName() + " (#" + id + ")");
+            if(!pendingSleeps.isEmpty() && this.isPendingSleep(id)) {
+                continue;
+            }
             
             try {
                 if(task.process(delta, data)) {
-                    Undertailor.instance.debug(MANAGER_TAG, "task " + taskName + " finished and was removed");
+                    this.debug("task ", id, task, " finished and was removed");
                     task.onFinish(false);
                     iterator.remove();
                 }
             } catch(Exception e) {
-                Undertailor.instance.warn(MANAGER_TAG, "task " + taskName + " was removed due to caught error: " + e.getClass().getSimpleName() + ": " + e.getMessage());
+                Undertailor.instance.warn(MANAGER_TAG, "task " + nameOf(id, task) + " was removed due to caught error: " + e.getClass().getSimpleName() + ": " + e.getMessage());
                 e.printStackTrace();
                 task.onFinish(true);
                 iterator.remove();
             }
         }
         
+        this.processingTasks = false;
+        for(TimedTask timed : pendingSleeps) {
+            if(tasks.remove(timed.id) != null && !timed.cancelled) {
+                timedQueue.add(timed);
+            } else if(timedTasks.get(timed.id) == timed) { // finished or cancelled before it could sleep
+                timedTasks.remove(timed.id);
+            }
+        }
+        
+        pendingSleeps.clear();
         iterator = activeTasks.entrySet().iterator();
         while(iterator.hasNext()) {
             Entry<Long, Task> entry = iterator.next();
             long id = entry.getKey();
             Task task = entry.getValue();
-            String taskName = (task.getName() == null ? "#" + id : task.getName() + " (#" + id + ")");
             
             try {
                 if(task.process(delta, data)) {
-                    Undertailor.instance.debug(MANAGER_TAG, "active task " + taskName + " finished and was removed");
+                    this.debug("active task ", id, task, " finished and was removed");
                     task.onFinish(false);
                     iterator.remove();
                 } else {
                     break;
                 }
             } catch(Exception e) {
-                Undertailor.instance.warn(MANAGER_TAG, "active task " + taskName + " was removed due to caught error: " + e.getClass().getSimpleName() + ": " + e.getMessage());
+                Undertailor.instance.warn(MANAGER_TAG, "active task " + nameOf(id, task) + " was removed due to caught error: " + e.getClass().getSimpleName() + ": " + e.getMessage());
                 e.printStackTrace();
                 task.onFinish(true);
                 iterator.remove();
@@ -105,39 +282,350 @@ public class Scheduler {
     
     public long registerTask(Task task, boolean active) {
         long id = nextId++;
-        String taskName = (task.getName() == null ? "#" + id : task.getName() + " (#" + id + ")");
         if(active) {
             activeTasks.put(id, task);
-            Undertailor.instance.debug(MANAGER_TAG, "active task " + taskName + " registered");
+            this.debug("active task ", id, task, " registered");
         } else {
             tasks.put(id, task);
-            Undertailor.instance.debug(MANAGER_TAG, "task " + taskName + " registered");
+            this.debug("task ", id, task, " registered");
         }
         
         return id;
     }
     
+    /**
+     * Registers a task to be processed once, after the given
+     * delay in seconds.
+     * 
+     * <p>The task is finished after being processed,
+     * regardless of what it returns.</p>
+     */
+    public long scheduleTask(Task task, float delay) {
+        return this.scheduleTask(task, delay, 0F);
+    }
+    
+    /**
+     * Registers a task to be processed after the given delay,
+     * then every interval until it returns true.
+     * 
+     * <p>The delta given to the task is the time since it was
+     * scheduled or last processed. A non-positive interval
+     * processes the task once.</p>
+     */
+    public long scheduleTask(Task task, float delay, float interval) {
+        long id = nextId++;
+        this.enqueue(new TimedTask(id, task, time, time + Math.max(0F, delay), interval, false));
+        this.debug("timed task ", id, task, " registered");
+        return id;
+    }
+    
+    /**
+     * Registers a task to be processed once, when the game
+     * time of this {@link Scheduler} reaches the given time.
+     * 
+     * @see #getTime()
+     */
+    public long scheduleTaskAt(Task task, double time) {
+        long id = nextId++;
+        this.enqueue(new TimedTask(id, task, this.time, Math.max(time, this.time), 0F, false)); // no float round trip
+        this.debug("timed task ", id, task, " registered");
+        return id;
+    }
+    
+    /**
+     * Stops processing a registered, non-active task for the
+     * given amount of seconds.
+     * 
+     * @return whether the task was put to sleep
+     */
+    public boolean sleepTask(long id, float seconds) {
+        Task task = tasks.get(id);
+        if(task == null || timedTasks.containsKey(id)) {
+            return false;
+        }
+        
+        TimedTask timed = new TimedTask(id, task, time, time + Math.max(0F, seconds), 0F, true);
+        if(processingTasks) { // can't touch the task map under its iterator; moved over once the loop is done
+            timedTasks.put(id, timed);
+            pendingSleeps.add(timed);
+        } else {
+            tasks.remove(id);
+            this.enqueue(timed);
+        }
+        
+        this.debug("task ", id, task, " went to sleep");
+        return true;
+    }
+    
+    private boolean isPendingSleep(long id) {
+        for(int i = 0; i < pendingSleeps.size(); i++) {
+            if(pendingSleeps.get(i).id == id) {
+                return true;
+            }
+        }
+        
+        return false;
+    }
+    
     public void cancelTask(long id) {
-        if(tasks.containsKey(id)) {
+        if(tasks.containsKey(id) && !timedTasks.containsKey(id)) { // still in the map if it fell asleep this frame
             Task task = tasks.get(id);
-            String taskName = (task.getName() == null ? "#" + id : task.getName() + " (#" + id + ")");
             
             task.onFinish(true);
-            Undertailor.instance.debug(MANAGER_TAG, "task " + taskName + " was removed by scheduler call");
+            this.debug("task ", id, task, " was removed by scheduler call");
             tasks.remove(id);
         }
         
         if(activeTasks.containsKey(id)) {
             Task task = activeTasks.get(id);
-            String taskName = (task.getName() == null ? "#" + id : task.getName() + " (#" + id + ")");
             
             task.onFinish(true);
-            Undertailor.instance.debug(MANAGER_TAG, "active task " + taskName + " was removed by scheduler call");
+            this.debug("active task ", id, task, " was removed by scheduler call");
             activeTasks.remove(id);
         }
+        
+        if(coroutines.containsKey(id)) {
+            LuaCoroutine coroutine = coroutines.remove(id);
+            coroutine.cancel();
+            this.unpark(coroutine); // releases its thread and whatever it waited on
+            readyCoroutines.remove(coroutine);
+            
+            this.debug("coroutine ", id, coroutine.getName(), " was removed by scheduler call");
+        }
+        
+        if(timedTasks.containsKey(id)) {
+            TimedTask timed = timedTasks.remove(id);
+            timed.cancelled = true; // left in the queue, skipped once polled
+            
+            timed.task.onFinish(true);
+            this.debug("timed task ", id, timed.task, " was removed by scheduler call");
+        }
     }
     
     public boolean hasTask(long id) {
-        return tasks.containsKey(id) || activeTasks.containsKey(id);
+        return tasks.containsKey(id) || activeTasks.containsKey(id) || timedTasks.containsKey(id) || coroutines.containsKey(id);
+    }
+    
+    /**
+     * Starts running the given function as a coroutine, from
+     * the next time this {@link Scheduler} is processed.
+     * 
+     * <p>The coroutine runs until it waits on a condition
+     * through one of the wait methods of this scheduler,
+     * then sleeps until the condition fires. Its id is
+     * shared with tasks, and can be given to
+     * {@link #cancelTask(long)}.</p>
+     * 
+     * <p>Each live coroutine costs a Java thread in luaj
+     * 3.0.1; see {@link LuaCoroutine}.</p>
+     */
+    public long startCoroutine(LuaFunction function, String name) {
+        long id = nextId++;
+        LuaCoroutine coroutine = new LuaCoroutine(id, name, function);
+        coroutines.put(id, coroutine);
+        this.wake(coroutine, LuaValue.NONE);
+        this.debug("coroutine ", id, name, " registered");
+        return id;
+    }
+    
+    /**
+     * Suspends the current coroutine for the given amount of
+     * seconds of game time.
+     */
+    public Varargs waitSeconds(float seconds) {
+        return this.suspend(this.parkTimed(time + Math.max(0F, seconds)));
+    }
+    
+    /**
+     * Suspends the current coroutine for the given amount of
+     * frames, at least one.
+     */
+    public Varargs waitFrames(int frames) {
+        return this.suspend(this.park(frameWaits, frame + Math.max(1, frames)));
+    }
+    
+    /**
+     * Suspends the current coroutine until the given key is
+     * pressed.
+     */
+    public Varargs waitPress(int key) {
+        return this.suspend(this.park(pressWaits, key));
+    }
+    
+    /**
+     * Suspends the current coroutine until the given
+     * {@link UIObject} is destroyed, returning at once if it
+     * already was.
+     */
+    public Varargs waitDestroyed(UIObject object) {
+        this.checkCurrent();
+        UIController controller = object.getOwningController();
+        if(controller != null && controller.getUIObject(object.getId()) != object) {
+            return LuaValue.NONE;
+        }
+        
+        return this.suspend(this.park(destroyWaits, object));
+    }
+    
+    /**
+     * Suspends the current coroutine until the overworld
+     * enters another room, returning the new room.
+     */
+    public Varargs waitRoomChange() {
+        return this.suspend(this.park(roomWaits));
+    }
+    
+    public void onUIObjectDestroyed(UIObject object) {
+        List<LuaCoroutine> waiting = destroyWaits.remove(object);
+        if(waiting != null) {
+            waiting.forEach(coroutine -> this.wake(coroutine, LuaValue.NONE));
+        }
+    }
+    
+    public void onRoomChange(WorldRoom room) {
+        if(!roomWaits.isEmpty()) {
+            LuaValue roomValue = LuaWorldRoomMeta.create(room);
+            roomWaits.forEach(coroutine -> this.wake(coroutine, roomValue));
+            roomWaits.clear();
+        }
+    }
+    
+    private LuaCoroutine checkCurrent() {
+        if(current == null) {
+            throw new LuaError("can only wait from within a coroutine started by this scheduler");
+        }
+        
+        return current;
+    }
+    
+    // parking hands back the coroutine's state only; see LuaCoroutine#yield
+    private LuaThread.State parkTimed(double wakeTime) {
+        LuaCoroutine coroutine = this.checkCurrent();
+        coroutine.setWakeTime(wakeTime);
+        timeWaits.add(coroutine);
+        coroutine.setWaitList(timeWaits, null, null);
+        return coroutine.getState();
+    }
+    
+    private LuaThread.State park(List<LuaCoroutine> list) {
+        LuaCoroutine coroutine = this.checkCurrent();
+        list.add(coroutine);
+        coroutine.setWaitList(list, null, null);
+        return coroutine.getState();
+    }
+    
+    private <K> LuaThread.State park(Map<K, List<LuaCoroutine>> waits, K key) {
+        return this.park(this.checkCurrent(), waits, key);
+    }
+    
+    private <K> LuaThread.State park(LuaCoroutine coroutine, Map<K, List<LuaCoroutine>> waits, K key) {
+        List<LuaCoroutine> list = waits.get(key);
+        if(list == null) {
+            waits.put(key, list = new ArrayList<>());
+        }
+        
+        list.add(coroutine);
+        coroutine.setWaitList(list, waits, key);
+        return coroutine.getState();
+    }
+    
+    private Varargs suspend(LuaThread.State state) {
+        return LuaCoroutine.yield(state, LuaValue.NONE);
+    }
+    
+    // drops the coroutine from whichever wait list it's parked in, and the list once empty
+    private void unpark(LuaCoroutine coroutine) {
+        Collection<LuaCoroutine> list = coroutine.getWaitList();
+        if(list != null) {
+            list.remove(coroutine);
+            if(list.isEmpty() && coroutine.getWaitMap() != null) {
+                coroutine.getWaitMap().remove(coroutine.getWaitKey());
+            }
+            
+            coroutine.setWaitList(null, null, null);
+        }
+    }
+    
+    private void wake(LuaCoroutine coroutine, Varargs args) {
+        coroutine.setWaitList(null, null, null); // its list is being emptied by the caller
+        coroutine.setResumeArgs(args);
+        readyCoroutines.add(coroutine);
+    }
+    
+    private void resumeCoroutines() {
+        LuaBudget budget = Undertailor.getScriptManager().getBudget();
+        LuaCoroutine coroutine;
+        while((coroutine = readyCoroutines.poll()) != null) {
+            if(coroutine.isCancelled()) {
+                continue;
+            }
+            
+            Varargs args = coroutine.getResumeArgs();
+            coroutine.setResumeArgs(null);
+            
+            Varargs result;
+            boolean overran = false;
+            boolean budgeted = budget.begin(coroutine.getState(), LuaBudget.CALLBACK_COROUTINE, coroutine.getBudgetRecord());
+            this.current = coroutine;
+            try {
+                result = coroutine.resume(args);
+            } finally {
+                this.current = null;
+                if(budgeted) {
+                    overran = budget.end(nameOf(coroutine.getId(), coroutine.getName()));
+                }
+            }
+            
+            if(coroutine.isCancelled()) {
+                this.unpark(coroutine); // cancelled itself, then waited again
+            } else if(!result.arg1().toboolean()) {
+                coroutines.remove(coroutine.getId());
+                Undertailor.instance.warn(MANAGER_TAG, "coroutine " + nameOf(coroutine.getId(), coroutine.getName()) + " was removed due to caught error: " + result.arg(2).tojstring());
+            } else if(coroutine.isDead()) {
+                coroutines.remove(coroutine.getId());
+                this.debug("coroutine ", coroutine.getId(), coroutine.getName(), " finished and was removed");
+            } else if(coroutine.getBudgetRecord().isDisabled()) {
+                coroutines.remove(coroutine.getId());
+                coroutine.cancel();
+                this.unpark(coroutine);
+                this.debug("coroutine ", coroutine.getId(), coroutine.getName(), " was removed for overrunning its budget");
+            } else if(overran && coroutine.getWaitList() == null) { // suspended by its budget; carries on next frame
+                this.park(coroutine, frameWaits, frame + 1);
+            }
+        }
+    }
+    
+    private void enqueue(TimedTask timed) {
+        timedTasks.put(timed.id, timed);
+        timedQueue.add(timed);
+    }
+    
+    private void debug(String prefix, long id, Task task, String suffix) {
+        this.debug(prefix, id, task.getName(), suffix);
+    }
+    
+    // builds the message only if debug output would actually be written
+    private void debug(String prefix, long id, String name, String suffix) {
+        if(Gdx.app != null && Gdx.app.getLogLevel() >= Application.LOG_DEBUG) {
+            Undertailor.instance.debug(MANAGER_TAG, prefix + nameOf(id, name) + suffix);
+        }
+    }
+    
+    private static String nameOf(long id, Task task) {
+        return nameOf(id, task.getName());
+    }
+    
+    private static String nameOf(long id, String name) {
+        return name == null ? "#" + id : name + " (#" + id + ")";
+    }
+    
+    @Override
+    public LuaObjectValue<?> getLuaWrapper() {
+        return luaWrapper;
+    }
+    
+    @Override
+    public void setLuaWrapper(LuaObjectValue<?> wrapper) {
+        this.luaWrapper = wrapper;
     }
 }
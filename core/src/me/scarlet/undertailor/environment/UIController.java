@@ -29,6 +29,8 @@ import com.badlogic.gdx.utils.viewport.Viewport;
 import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.environment.ui.UIObject;
 import me.scarlet.undertailor.environment.ui.event.UIEvent;
+import me.scarlet.undertailor.lua.LuaObjectValue;
+import me.scarlet.undertailor.lua.LuaWrappable;
 import me.scarlet.undertailor.util.InputRetriever.InputData;
 import me.scarlet.undertailor.util.Renderable;
 
@@ -39,7 +41,7 @@ import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.function.Consumer;
 
-public class UIController implements Renderable {
+public class UIController implements Renderable, LuaWrappable {
     
     /** Next ID holder for incoming generations UI objects. */
     private static int nextUID;
@@ -57,6 +59,8 @@ public class UIController implements Renderable {
     private Environment env;
     private Viewport port;
     
+    private LuaObjectValue<?> luaWrapper;
+    
     public UIController(Environment env, Viewport port) {
         this.env = env;
         this.uis = new TreeMap<>(((Comparator<Integer>) Integer::compareTo));
@@ -82,7 +86,13 @@ public class UIController implements Renderable {
     }
     
     public boolean destroyObject(int id) {
-        return this.uis.remove(id) != null;
+        UIObject removed = this.uis.remove(id);
+        if(removed != null) {
+            env.getScheduler().onUIObjectDestroyed(removed);
+            return true;
+        }
+        
+        return false;
     }
     
     public void pushEvent(UIEvent event) {
@@ -101,6 +111,7 @@ public class UIController implements Renderable {
             UIObject obj = iterator.next().getValue();
             if(obj.isPastLifetime()) {
                 iterator.remove();
+                env.getScheduler().onUIObjectDestroyed(obj);
             }
         }
     }
@@ -149,4 +160,14 @@ public class UIController implements Renderable {
         this.camera.position.set(this.camera.viewportWidth/2.0F, this.camera.viewportHeight/2.0F, 0.0F);
         this.camera.update();
     }
+    
+    @Override
+    public LuaObjectValue<?> getLuaWrapper() {
+        return luaWrapper;
+    }
+    
+    @Override
+    public void setLuaWrapper(LuaObjectValue<?> wrapper) {
+        this.luaWrapper = wrapper;
+    }
 }
@@ -24,13 +24,17 @@
 
 package me.scarlet.undertailor.environment.overworld;
 
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef;
 import me.scarlet.undertailor.collision.Collider;
+import me.scarlet.undertailor.collision.CollisionLayers;
 import me.scarlet.undertailor.collision.bbshapes.BoundingBox;
 import me.scarlet.undertailor.environment.overworld.WorldRoom.Entrypoint;
 import me.scarlet.undertailor.gfx.AnimationData;
+import me.scarlet.undertailor.lua.LuaObjectValue;
+import me.scarlet.undertailor.lua.LuaWrappable;
 import me.scarlet.undertailor.util.InputRetriever.InputData;
 import me.scarlet.undertailor.util.Layerable;
 import me.scarlet.undertailor.util.Positionable;
@@ -42,7 +46,17 @@ import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
 
-public abstract class WorldObject implements Collider, Layerable, Renderable, Positionable {
+public abstract class WorldObject implements Collider, Layerable, Renderable, Positionable, LuaWrappable {
+    
+    /**
+     * How often an object gets processed, decided by its room
+     * from its distance to the player or the camera.
+     */
+    public enum Activity {
+        ACTIVE,  // processed every frame
+        REDUCED, // processed every few frames with the accumulated delta
+        DORMANT  // not processed, body put to sleep
+    }
     
     public static BodyDef generateDefaultObjectDef() {
         BodyDef def = new BodyDef();
@@ -68,6 +82,8 @@ public abstract class WorldObject implements Collider, Layerable, Renderable, Po
     private BodyDef bodyDef;
     private boolean canCollide;
     private boolean oneSided;
+    private short categoryBits;
+    private short maskBits;
     
     private Map<String, AnimationData> animations;
     
@@ -78,6 +94,18 @@ public abstract class WorldObject implements Collider, Layerable, Renderable, Po
     protected Body body;
     protected WorldRoom room;
     
+    // transform before the last physics step, for interpolation
+    private Vector2 prevPosition;
+    private float prevAngle;
+    private Vector2 renderPosition;
+    
+    private boolean pinned;
+    private Activity activity;
+    private float pendingDelta;
+    private int pendingFrames;
+    
+    private LuaObjectValue<?> luaWrapper;
+    
     public WorldObject() {
         this.z = 1;
         this.scale = 1F;
@@ -86,12 +114,18 @@ public abstract class WorldObject implements Collider, Layerable, Renderable, Po
         this.isVisible = true;
         this.oneSided = false;
         this.canCollide = true;
+        this.categoryBits = CollisionLayers.DEFAULT;
+        this.maskBits = CollisionLayers.ALL;
         this.contacts = new HashSet<>();
         this.animations = new HashMap<>();
         this.boundingBoxes = new HashMap<>();
         
         this.bodyDef = WorldObject.generateDefaultObjectDef();
         this.ignoreCollideList = new WeakHashMap<>();
+        this.prevPosition = new Vector2();
+        this.renderPosition = new Vector2();
+        this.pinned = false;
+        this.activity = Activity.ACTIVE;
     }
     
     public BodyDef getBodyDef() {
@@ -104,6 +138,52 @@ public abstract class WorldObject implements Collider, Layerable, Renderable, Po
         this.body = body;
         this.body.setUserData(this);
         this.updateCollision();
+        this.savePreviousTransform();
+    }
+    
+    @Override
+    public void savePreviousTransform() {
+        if(this.body != null) {
+            this.prevPosition.set(body.getPosition());
+            this.prevAngle = body.getAngle();
+        }
+    }
+    
+    /**
+     * Returns the position this object is drawn at, being its
+     * position interpolated between the last two physics steps.
+     */
+    public Vector2 getRenderPosition() {
+        if(this.body == null) {
+            return renderPosition.set(this.bodyDef.position);
+        }
+        
+        return renderPosition.set(prevPosition).lerp(body.getPosition(), this.getInterpolationAlpha());
+    }
+    
+    /**
+     * Returns whether any of this object's animations, drawn
+     * at its render position, may overlap the given area.
+     */
+    public boolean isInView(Rectangle view) {
+        Vector2 position = this.getRenderPosition();
+        float posX = position.x;
+        float posY = position.y + height;
+        float radius = 0F;
+        for(AnimationData animation : this.animations.values()) {
+            radius = Math.max(radius, animation.getCurrentFrameRadius(scale));
+        }
+        
+        return posX + radius >= view.x && posX - radius <= view.x + view.width
+                && posY + radius >= view.y && posY - radius <= view.y + view.height;
+    }
+    
+    private float getInterpolationAlpha() {
+        if(room == null || room.getCollisionHandler() == null) {
+            return 1F;
+        }
+        
+        return room.getCollisionHandler().getAlpha();
     }
     
     @Override
@@ -183,6 +263,26 @@ public abstract class WorldObject implements Collider, Layerable, Renderable, Po
         }
     }
     
+    @Override
+    public short getCategoryBits() {
+        return this.categoryBits;
+    }
+    
+    public void setCategoryBits(short bits) {
+        this.categoryBits = bits;
+        this.updateCollision();
+    }
+    
+    @Override
+    public short getMaskBits() {
+        return this.maskBits;
+    }
+    
+    public void setMaskBits(short bits) {
+        this.maskBits = bits;
+        this.updateCollision();
+    }
+    
     @Override
     public boolean isOneSidedReaction() {
         return this.oneSided;
@@ -242,6 +342,58 @@ public abstract class WorldObject implements Collider, Layerable, Renderable, Po
             this.bodyDef.position.set(x, y);
         } else {
             this.body.setTransform(x, y, this.body.getAngle());
+            this.savePreviousTransform(); // don't interpolate teleports
+        }
+    }
+    
+    public Activity getActivity() {
+        return this.activity;
+    }
+    
+    public boolean isPinned() {
+        return this.pinned;
+    }
+    
+    /**
+     * Sets whether this object is always processed every
+     * frame, regardless of its distance from the player.
+     */
+    public void setPinned(boolean flag) {
+        this.pinned = flag;
+    }
+    
+    /**
+     * Processes this object according to the activity level
+     * its room assigned it for this frame.
+     */
+    void tick(float delta, InputData input, Activity level, int interval) {
+        if(level != this.activity) {
+            if(this.body != null) {
+                if(level == Activity.DORMANT) {
+                    this.body.setAwake(false);
+                } else if(this.activity == Activity.DORMANT) {
+                    this.body.setAwake(true);
+                }
+            }
+            
+            if(level == Activity.DORMANT) { // time spent dormant is dropped
+                this.pendingDelta = 0F;
+                this.pendingFrames = 0;
+            }
+            
+            this.activity = level;
+        }
+        
+        if(level == Activity.DORMANT) {
+            return;
+        }
+        
+        this.pendingDelta += delta;
+        if(level == Activity.ACTIVE || ++this.pendingFrames >= interval) {
+            float elapsed = this.pendingDelta;
+            this.pendingDelta = 0F;
+            this.pendingFrames = 0;
+            this.process(elapsed, input);
         }
     }
     
@@ -284,8 +436,10 @@ public abstract class WorldObject implements Collider, Layerable, Renderable, Po
     public void render() {
         onRender();
         if(isVisible) {
+            Vector2 position = this.getRenderPosition();
+            float angle = prevAngle + ((body.getAngle() - prevAngle) * this.getInterpolationAlpha());
             for(AnimationData animation : this.animations.values()) {
-                animation.drawCurrentFrame(body.getPosition().x, body.getPosition().y + height, scale, (float) Math.toDegrees(body.getAngle()));
+                animation.drawCurrentFrame(position.x, position.y + height, scale, (float) Math.toDegrees(angle));
             }
         }
     }
@@ -305,4 +459,14 @@ public abstract class WorldObject implements Collider, Layerable, Renderable, Po
     
     @Override public void onCollide(Collider collider) {}
     public abstract String getObjectName();
+    
+    @Override
+    public LuaObjectValue<?> getLuaWrapper() {
+        return luaWrapper;
+    }
+    
+    @Override
+    public void setLuaWrapper(LuaObjectValue<?> wrapper) {
+        this.luaWrapper = wrapper;
+    }
 }
@@ -24,39 +24,50 @@
 
 package me.scarlet.undertailor.environment.overworld;
 
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef;
 import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.QueryCallback;
+import com.badlogic.gdx.physics.box2d.RayCastCallback;
 import com.badlogic.gdx.utils.Disposable;
 import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.collision.Collider;
 import me.scarlet.undertailor.collision.CollisionHandler;
+import me.scarlet.undertailor.collision.CollisionLayers;
 import me.scarlet.undertailor.collision.bbshapes.BoundingBox;
 import me.scarlet.undertailor.collision.bbshapes.BoundingRectangle;
 import me.scarlet.undertailor.environment.OverworldController;
+import me.scarlet.undertailor.environment.overworld.WorldObject.Activity;
+import me.scarlet.undertailor.environment.overworld.map.RoomMap;
+import me.scarlet.undertailor.environment.overworld.map.RoomMap.TraversableData;
 import me.scarlet.undertailor.environment.overworld.map.RoomMapLayer;
 import me.scarlet.undertailor.exception.LuaScriptException;
+import me.scarlet.undertailor.lua.LuaObjectValue;
+import me.scarlet.undertailor.lua.LuaWrappable;
 import me.scarlet.undertailor.lua.impl.WorldRoomImplementable;
 import me.scarlet.undertailor.manager.ScriptManager;
+import me.scarlet.undertailor.util.FrameProfiler;
 import me.scarlet.undertailor.util.InputRetriever.InputData;
 import me.scarlet.undertailor.util.Layerable;
 import me.scarlet.undertailor.util.Positionable;
 import me.scarlet.undertailor.util.Renderable;
 import me.scarlet.undertailor.wrappers.RoomDataWrapper;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.TreeSet;
-import java.util.stream.Collectors;
 
-public class WorldRoom implements Disposable {
+public class WorldRoom implements Disposable, LuaWrappable {
     
-    public static class Entrypoint implements Collider {
+    public static class Entrypoint implements Collider, LuaWrappable {
         
         public static final BodyDef ENTRYPOINT_BODY_DEF;
         public static final String ENTRYPOINT_BOX_ID = "entrypointBox";
@@ -78,10 +89,13 @@ public class WorldRoom implements Disposable {
         private String roomTarget;
         private Set<Collider> contacts;
         private Map<String, BoundingBox> boundingBoxes;
+        private LuaObjectValue<?> luaWrapper;
         
         public Entrypoint() {
             this.boundingBoxes = new HashMap<>();
             this.boundingBoxes.put(ENTRYPOINT_BOX_ID, new BoundingRectangle());
+            this.boundingBoxes.get(ENTRYPOINT_BOX_ID).setCategoryBits(CollisionLayers.getLayer(CollisionLayers.LAYER_ENTRYPOINT));
+            this.boundingBoxes.get(ENTRYPOINT_BOX_ID).setMaskBits(CollisionLayers.getLayer(CollisionLayers.LAYER_PLAYER));
             this.spawnloc = new Vector2(0, 0);
             this.roomTarget = "";
             this.contacts = new HashSet<>();
@@ -157,6 +171,9 @@ public class WorldRoom implements Disposable {
         @Override
         public boolean canCollide() { return true; }
         
+        @Override
+        public boolean receivesContactEvents() { return false; } // not dispatched to entrypoints; room switches are left to scripts
+        
         @Override
         public boolean isOneSidedReaction() { return true; }
         
@@ -182,40 +199,92 @@ public class WorldRoom implements Disposable {
 
         @Override
         public void setBoundingBox(String id, BoundingBox box) {} // nope
+        
+        @Override
+        public LuaObjectValue<?> getLuaWrapper() {
+            return luaWrapper;
+        }
+        
+        @Override
+        public void setLuaWrapper(LuaObjectValue<?> wrapper) {
+            this.luaWrapper = wrapper;
+        }
     }
     
-    private static final TreeSet<Layerable> RETURN_SET;
     private static long nextId;
     
+    public static final float DEFAULT_ACTIVE_RANGE = 320F;   // sixteen tiles
+    public static final float DEFAULT_DORMANT_RANGE = 960F;
+    public static final int DEFAULT_REDUCED_INTERVAL = 4;
+    
     static {
-        RETURN_SET = new TreeSet<>((Layerable obj1, Layerable obj2) -> {
-            if (obj1.getZ() == obj2.getZ()) {
-                if (obj1 instanceof Positionable && obj2 instanceof Positionable) {
-                    Positionable wobj1 = (Positionable) obj1;
-                    Positionable wobj2 = (Positionable) obj2;
-
-                    if (wobj1.getPosition().y == wobj2.getPosition().y) {
-                        return 1; // doesn't matter as long as its not 0
-                    } else {
-                        return Float.compare(wobj2.getPosition().y, wobj1.getPosition().y);
-                    }
-                } else {
-                    if (obj1 instanceof RoomMapLayer) {
-                        return -1;
-                    }
-
-                    return 1;
-                }
-            } else {
-                return Integer.compare(obj1.getZ(), obj2.getZ());
-            }
-        });
-        
         nextId = 0;
     }
     
+    /**
+     * The closest hit of a raycast made through
+     * {@link WorldRoom#raycast(float, float, float, float)}.
+     */
+    public static class RaycastResult {
+        
+        private Collider collider;
+        private Vector2 point;
+        private Vector2 normal;
+        private float fraction;
+        
+        RaycastResult() {
+            this.point = new Vector2();
+            this.normal = new Vector2();
+        }
+        
+        /**
+         * Returns the collider hit, or null if the ray hit
+         * something that isn't one, such as map collision.
+         */
+        public Collider getCollider() {
+            return collider;
+        }
+        
+        public Vector2 getPoint() {
+            return point;
+        }
+        
+        public Vector2 getNormal() {
+            return normal;
+        }
+        
+        public float getFraction() {
+            return fraction;
+        }
+    }
+    
+    /**
+     * Compares two objects by their rendering order; lower z
+     * first, then map layers before anything positioned, then
+     * higher y first.
+     */
+    private static int compareRenderOrder(Layerable obj1, Layerable obj2) {
+        if(obj1.getZ() != obj2.getZ()) {
+            return Integer.compare(obj1.getZ(), obj2.getZ());
+        }
+        
+        boolean pos1 = obj1 instanceof Positionable;
+        boolean pos2 = obj2 instanceof Positionable;
+        if(pos1 && pos2) {
+            return Float.compare(((Positionable) obj2).getPosition().y, ((Positionable) obj1).getPosition().y);
+        }
+        
+        if(pos1 == pos2) {
+            return 0;
+        }
+        
+        return pos1 ? 1 : -1;
+    }
+    
     private String roomName;
     private RoomDataWrapper roomWrapper;
+    private String mapPreset;
+    private Body mapCollision;
     private Map<String, Entrypoint> entrypoints;
     
     private Set<WorldObject> removed;
@@ -223,8 +292,30 @@ public class WorldRoom implements Disposable {
     private Map<Long, WorldObject> objects;
     private CollisionHandler collision;
     
+    // spatial queries; results are reused and only valid until the next query
+    private List<WorldObject> queryResults;
+    private Set<WorldObject> querySeen;
+    private QueryCallback areaQuery;
+    private QueryCallback pointQuery;
+    private Vector2 queryPoint;
+    private Vector2 rayStart;
+    private Vector2 rayEnd;
+    private RaycastResult raycastResult;
+    private RayCastCallback raycastQuery;
+    private boolean raycastHit;
+    
+    private float activeRange;
+    private float dormantRange;
+    private int reducedInterval;
+    private Vector2 activityFocus;
+    
+    private RoomMap renderedMap;
+    private List<Layerable> renderList;
+    
     protected OverworldController currentController;
     
+    private LuaObjectValue<?> luaWrapper;
+    
     public WorldRoom() {
         this.added = new HashMap<>();
         this.removed = new HashSet<>();
@@ -232,7 +323,47 @@ public class WorldRoom implements Disposable {
         this.objects = new HashMap<>();
         this.roomWrapper = null;
         this.collision = new CollisionHandler();
+        
+        this.queryResults = new ArrayList<>();
+        this.querySeen = new HashSet<>();
+        this.queryPoint = new Vector2();
+        this.rayStart = new Vector2();
+        this.rayEnd = new Vector2();
+        this.raycastResult = new RaycastResult();
+        this.areaQuery = fixture -> {
+            this.collectQueried(fixture);
+            return true;
+        };
+        
+        this.pointQuery = fixture -> {
+            if(fixture.testPoint(queryPoint)) {
+                this.collectQueried(fixture);
+            }
+            
+            return true;
+        };
+        
+        this.raycastQuery = (fixture, point, normal, fraction) -> {
+            if(fixture.isSensor()) {
+                return -1F; // ignore
+            }
+            
+            Object userData = fixture.getBody().getUserData();
+            raycastHit = true;
+            raycastResult.collider = userData instanceof Collider ? (Collider) userData : null;
+            raycastResult.point.set(point);
+            raycastResult.normal.set(normal);
+            raycastResult.fraction = fraction;
+            return fraction; // clip the ray; only keep closer hits
+        };
         this.currentController = null;
+        this.activeRange = DEFAULT_ACTIVE_RANGE;
+        this.dormantRange = DEFAULT_DORMANT_RANGE;
+        this.reducedInterval = DEFAULT_REDUCED_INTERVAL;
+        this.activityFocus = new Vector2();
+        
+        this.renderedMap = null;
+        this.renderList = new ArrayList<>();
     }
     
     public OverworldController getOwningController() {
@@ -262,6 +393,48 @@ public class WorldRoom implements Disposable {
         }
         
         this.roomWrapper = wrapper;
+        RoomMap map = wrapper == null ? null : wrapper.getReference(this);
+        this.mapPreset = map == null ? null : map.getDefaultPreset();
+        this.generateMapCollision();
+    }
+    
+    public String getMapPreset() {
+        return mapPreset;
+    }
+    
+    /**
+     * Switches the traversable preset of the current map used
+     * by this room, rebuilding the room's wall collision.
+     * 
+     * <p>Presets mesh their collision once when loaded, so
+     * switching between them only rebuilds the static body.
+     * Other rooms using the same map are unaffected.</p>
+     */
+    public void setMapPreset(String preset) {
+        RoomMap map = roomWrapper == null ? null : roomWrapper.getReference(this);
+        if(map == null || map.getPreset(preset) == null) {
+            throw new IllegalArgumentException("no traversable preset named " + preset);
+        }
+        
+        this.mapPreset = preset;
+        this.generateMapCollision();
+    }
+    
+    private TraversableData getMapPresetData() {
+        RoomMap map = roomWrapper == null ? null : roomWrapper.getReference(this);
+        return map == null || mapPreset == null ? null : map.getPreset(mapPreset);
+    }
+    
+    private void generateMapCollision() {
+        if(mapCollision != null) {
+            collision.getWorld().destroyBody(mapCollision);
+            this.mapCollision = null;
+        }
+        
+        TraversableData preset = this.getMapPresetData();
+        if(preset != null) {
+            this.mapCollision = preset.createBody(collision.getWorld());
+        }
     }
     
     public Entrypoint getEntrypoint(String name) {
@@ -292,7 +465,8 @@ public class WorldRoom implements Disposable {
     }
     
     public WorldObject getObject(long id) {
-        return objects.get(id);
+        WorldObject obj = objects.get(id);
+        return obj == null ? added.get(id) : obj; // registered this frame
     }
     
     public void removeObject(long id) {
@@ -310,25 +484,90 @@ public class WorldRoom implements Disposable {
     public void process(float delta, InputData input) {
         onProcess(delta, input);
         
+        Vector2 focus = this.getActivityFocus();
+        float active = activeRange * activeRange;
+        float dormant = dormantRange * dormantRange;
         for(WorldObject object : objects.values()) {
-            object.process(delta, input);
+            Activity level = Activity.ACTIVE;
+            if(focus != null && !object.isPinned()) {
+                float distance = focus.dst2(object.getPosition());
+                level = distance <= active ? Activity.ACTIVE : (distance <= dormant ? Activity.REDUCED : Activity.DORMANT);
+            }
+            
+            object.tick(delta, input, level, reducedInterval);
         }
         
+        Undertailor.getProfiler().begin(FrameProfiler.COLLISION);
         collision.step(delta);
-
-        objects.values().stream().filter(WorldObject::canCollide)
-                .forEach(object -> object.getContacts().stream()
-                        .filter(collider -> collider.canCollide()
-                                && !collider.isOneSidedReaction()
-                                && !object.isCollisionIgnored(collider))
-                        .forEach(object::onCollide));
+        Undertailor.getProfiler().end(FrameProfiler.COLLISION);
+        
+        collision.getContactQueue().dispatchPersist();
+    }
+    
+    public float getActiveRange() {
+        return activeRange;
+    }
+    
+    public float getDormantRange() {
+        return dormantRange;
+    }
+    
+    public int getReducedInterval() {
+        return reducedInterval;
+    }
+    
+    /**
+     * Sets the distances used to pick each object's activity
+     * level. Objects within the active range are processed
+     * every frame, objects beyond the dormant range are not
+     * processed at all, and those in between are processed
+     * every <code>interval</code> frames.
+     */
+    public void setActivityRanges(float active, float dormant, int interval) {
+        this.activeRange = active < 0F ? 0F : active;
+        this.dormantRange = dormant < this.activeRange ? this.activeRange : dormant;
+        this.reducedInterval = interval < 1 ? 1 : interval;
+    }
+    
+    /**
+     * Returns the point activity levels are measured from;
+     * the player character if it's in this room, otherwise
+     * the camera. Null if the room isn't being viewed.
+     */
+    private Vector2 getActivityFocus() {
+        if(currentController == null) {
+            return null;
+        }
+        
+        WorldObject character = objects.get(currentController.getCharacterID());
+        if(character != null) {
+            return activityFocus.set(character.getPosition());
+        }
+        
+        return activityFocus.set(currentController.getCamera().position.x, currentController.getCamera().position.y);
     }
     
     public void render() {
-        Set<Layerable> renderOrder = getObjectsInRenderOrder();
-        renderOrder.stream()
-                .filter(object -> object instanceof Renderable)
-                .forEach(object -> ((Renderable) object).render());
+        Rectangle bounds = currentController == null ? null : currentController.getViewBounds();
+        List<Layerable> renderOrder = getObjectsInRenderOrder();
+        for(int i = 0; i < renderOrder.size(); i++) {
+            Layerable object = renderOrder.get(i);
+            if(object instanceof RoomMapLayer) {
+                ((RoomMapLayer) object).render(bounds);
+            } else if(object instanceof Renderable) {
+                if(bounds != null) {
+                    if(object instanceof WorldObject) {
+                        if(!((WorldObject) object).isInView(bounds)) {
+                            continue; // off-screen
+                        }
+                    } else if(object instanceof Positionable && !bounds.contains(((Positionable) object).getPosition())) {
+                        continue;
+                    }
+                }
+                
+                ((Renderable) object).render();
+            }
+        }
     }
     
     private void updateMapping() {
@@ -336,14 +575,22 @@ public class WorldRoom implements Disposable {
             WorldObject obj = entry.getValue();
             obj.id = entry.getKey();
             obj.room = this;
-            objects.put(entry.getKey(), obj);
+            if(objects.put(entry.getKey(), obj) != obj) {
+                renderList.add(obj);
+            }
         }
         
         for(WorldObject object : removed) {
             object.room = null;
-            objects.remove(object.id);
+            if(objects.remove(object.id) != null) {
+                renderList.remove(object);
+            }
+            
             object.id = -1;
         }
+        
+        added.clear();
+        removed.clear();
     }
     
     public Set<WorldObject> prepareExit() {
@@ -372,19 +619,33 @@ public class WorldRoom implements Disposable {
         objects.values().forEach(WorldObject::onResume);
     }
     
-    private TreeSet<Layerable> getObjectsInRenderOrder() {
-        RETURN_SET.clear();
+    private List<Layerable> getObjectsInRenderOrder() {
+        RoomMap map = roomWrapper == null ? null : roomWrapper.getReference();
+        if(map != renderedMap) {
+            renderList.removeIf(obj -> !(obj instanceof WorldObject));
+            if(map != null) {
+                for(RoomMapLayer layer : map.getLayers()) {
+                    renderList.add(layer);
+                    renderList.addAll(layer.getSpriteObjects());
+                }
+            }
+            
+            this.renderedMap = map;
+        }
         
-        if(this.roomWrapper != null) {
-            for(RoomMapLayer layer : roomWrapper.getReference().getLayers()) {
-                RETURN_SET.add(layer);
-                RETURN_SET.addAll(layer.getSpriteObjects().stream().collect(Collectors.toList()));
+        // insertion sort; the list is almost always already sorted from the last frame
+        for(int i = 1; i < renderList.size(); i++) {
+            Layerable current = renderList.get(i);
+            int j = i - 1;
+            while(j >= 0 && compareRenderOrder(renderList.get(j), current) > 0) {
+                renderList.set(j + 1, renderList.get(j));
+                j--;
             }
+            
+            renderList.set(j + 1, current);
         }
-
-        RETURN_SET.addAll(objects.values().stream().collect(Collectors.toList()));
         
-        return RETURN_SET;
+        return renderList;
     }
     
     @Override
@@ -395,6 +656,7 @@ public class WorldRoom implements Disposable {
             this.roomWrapper = null;
         }
         
+        this.mapCollision = null; // goes with the world
         this.collision.getWorld().dispose();
         this.collision = null;
     }
@@ -403,9 +665,83 @@ public class WorldRoom implements Disposable {
         return this.collision;
     }
     
+    /**
+     * Returns the objects with a bounding box overlapping the
+     * given area, as found by the physics broadphase.
+     * 
+     * <p>The returned list is reused by the next query.</p>
+     */
+    public List<WorldObject> queryArea(float x1, float y1, float x2, float y2) {
+        this.resetQuery();
+        collision.getWorld().QueryAABB(areaQuery, Math.min(x1, x2), Math.min(y1, y2), Math.max(x1, x2), Math.max(y1, y2));
+        return queryResults;
+    }
+    
+    /**
+     * Returns the objects with a bounding box containing the
+     * given point.
+     * 
+     * <p>The returned list is reused by the next query.</p>
+     */
+    public List<WorldObject> queryPoint(float x, float y) {
+        this.resetQuery();
+        queryPoint.set(x, y);
+        collision.getWorld().QueryAABB(pointQuery, x - 0.01F, y - 0.01F, x + 0.01F, y + 0.01F);
+        return queryResults;
+    }
+    
+    /**
+     * Casts a ray between the two given points, returning the
+     * closest non-sensor hit, or null if nothing was hit.
+     * 
+     * <p>The returned result is reused by the next raycast.</p>
+     */
+    public RaycastResult raycast(float x1, float y1, float x2, float y2) {
+        if(x1 == x2 && y1 == y2) {
+            return null; // box2d asserts on zero-length rays
+        }
+        
+        this.raycastHit = false;
+        this.raycastResult.collider = null;
+        collision.getWorld().rayCast(raycastQuery, rayStart.set(x1, y1), rayEnd.set(x2, y2));
+        return raycastHit ? raycastResult : null;
+    }
+    
+    /**
+     * Tests line of sight between two points against the
+     * traversable tiles of the current map preset. Always true
+     * if this room has no map.
+     */
+    public boolean hasLineOfSight(float x1, float y1, float x2, float y2) {
+        TraversableData preset = this.getMapPresetData();
+        return preset == null || preset.hasLineOfSight(x1, y1, x2, y2);
+    }
+    
+    private void resetQuery() {
+        queryResults.clear();
+        querySeen.clear();
+    }
+    
+    private void collectQueried(Fixture fixture) {
+        Object userData = fixture.getBody().getUserData();
+        if(userData instanceof WorldObject && querySeen.add((WorldObject) userData)) { // objects may have several fixtures
+            queryResults.add((WorldObject) userData);
+        }
+    }
+    
     public void onPause() {}
     public void onResume() {}
     public void onProcess(float delta, InputData input) {}
     public void onEnter(Entrypoint entrypoint) {}
     public void onExit(Entrypoint exitpoint) {}
+    
+    @Override
+    public LuaObjectValue<?> getLuaWrapper() {
+        return luaWrapper;
+    }
+    
+    @Override
+    public void setLuaWrapper(LuaObjectValue<?> wrapper) {
+        this.luaWrapper = wrapper;
+    }
 }
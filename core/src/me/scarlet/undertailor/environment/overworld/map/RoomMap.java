@@ -29,33 +29,45 @@ import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef;
 import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.utils.Disposable;
 import me.scarlet.undertailor.Undertailor;
-import me.scarlet.undertailor.collision.CollisionHandler;
-import me.scarlet.undertailor.collision.bbshapes.BoundingRectangle;
+import me.scarlet.undertailor.collision.CollisionLayers;
 import me.scarlet.undertailor.gfx.SpriteSheet;
+import me.scarlet.undertailor.lua.LuaObjectValue;
+import me.scarlet.undertailor.lua.LuaWrappable;
 import me.scarlet.undertailor.util.ConfigurateUtil;
 import me.scarlet.undertailor.wrappers.SpriteSheetWrapper;
 import me.scarlet.undertailor.wrappers.TilemapWrapper;
 import ninja.leaping.configurate.ConfigurationNode;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
-public class RoomMap implements Disposable {
+public class RoomMap implements Disposable, LuaWrappable {
     
+    /**
+     * Data of a single tile, shared by every room using the
+     * map. Whether a tile is traversable depends on the
+     * preset active in each room; see
+     * {@link me.scarlet.undertailor.environment.overworld.WorldRoom#getMapPreset()}.
+     */
     public static class TileData implements Cloneable {
         
         public static final String KEY_VISIBLE = "visible";
-        public static final String KEY_TRAVERSABLE = "traversable";
         
         private Map<String, Float> values;
         
         public TileData() {
             this.values = new HashMap<>();
-            this.values.put(KEY_TRAVERSABLE, 1.0F);
         }
         
         public boolean getBoolean(String key) {
@@ -78,10 +90,6 @@ public class RoomMap implements Disposable {
             values.put(key, num);
         }
         
-        public boolean isTraversable() {
-            return this.getBoolean(KEY_TRAVERSABLE);
-        }
-        
         public boolean isVisible() {
             return this.getBoolean(KEY_VISIBLE);
         }
@@ -97,11 +105,10 @@ public class RoomMap implements Disposable {
     public static class TraversableData {
         
         private float[][] data;
-        private Map<Vector2, BoundingRectangle> boundingShapes;
+        private int[] mesh; // x, y, width, height in tiles, per rectangle
         
         public TraversableData(float[][] data) {
             this.data = data;
-            this.boundingShapes = new HashMap<>();
             this.generateCollision();
         }
         
@@ -109,18 +116,150 @@ public class RoomMap implements Disposable {
             return data;
         }
         
-        public Map<Vector2, BoundingRectangle> getBoundingShapes() {
-            return this.boundingShapes;
+        /**
+         * Returns the merged rectangles covering every
+         * non-traversable tile of this preset, as consecutive
+         * sets of x, y, width and height, measured in tiles.
+         */
+        public int[] getMesh() {
+            return mesh;
+        }
+        
+        public int getRectangleCount() {
+            return mesh.length / 4;
+        }
+        
+        /**
+         * Creates a static body in the provided world holding one
+         * box fixture per rectangle of this preset's mesh, on the
+         * {@link CollisionLayers#LAYER_WALL} layer. The caller
+         * owns the returned body.
+         */
+        public Body createBody(World world) {
+            Body body = world.createBody(TILE_BODY_DEF);
+            PolygonShape polygon = new PolygonShape();
+            FixtureDef fixDef = new FixtureDef();
+            fixDef.shape = polygon;
+            fixDef.friction = 0.0F;
+            fixDef.density = 1F;
+            fixDef.filter.categoryBits = CollisionLayers.getLayer(CollisionLayers.LAYER_WALL);
+            fixDef.filter.maskBits = CollisionLayers.ALL;
+            Vector2 center = new Vector2();
+            for(int i = 0; i < mesh.length; i += 4) {
+                float halfX = (mesh[i + 2] * TILE_SIZE) / 2F;
+                float halfY = (mesh[i + 3] * TILE_SIZE) / 2F;
+                center.set((mesh[i] * TILE_SIZE) + halfX, (mesh[i + 1] * TILE_SIZE) + halfY);
+                polygon.setAsBox(halfX, halfY, center, 0F);
+                body.createFixture(fixDef);
+            }
+            
+            polygon.dispose();
+            return body;
+        }
+        
+        /**
+         * Returns whether the given tile can be walked through.
+         * Tiles outside of the map count as traversable.
+         */
+        public boolean isTraversable(int x, int y) {
+            if(x < 0 || y < 0 || y >= data.length || x >= data[y].length) {
+                return true;
+            }
+            
+            return data[y][x] > 0.0F;
+        }
+        
+        /**
+         * Tests whether a straight line between the two given
+         * points crosses only traversable tiles, walking the tile
+         * grid rather than querying physics.
+         */
+        public boolean hasLineOfSight(float x1, float y1, float x2, float y2) {
+            float startX = x1 / TILE_SIZE, startY = y1 / TILE_SIZE;
+            float endX = x2 / TILE_SIZE, endY = y2 / TILE_SIZE;
+            int tileX = (int) Math.floor(startX), tileY = (int) Math.floor(startY);
+            int endTileX = (int) Math.floor(endX), endTileY = (int) Math.floor(endY);
+            
+            float dx = endX - startX, dy = endY - startY;
+            int stepX = dx > 0 ? 1 : -1;
+            int stepY = dy > 0 ? 1 : -1;
+            float deltaX = dx == 0 ? Float.POSITIVE_INFINITY : Math.abs(1F / dx);
+            float deltaY = dy == 0 ? Float.POSITIVE_INFINITY : Math.abs(1F / dy);
+            float maxX = dx == 0 ? Float.POSITIVE_INFINITY : (dx > 0 ? (tileX + 1 - startX) : (startX - tileX)) * deltaX;
+            float maxY = dy == 0 ? Float.POSITIVE_INFINITY : (dy > 0 ? (tileY + 1 - startY) : (startY - tileY)) * deltaY;
+            
+            int steps = Math.abs(endTileX - tileX) + Math.abs(endTileY - tileY);
+            for(int i = 0; i < steps; i++) {
+                if(!this.isTraversable(tileX, tileY)) {
+                    return false;
+                }
+            
+                if(maxX < maxY) {
+                    tileX += stepX;
+                    maxX += deltaX;
+                } else {
+                    tileY += stepY;
+                    maxY += deltaY;
+                }
+            }
+            
+            return this.isTraversable(endTileX, endTileY);
         }
         
+        // greedy meshing; grow each rectangle right, then up, as far as the solid cells allow
         private void generateCollision() {
+            int sizeY = data.length;
+            int sizeX = sizeY == 0 ? 0 : data[0].length;
+            boolean[][] covered = new boolean[sizeY][sizeX];
+            List<int[]> rectangles = new ArrayList<>();
+            for(int y = 0; y < sizeY; y++) {
+                for(int x = 0; x < sizeX; x++) {
+                    if(!this.isSolid(x, y, covered)) {
+                        continue;
+                    }
+                    
+                    int width = 1;
+                    while(x + width < sizeX && this.isSolid(x + width, y, covered)) {
+                        width++;
+                    }
+                    
+                    int height = 1;
+                    grow:
+                    while(y + height < sizeY) {
+                        for(int i = x; i < x + width; i++) {
+                            if(!this.isSolid(i, y + height, covered)) {
+                                break grow;
+                            }
+                        }
+                        
+                        height++;
+                    }
+                    
+                    for(int cY = y; cY < y + height; cY++) {
+                        for(int cX = x; cX < x + width; cX++) {
+                            covered[cY][cX] = true;
+                        }
+                    }
+                    
+                    rectangles.add(new int[] {x, y, width, height});
+                }
+            }
             
+            this.mesh = new int[rectangles.size() * 4];
+            for(int i = 0; i < rectangles.size(); i++) {
+                System.arraycopy(rectangles.get(i), 0, mesh, i * 4, 4);
+            }
+        }
+        
+        private boolean isSolid(int x, int y, boolean[][] covered) {
+            return !covered[y][x] && data[y][x] <= 0.0F;
         }
     }
     
     public static final int DEFAULT_FLOOR_Z = 0;
     public static final int DEFAULT_OBJECT_Z = 1;
     public static final int DEFAULT_CEILING_Z = 2;
+    public static final float TILE_SIZE = 20F;
     public static final BodyDef TILE_BODY_DEF;
     public static final Color WALL_BOUNDING_COLOR;
     
@@ -166,6 +305,15 @@ public class RoomMap implements Disposable {
             wrapper.getReference(map);
         }
         
+        map.travPresets = new LinkedHashMap<>();
+        for(Entry<Object, ? extends ConfigurationNode> entry : node.getNode("traversable").getChildrenMap().entrySet()) {
+            String presetName = entry.getKey().toString();
+            map.travPresets.put(presetName, parseDataPreset(map, entry.getValue()));
+            if(map.defaultPreset == null) {
+                map.defaultPreset = presetName;
+            }
+        }
+        
         Map<Object, ? extends ConfigurationNode> layerMapping = node.getNode("map").getChildrenMap();
         for(Entry<Object, ? extends ConfigurationNode> entry : layerMapping.entrySet()) {
             RoomMapLayer loaded = new RoomMapLayer(map, entry.getValue());
@@ -199,33 +347,35 @@ public class RoomMap implements Disposable {
     private TileData[][] data;
 
     private Map<String, TraversableData> travPresets;
-    private String currentPreset;
-    private Body collision;
+    private String defaultPreset;
+    
+    private LuaObjectValue<?> luaWrapper;
     
     public RoomMap() {
         this.layers = new HashMap<>(); // don't need to organize; worldroom already tries to organize for rendering
-        this.collision = null;
+        this.travPresets = new LinkedHashMap<>();
     }
     
-    public void generateCollision(CollisionHandler handler) {
-        this.destroyCollision(handler);
-        TraversableData preset = this.travPresets.get(currentPreset);
-        
-        for(int y = 0; y < data.length; y++) {
-            TileData[] row = data[y];
-            for(int x = 0; x < row.length; x++) {
-                row[x].setNumber(TileData.KEY_TRAVERSABLE, preset.getData()[y][x]);
-            }
-        }
-
-        Body body = handler.getWorld().createBody(TILE_BODY_DEF);
-        for(Entry<Vector2, BoundingRectangle> box : preset.getBoundingShapes().entrySet()) {
-            box.getValue().applyFixture(body);
-        }
+    public Set<String> getPresets() {
+        return travPresets.keySet();
     }
     
-    public void destroyCollision(CollisionHandler handler) {
-        handler.getWorld().destroyBody(collision);
+    /**
+     * Returns the preset rooms start out with using this map,
+     * being the first one defined, or null if the map has no
+     * presets.
+     */
+    public String getDefaultPreset() {
+        return defaultPreset;
+    }
+    
+    /**
+     * Returns the traversable preset of the given name. Presets
+     * are shared by every room using this map and must not be
+     * modified; rooms keep their own collision built from them.
+     */
+    public TraversableData getPreset(String preset) {
+        return travPresets.get(preset);
     }
     
     public TileData getDataForTile(int x, int y) {
@@ -268,6 +418,10 @@ public class RoomMap implements Disposable {
     
     @Override
     public void dispose() {
+        for(RoomMapLayer layer : layers.values()) {
+            layer.dispose();
+        }
+        
         for(TilemapWrapper wrapper : tilemaps) {
             wrapper.removeReference(this);
         }
@@ -276,4 +430,14 @@ public class RoomMap implements Disposable {
             wrapper.removeReference(this);
         }
     }
+    
+    @Override
+    public LuaObjectValue<?> getLuaWrapper() {
+        return luaWrapper;
+    }
+    
+    @Override
+    public void setLuaWrapper(LuaObjectValue<?> wrapper) {
+        this.luaWrapper = wrapper;
+    }
 }
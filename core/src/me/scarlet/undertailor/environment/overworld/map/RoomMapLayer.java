@@ -25,7 +25,11 @@
 package me.scarlet.undertailor.environment.overworld.map;
 
 import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntArray;
 import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.exception.BadConfigurationException;
 import me.scarlet.undertailor.gfx.Sprite;
@@ -39,7 +43,7 @@ import ninja.leaping.configurate.ConfigurationNode;
 import java.util.HashSet;
 import java.util.Set;
 
-public class RoomMapLayer implements Layerable, Cloneable, Renderable {
+public class RoomMapLayer implements Layerable, Cloneable, Renderable, Disposable {
     
     public static class SpriteData implements Layerable, Positionable, Renderable {
         
@@ -92,6 +96,12 @@ public class RoomMapLayer implements Layerable, Cloneable, Renderable {
         }
     }
     
+    /**
+     * The width and height, in tiles, of the chunks baked
+     * layers are split into.
+     */
+    public static final int CHUNK_SIZE = 16;
+    
     private int z;
     private String name;
     private int priority;
@@ -100,6 +110,12 @@ public class RoomMapLayer implements Layerable, Cloneable, Renderable {
     private Set<SpriteData> sprites;
     private float opacity;
     
+    private boolean baked;
+    private int[][] cacheIds;
+    private IntArray visibleIds;
+    private SpriteCache cache;
+    private boolean cacheDirty;
+    
     private RoomMapLayer() {} // for clones;
     
     // tilemapid:tileid
@@ -110,6 +126,9 @@ public class RoomMapLayer implements Layerable, Cloneable, Renderable {
         this.mapping = new Tile[parent.getSizeY()][parent.getSizeX()];
         this.sprites = new HashSet<>();
         this.opacity = 1.0F;
+        this.baked = ConfigurateUtil.processBoolean(layerData.getNode("baked"), false);
+        this.visibleIds = new IntArray();
+        this.cacheDirty = true;
         
         this.z = ConfigurateUtil.processInt(layerData.getNode("z"), 0);
         
@@ -147,7 +166,32 @@ public class RoomMapLayer implements Layerable, Cloneable, Renderable {
     }
     
     public void setOpacity(float opacity) {
-        this.opacity = NumberUtil.boundFloat(opacity, 0.0F, 1.0F);
+        float newOpacity = NumberUtil.boundFloat(opacity, 0.0F, 1.0F);
+        this.opacity = newOpacity;
+    }
+    
+    /**
+     * Returns whether or not this layer pre-bakes its static
+     * tiles into a {@link SpriteCache}.
+     * 
+     * <p>Baked layers upload the geometry of non-animated
+     * tiles once, in chunks of {@link #CHUNK_SIZE} tiles, and
+     * redraw each visible chunk with a single draw call per
+     * frame. The batch color and the layer's opacity are
+     * applied as the chunks are drawn, so neither rebuilds
+     * them. Animated tiles are still drawn every frame.</p>
+     * 
+     * @return if this layer is baked
+     */
+    public boolean isBaked() {
+        return baked;
+    }
+    
+    public void setBaked(boolean flag) {
+        if(this.baked != flag) {
+            this.baked = flag;
+            this.cacheDirty = true;
+        }
     }
     
     public String getName() {
@@ -169,6 +213,9 @@ public class RoomMapLayer implements Layerable, Cloneable, Renderable {
         clone.parent = this.parent;
         clone.priority = this.priority;
         clone.opacity = 1.0F;
+        clone.baked = this.baked;
+        clone.visibleIds = new IntArray();
+        clone.cacheDirty = true;
         clone.mapping = new Tile[parent.getSizeY()][parent.getSizeX()];
         
         for(int y = 0; y < parent.getSizeY(); y++) {
@@ -181,13 +228,52 @@ public class RoomMapLayer implements Layerable, Cloneable, Renderable {
     }
     
     public void render() {
+        this.render(null);
+    }
+    
+    /**
+     * Renders the tiles of this layer that intersect the
+     * provided area. A null area renders the entire layer.
+     * 
+     * @param bounds the visible area, in room coordinates
+     */
+    public void render(Rectangle bounds) {
         if(opacity > 0.0F) { // not invisible
+            int minX = 0, minY = 0;
+            int maxX = parent.getSizeX() - 1;
+            int maxY = parent.getSizeY() - 1;
+            if(bounds != null) {
+                minX = Math.max(minX, (int) Math.floor(bounds.x / 20F));
+                minY = Math.max(minY, (int) Math.floor(bounds.y / 20F));
+                maxX = Math.min(maxX, (int) Math.floor((bounds.x + bounds.width) / 20F));
+                maxY = Math.min(maxY, (int) Math.floor((bounds.y + bounds.height) / 20F));
+            }
+            
             Color oldColor = Undertailor.getRenderer().getBatchColor();
+            if(baked) {
+                if(cacheDirty) {
+                    this.bakeCache();
+                }
+                
+                if(cache != null && minX <= maxX && minY <= maxY) {
+                    visibleIds.clear();
+                    for(int chunkY = minY / CHUNK_SIZE; chunkY <= maxY / CHUNK_SIZE; chunkY++) {
+                        for(int chunkX = minX / CHUNK_SIZE; chunkX <= maxX / CHUNK_SIZE; chunkX++) {
+                            if(cacheIds[chunkY][chunkX] >= 0) {
+                                visibleIds.add(cacheIds[chunkY][chunkX]);
+                            }
+                        }
+                    }
+                    
+                    Undertailor.getRenderer().drawCache(cache, visibleIds, oldColor, opacity);
+                }
+            }
+            
             Undertailor.getRenderer().setBatchColor(oldColor, opacity);
-            for(int x = 0; x < parent.getSizeX(); x++) {
-                for(int y = 0; y < parent.getSizeY(); y++) {
+            for(int x = minX; x <= maxX; x++) {
+                for(int y = minY; y <= maxY; y++) {
                     Tile tile = mapping[y][x];
-                    if(tile != null) {
+                    if(tile != null && (!baked || tile.isAnimated())) {
                         float xPos = x * 20F;
                         float yPos = y * 20F;
                         tile.draw(xPos, yPos);
@@ -203,6 +289,62 @@ public class RoomMapLayer implements Layerable, Cloneable, Renderable {
         return this.sprites;
     }
     
+    @Override
+    public void dispose() {
+        if(this.cache != null) {
+            this.cache.dispose();
+            this.cache = null;
+            this.cacheIds = null;
+        }
+        
+        this.cacheDirty = true;
+    }
+    
+    private void bakeCache() {
+        this.dispose();
+        this.cacheDirty = false;
+        
+        int count = 0;
+        for(int y = 0; y < parent.getSizeY(); y++) {
+            for(int x = 0; x < parent.getSizeX(); x++) {
+                Tile tile = mapping[y][x];
+                if(tile != null && !tile.isAnimated()) {
+                    count++;
+                }
+            }
+        }
+        
+        if(count <= 0) {
+            return;
+        }
+        
+        // baked in white, tinted when drawn
+        this.cache = new SpriteCache(count, Undertailor.getRenderer().getCacheShader(), false);
+        this.cacheIds = new int[(parent.getSizeY() + CHUNK_SIZE - 1) / CHUNK_SIZE][(parent.getSizeX() + CHUNK_SIZE - 1) / CHUNK_SIZE];
+        for(int chunkY = 0; chunkY < cacheIds.length; chunkY++) {
+            for(int chunkX = 0; chunkX < cacheIds[chunkY].length; chunkX++) {
+                this.cacheIds[chunkY][chunkX] = this.bakeChunk(chunkX * CHUNK_SIZE, chunkY * CHUNK_SIZE);
+            }
+        }
+    }
+    
+    private int bakeChunk(int startX, int startY) {
+        boolean empty = true;
+        cache.beginCache();
+        for(int y = startY; y < Math.min(startY + CHUNK_SIZE, parent.getSizeY()); y++) {
+            for(int x = startX; x < Math.min(startX + CHUNK_SIZE, parent.getSizeX()); x++) {
+                Tile tile = mapping[y][x];
+                if(tile != null && !tile.isAnimated()) {
+                    tile.cache(cache, x * 20F, y * 20F);
+                    empty = false;
+                }
+            }
+        }
+        
+        int id = cache.endCache();
+        return empty ? -1 : id;
+    }
+    
     private Tile parseTileMapping(String mapping) {
         try {
             String[] mappingSplit = mapping.split(":");
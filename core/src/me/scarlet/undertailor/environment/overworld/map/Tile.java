@@ -24,6 +24,7 @@
 
 package me.scarlet.undertailor.environment.overworld.map;
 
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
 import com.badlogic.gdx.utils.TimeUtils;
 import me.scarlet.undertailor.gfx.Sprite;
 
@@ -58,6 +59,14 @@ public class Tile implements Cloneable {
         sprites[getCurrentSprite()].draw(xPos, yPos, 1F, 1F, 0F, false, false, 20, 20, false);
     }
     
+    public void cache(SpriteCache cache, float xPos, float yPos) {
+        sprites[0].cache(cache, xPos, yPos, 20, 20);
+    }
+    
+    public boolean isAnimated() {
+        return this.frameTime > 0 && sprites.length > 1;
+    }
+    
     public float getFrameTime() {
         return this.frameTime;
     }
@@ -26,6 +26,7 @@ package me.scarlet.undertailor.environment.overworld.map;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.utils.Disposable;
 import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.exception.TextureTilingException;
@@ -75,15 +76,34 @@ public class Tilemap implements Disposable {
         }
         
         Texture tx = new Texture(Gdx.files.absolute(texture.getAbsolutePath()));
-        if(tx.getWidth() % 20 != 0 || tx.getHeight() % 20 != 0) {
+        this.sheet = new SpriteSheet(TILEMAP_SHEET_PREFIX + name, tx, generateSheetMeta(tx.getWidth(), tx.getHeight()));
+        this.loadTiles(meta);
+    }
+    
+    public Tilemap(String name, TextureRegion texture, File meta) throws TextureTilingException, ConfigurationException, IOException {
+        this.name = name;
+        this.tiles = new HashMap<>();
+        
+        if(!meta.exists()) {
+            throw new FileNotFoundException("meta file not found (" + meta.getName() + ")");
+        }
+        
+        this.sheet = new SpriteSheet(TILEMAP_SHEET_PREFIX + name, texture, generateSheetMeta(texture.getRegionWidth(), texture.getRegionHeight()));
+        this.loadTiles(meta);
+    }
+    
+    private SpriteSheetMeta generateSheetMeta(int width, int height) throws TextureTilingException {
+        if(width % 20 != 0 || height % 20 != 0) {
             throw new TextureTilingException("texture does not contain 20x20 tiled sprites");
         }
         
         SpriteSheetMeta smeta = new SpriteSheetMeta();
-        smeta.gridX = tx.getWidth() / 20;
-        smeta.gridY = tx.getHeight() / 20;
-        this.sheet = new SpriteSheet(TILEMAP_SHEET_PREFIX + name, tx, smeta);
-        
+        smeta.gridX = width / 20;
+        smeta.gridY = height / 20;
+        return smeta;
+    }
+    
+    private void loadTiles(File meta) throws IOException {
         JSONConfigurationLoader loader = JSONConfigurationLoader.builder().setFile(meta).build();
         ConfigurationNode node = loader.load();
         
@@ -0,0 +1,208 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.environment.scheduler;
+
+import me.scarlet.undertailor.Undertailor;
+import me.scarlet.undertailor.lua.LuaBudget;
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaClosure;
+import org.luaj.vm2.LuaFunction;
+import org.luaj.vm2.LuaThread;
+import org.luaj.vm2.UpValue;
+import org.luaj.vm2.Varargs;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * A Lua function run by a
+ * {@link me.scarlet.undertailor.environment.Scheduler} as a
+ * coroutine.
+ * 
+ * <p>Instead of being polled every frame, the coroutine
+ * waits on a condition (see the scheduler's wait methods)
+ * and is only resumed once that condition fires.</p>
+ * 
+ * <p>luaj 3.0.1 runs every coroutine on a Java thread of its
+ * own, so each live coroutine costs a thread blocked for as
+ * long as it waits. The thread ends once the coroutine
+ * finishes, or shortly after nothing references a suspended
+ * one anymore.</p>
+ */
+public class LuaCoroutine {
+    
+    // luaj only shows the globals a closure was loaded under through its upvalues, which closures not using any lack
+    private static final Field CLOSURE_GLOBALS = closureGlobals();
+    
+    private long id;
+    private String name;
+    private LuaThread thread;
+    private LuaBudget.Record budgetRecord;
+    
+    // scheduler bookkeeping
+    private double wakeTime;
+    private Varargs resumeArgs;
+    private boolean cancelled;
+    private Collection<LuaCoroutine> waitList;
+    private Map<?, ?> waitMap; // holding waitList under waitKey, if any
+    private Object waitKey;
+    
+    public LuaCoroutine(long id, String name, LuaFunction function) {
+        this.id = id;
+        this.name = name;
+        this.thread = new LuaThread(globalsOf(function), function);
+        this.cancelled = false;
+        this.budgetRecord = new LuaBudget.Record(() -> "coroutine " + (name == null ? "#" + id : name + " (#" + id + ")"));
+    }
+    
+    public long getId() {
+        return id;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public boolean isDead() {
+        return thread.state.status == LuaThread.STATUS_DEAD;
+    }
+    
+    public boolean isCancelled() {
+        return cancelled;
+    }
+    
+    public void cancel() {
+        this.cancelled = true;
+    }
+    
+    public double getWakeTime() {
+        return wakeTime;
+    }
+    
+    public void setWakeTime(double wakeTime) {
+        this.wakeTime = wakeTime;
+    }
+    
+    /**
+     * Returns the wait list this coroutine is parked in, or
+     * null if it isn't waiting.
+     */
+    public Collection<LuaCoroutine> getWaitList() {
+        return waitList;
+    }
+    
+    public Map<?, ?> getWaitMap() {
+        return waitMap;
+    }
+    
+    public Object getWaitKey() {
+        return waitKey;
+    }
+    
+    public void setWaitList(Collection<LuaCoroutine> waitList, Map<?, ?> waitMap, Object waitKey) {
+        this.waitList = waitList;
+        this.waitMap = waitMap;
+        this.waitKey = waitKey;
+    }
+    
+    public Varargs getResumeArgs() {
+        return resumeArgs;
+    }
+    
+    public void setResumeArgs(Varargs args) {
+        this.resumeArgs = args;
+    }
+    
+    /**
+     * Runs the coroutine until it next waits or finishes.
+     * 
+     * @return the values returned by luaj's resume; true
+     *         followed by any yielded values, or false followed
+     *         by an error message
+     */
+    public Varargs resume(Varargs args) {
+        return thread.resume(args);
+    }
+    
+    public LuaThread.State getState() {
+        return thread.state;
+    }
+    
+    /**
+     * Returns the record of this coroutine's overruns of the
+     * {@link LuaBudget#CALLBACK_COROUTINE} budget.
+     */
+    public LuaBudget.Record getBudgetRecord() {
+        return budgetRecord;
+    }
+    
+    /**
+     * Suspends the coroutine running on the given state,
+     * returning the values it is later resumed with. Must be
+     * called from within the coroutine.
+     * 
+     * <p>Takes the state rather than the coroutine, as luaj
+     * only ends the thread of a suspended coroutine once its
+     * {@link LuaThread} is unreachable; nothing on the
+     * yielding stack may hold on to it.</p>
+     */
+    public static Varargs yield(LuaThread.State state, Varargs args) {
+        return state.lua_yield(args);
+    }
+    
+    // the coroutine switches the running thread of the environment carrying its script's debug hooks
+    private static Globals globalsOf(LuaFunction function) {
+        if(function instanceof LuaClosure) {
+            for(UpValue upvalue : ((LuaClosure) function).upValues) {
+                if(upvalue != null && upvalue.getValue() instanceof Globals) {
+                    return Undertailor.getScriptManager().getHookOwner((Globals) upvalue.getValue());
+                }
+            }
+            
+            if(CLOSURE_GLOBALS != null) {
+                try {
+                    Object globals = CLOSURE_GLOBALS.get(function);
+                    if(globals instanceof Globals) {
+                        return Undertailor.getScriptManager().getHookOwner((Globals) globals);
+                    }
+                } catch(IllegalAccessException ignored) {
+                }
+            }
+        }
+        
+        return new Globals();
+    }
+    
+    private static Field closureGlobals() {
+        try {
+            Field field = LuaClosure.class.getDeclaredField("globals");
+            field.setAccessible(true);
+            return field;
+        } catch(NoSuchFieldException | SecurityException e) {
+            return null;
+        }
+    }
+}
@@ -25,6 +25,8 @@
 package me.scarlet.undertailor.environment.ui;
 
 import com.badlogic.gdx.math.Vector2;
+import me.scarlet.undertailor.lua.LuaObjectValue;
+import me.scarlet.undertailor.lua.LuaWrappable;
 import me.scarlet.undertailor.util.InputRetriever.InputData;
 import me.scarlet.undertailor.environment.ui.event.UIEvent;
 import me.scarlet.undertailor.util.Positionable;
@@ -33,7 +35,7 @@ import me.scarlet.undertailor.util.Renderable;
 /**
  * A component of a {@link UIObject}, which may display something on-screen.
  */
-public abstract class UIComponent implements Renderable, Positionable {
+public abstract class UIComponent implements Renderable, Positionable, LuaWrappable {
     
     /** Holding the parent {@link UIObject} that owns this UIComponent. */
     protected UIObject parent;
@@ -46,6 +48,8 @@ public abstract class UIComponent implements Renderable, Positionable {
     private boolean isAlwaysActive;
     private boolean renderWhenInactive;
     
+    private LuaObjectValue<?> luaWrapper;
+    
     public UIComponent() {
         this(new Vector2(0, 0));
     }
@@ -184,4 +188,14 @@ public abstract class UIComponent implements Renderable, Positionable {
     public void render(float parentAlpha) {}
     
     public abstract String getComponentTypeName();
+    
+    @Override
+    public LuaObjectValue<?> getLuaWrapper() {
+        return luaWrapper;
+    }
+    
+    @Override
+    public void setLuaWrapper(LuaObjectValue<?> wrapper) {
+        this.luaWrapper = wrapper;
+    }
 }
@@ -29,6 +29,8 @@ import com.badlogic.gdx.utils.TimeUtils;
 import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.environment.UIController;
 import me.scarlet.undertailor.environment.ui.event.UIEvent;
+import me.scarlet.undertailor.lua.LuaObjectValue;
+import me.scarlet.undertailor.lua.LuaWrappable;
 import me.scarlet.undertailor.util.InputRetriever.InputData;
 import me.scarlet.undertailor.util.Positionable;
 import me.scarlet.undertailor.util.Renderable;
@@ -39,7 +41,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
-public class UIObject implements Renderable, Positionable {
+public class UIObject implements Renderable, Positionable, LuaWrappable {
     
     private int id;
     private float alpha;
@@ -54,6 +56,8 @@ public class UIObject implements Renderable, Positionable {
     
     private UIController controller;
     
+    private LuaObjectValue<?> luaWrapper;
+    
     public UIObject(boolean headless) {
         this(headless, 0);
     }
@@ -231,4 +235,14 @@ public class UIObject implements Renderable, Positionable {
         
         return sb.toString().trim();
     }
+    
+    @Override
+    public LuaObjectValue<?> getLuaWrapper() {
+        return luaWrapper;
+    }
+    
+    @Override
+    public void setLuaWrapper(LuaObjectValue<?> wrapper) {
+        this.luaWrapper = wrapper;
+    }
 }
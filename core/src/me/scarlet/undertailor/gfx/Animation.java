@@ -102,6 +102,17 @@ public abstract class Animation<T extends KeyFrame> implements Disposable {
     public abstract Map<Long, T> getFrames();
     public abstract T getFrame(long stateTime, boolean looping);
     
+    /**
+     * Returns the furthest the frame at the given time is
+     * drawn from the position given to
+     * {@link #drawFrame(long, boolean, String, float, float, float, float, float, float)},
+     * excluding the offset given to it. Used to cull
+     * animations against the view.
+     */
+    public float getFrameRadius(long stateTime, boolean looping, String spriteset, float scale) {
+        return 0F;
+    }
+    
     public void drawFrame(long stateTime, boolean looping, String spriteset, float posX, float posY, float offX, float offY) {
         this.drawFrame(stateTime, looping, spriteset, posX, posY, offX, offY, 1F);
     }
@@ -105,6 +105,15 @@ public class AnimationData {
         this.looping = flag;
     }
     
+    /**
+     * Returns the furthest the current frame is drawn from the
+     * position given to
+     * {@link #drawCurrentFrame(float, float, float, float)}.
+     */
+    public float getCurrentFrameRadius(float scale) {
+        return this.anim.getFrameRadius(this.getRuntime(), this.isLooping(), spriteset, scale) + offset.len();
+    }
+    
     public void drawCurrentFrame(float posX, float posY) {
         this.drawCurrentFrame(posX, posY, 1F);
     }
@@ -0,0 +1,213 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.gfx;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Pixmap.Format;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.Texture.TextureFilter;
+import com.badlogic.gdx.graphics.TextureData;
+import com.badlogic.gdx.graphics.g2d.PixmapPacker;
+import com.badlogic.gdx.graphics.g2d.PixmapPacker.Page;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Disposable;
+import me.scarlet.undertailor.Undertailor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Predicate;
+
+/**
+ * Packs textures loaded by the managers into a small set of
+ * large atlas pages, so that the renderer does not need to
+ * switch textures as often.
+ */
+public class AtlasPacker implements Disposable {
+    
+    public static final String MANAGER_TAG = "atlas";
+    public static final int DEFAULT_PAGE_SIZE = 2048;
+    public static final int DEFAULT_PADDING = 2;
+    
+    private static class QueuedImage {
+        
+        private Pixmap pixmap;
+        private Texture source;
+        private Predicate<TextureRegion> callback;
+        
+        public QueuedImage(Pixmap pixmap, Texture source, Predicate<TextureRegion> callback) {
+            this.pixmap = pixmap;
+            this.source = source;
+            this.callback = callback;
+        }
+    }
+    
+    private boolean packed;
+    private PixmapPacker packer;
+    private Map<String, QueuedImage> queued;
+    
+    public AtlasPacker() {
+        this(DEFAULT_PAGE_SIZE);
+    }
+    
+    public AtlasPacker(int pageSize) {
+        this.packed = false;
+        this.queued = new LinkedHashMap<>();
+        this.packer = new PixmapPacker(pageSize, pageSize, Format.RGBA8888, DEFAULT_PADDING, false);
+    }
+    
+    /**
+     * Queues the image held by the provided texture to be
+     * packed.
+     * 
+     * <p>If the image is packed successfully, the callback is
+     * given the region of the atlas holding the image and
+     * returns whether it switched over to the region. Only
+     * then is the source texture disposed; a callback still
+     * using the source returns false and keeps it. Images too
+     * large to fit within a page are skipped, leaving the
+     * source texture untouched.</p>
+     * 
+     * @param id the unique id of the image
+     * @param texture the texture holding the image
+     * @param callback the callback receiving the packed region
+     */
+    public void queue(String id, Texture texture, Predicate<TextureRegion> callback) {
+        TextureData data = texture.getTextureData();
+        if(data.getType() != TextureData.TextureDataType.Pixmap) {
+            Undertailor.instance.debug(MANAGER_TAG, "not packing " + id + " (unsupported texture data)");
+            return;
+        }
+        
+        if(!data.isPrepared()) {
+            data.prepare();
+        }
+        
+        Pixmap pixmap = data.consumePixmap();
+        if(!data.disposePixmap()) { // pixmap isn't ours to dispose; copy it
+            Pixmap copy = new Pixmap(pixmap.getWidth(), pixmap.getHeight(), pixmap.getFormat());
+            copy.drawPixmap(pixmap, 0, 0);
+            pixmap = copy;
+        }
+        
+        this.queue(id, pixmap, texture, callback);
+    }
+    
+    /**
+     * Queues the provided image to be packed.
+     * 
+     * <p>The pixmap is disposed once packing finishes. The
+     * callback returns whether it switched over to the packed
+     * region, as with
+     * {@link #queue(String, Texture, Predicate)}.</p>
+     * 
+     * @param id the unique id of the image
+     * @param pixmap the image
+     * @param callback the callback receiving the packed region
+     */
+    public void queue(String id, Pixmap pixmap, Predicate<TextureRegion> callback) {
+        this.queue(id, pixmap, null, callback);
+    }
+    
+    private void queue(String id, Pixmap pixmap, Texture source, Predicate<TextureRegion> callback) {
+        if(packed) {
+            throw new IllegalStateException("atlas has already been packed");
+        }
+        
+        QueuedImage old = queued.put(id, new QueuedImage(pixmap, source, callback));
+        if(old != null) {
+            old.pixmap.dispose();
+        }
+    }
+    
+    /**
+     * Packs all queued images, generates the atlas pages and
+     * hands each packed region to its callback.
+     * 
+     * @return the amount of atlas pages generated
+     */
+    public int pack() {
+        if(packed) {
+            throw new IllegalStateException("atlas has already been packed");
+        }
+        
+        this.packed = true;
+        int padding = packer.getPadding() * 2;
+        for(Entry<String, QueuedImage> entry : queued.entrySet()) {
+            Pixmap pixmap = entry.getValue().pixmap;
+            if(pixmap.getWidth() + padding > packer.getPageWidth() || pixmap.getHeight() + padding > packer.getPageHeight()) {
+                Undertailor.instance.debug(MANAGER_TAG, "not packing " + entry.getKey() + " (larger than an atlas page)");
+                continue;
+            }
+            
+            packer.pack(entry.getKey(), pixmap);
+        }
+        
+        packer.updatePageTextures(TextureFilter.Nearest, TextureFilter.Nearest, false);
+        
+        int packedCount = 0;
+        for(Entry<String, QueuedImage> entry : queued.entrySet()) {
+            QueuedImage image = entry.getValue();
+            Page page = packer.getPage(entry.getKey());
+            if(page != null) {
+                Rectangle rect = page.getRects().get(entry.getKey());
+                boolean accepted = image.callback.test(new TextureRegion(page.getTexture(), (int) rect.x, (int) rect.y, (int) rect.width, (int) rect.height));
+                if(accepted && image.source != null) {
+                    image.source.dispose();
+                }
+                
+                packedCount++;
+            }
+            
+            image.pixmap.dispose();
+        }
+        
+        queued.clear();
+        int pages = packer.getPages().size;
+        Undertailor.instance.log(MANAGER_TAG, "packed " + packedCount + " texture(s) into " + pages + " atlas page(s)");
+        return pages;
+    }
+    
+    public int getPageCount() {
+        return packer.getPages().size;
+    }
+    
+    @Override
+    public void dispose() {
+        for(Page page : packer.getPages()) {
+            if(page.getTexture() != null) {
+                page.getTexture().dispose();
+            }
+        }
+        
+        packer.dispose();
+        for(QueuedImage image : queued.values()) {
+            image.pixmap.dispose();
+        }
+        
+        queued.clear();
+    }
+}
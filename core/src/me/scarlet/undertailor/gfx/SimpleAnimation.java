@@ -24,6 +24,7 @@
 
 package me.scarlet.undertailor.gfx;
 
+import com.badlogic.gdx.math.Vector2;
 import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.exception.AnimationLoadException;
 import me.scarlet.undertailor.exception.ConfigurationException;
@@ -120,6 +121,20 @@ public class SimpleAnimation extends Animation<SimpleKeyFrame>{
         return getFrameEntry(stateTime, looping).getValue();
     }
     
+    @Override
+    public float getFrameRadius(long stateTime, boolean looping, String spriteset, float scale) {
+        SimpleKeyFrame frame = getFrameEntry(stateTime, looping).getValue();
+        if(frame.getSpriteIndex() <= -1) {
+            return 0F;
+        }
+        
+        // smoothing toward the next frame is left to the view's culling margin
+        Sprite sprite = this.getParentSet().getSpriteset(spriteset)[frame.getSpriteIndex()];
+        FrameObjectMeta meta = frame.getMeta() == null ? new FrameObjectMeta() : frame.getMeta();
+        float frameScale = Math.max(Math.abs(meta.scaleX), Math.abs(meta.scaleY)) * Math.abs(scale);
+        return (sprite.getBoundingRadius() + Vector2.len(meta.offX, meta.offY)) * frameScale;
+    }
+    
     Entry<Long, SimpleKeyFrame> getFrameEntry(long stateTime, boolean looping) {
         long time = stateTime;
         Entry<Long, SimpleKeyFrame> last = MapUtil.getLastEntry(frames);
@@ -24,7 +24,9 @@
 
 package me.scarlet.undertailor.gfx;
 
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Vector2;
 import me.scarlet.undertailor.Undertailor;
 
 public class Sprite {
@@ -70,6 +72,26 @@ public class Sprite {
         return meta;
     }
     
+    /**
+     * Returns the furthest any corner of this sprite is drawn
+     * from the position it is drawn at, at a scale of 1 and
+     * regardless of rotation.
+     */
+    public float getBoundingRadius() {
+        float originX = 0, originY = 0;
+        int offX = 0, offY = 0;
+        if(meta != null) {
+            originX = meta.originX;
+            originY = meta.originY;
+            offX = meta.offX;
+            offY = meta.offY;
+        }
+        
+        float reachX = Math.max(Math.abs(originX), Math.abs(region.getRegionWidth() - originX));
+        float reachY = Math.max(Math.abs(originY), Math.abs(region.getRegionHeight() - originY));
+        return Vector2.len(offX, offY) + Vector2.len(reachX, reachY);
+    }
+    
     public void draw(float posX, float posY) {
         this.draw(posX, posY, 1.0F);
     }
@@ -99,27 +121,45 @@ public class Sprite {
     }
     
     public void draw(float posX, float posY, float scaleX, float scaleY, float rotation, boolean flipX, boolean flipY, int sizeX, int sizeY, boolean ensureBottomLeft) { // for texts
-        float originX = 0, originY = 0;
-        int offX = 0, offY = 0;
-        if(meta != null) {
-            originX = meta.originX;
-            originY = meta.originY;
-            offX = meta.offX;
-            offY = meta.offY;
-        }
-        
-        float x = posX + (offX * scaleX);
-        float y = posY + (offY * scaleY);
-        if(!ensureBottomLeft) {
-            x -= originX;
-            y -= originY;
-        } else {
-            x += originX;
-            y += originY;
-        }
+        float originX = meta == null ? 0 : meta.originX;
+        float originY = meta == null ? 0 : meta.originY;
+        float x = this.getDrawX(posX, scaleX, ensureBottomLeft);
+        float y = this.getDrawY(posY, scaleY, ensureBottomLeft);
         
         region.flip(flipX, flipY);
         Undertailor.getRenderer().draw(region, x, y, originX, originY, sizeX, sizeY, scaleX, scaleY, rotation);
         region.flip(flipX, flipY);
     }
+    
+    /**
+     * Adds this sprite to the cache being built by the
+     * provided {@link SpriteCache}, placed as
+     * {@link #draw(float, float, float, float, float, boolean, boolean, int, int, boolean)}
+     * would at a scale of 1 without rotation or flipping.
+     */
+    public void cache(SpriteCache cache, float posX, float posY, int sizeX, int sizeY) {
+        float originX = meta == null ? 0 : meta.originX;
+        float originY = meta == null ? 0 : meta.originY;
+        float x = this.getDrawX(posX, 1F, false);
+        float y = this.getDrawY(posY, 1F, false);
+        cache.add(region, x, y, originX, originY, sizeX, sizeY, 1F, 1F, 0F);
+    }
+    
+    private float getDrawX(float posX, float scaleX, boolean ensureBottomLeft) {
+        if(meta == null) {
+            return posX;
+        }
+        
+        float x = posX + (meta.offX * scaleX);
+        return ensureBottomLeft ? x + meta.originX : x - meta.originX;
+    }
+    
+    private float getDrawY(float posY, float scaleY, boolean ensureBottomLeft) {
+        if(meta == null) {
+            return posY;
+        }
+        
+        float y = posY + (meta.offY * scaleY);
+        return ensureBottomLeft ? y + meta.originY : y - meta.originY;
+    }
 }
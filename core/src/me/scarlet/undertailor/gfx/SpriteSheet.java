@@ -55,6 +55,14 @@ public class SpriteSheet implements Disposable {
     }
     
     public static SpriteSheet fromConfig(String name, Texture texture, ConfigurationNode node) throws FileNotFoundException, TextureTilingException {
+        return new SpriteSheet(name, texture, parseMeta(name, node));
+    }
+    
+    public static SpriteSheet fromConfig(String name, TextureRegion texture, ConfigurationNode node) throws FileNotFoundException, TextureTilingException {
+        return new SpriteSheet(name, texture, parseMeta(name, node));
+    }
+    
+    private static SpriteSheetMeta parseMeta(String name, ConfigurationNode node) {
         SpriteSheetMeta meta = new SpriteSheetMeta();
         try {
             meta.gridX = ConfigurateUtil.processInt(node.getNode("gridSizeX"), null);
@@ -94,19 +102,27 @@ public class SpriteSheet implements Disposable {
             throw e;
         }
         
-        return new SpriteSheet(name, texture, meta);
+        return meta;
     }
     
     private String sheetName;
     private Texture texture;
     private Sprite[] sprites;
+    private boolean ownsTexture;
     public SpriteSheet(String sheetName, Texture texture, SpriteSheetMeta meta) throws TextureTilingException {
-        this.texture = texture;
+        this(sheetName, new TextureRegion(texture), meta);
+        this.ownsTexture = true;
+    }
+    
+    // region-backed sheets, i.e. packed into an atlas, don't dispose their texture
+    public SpriteSheet(String sheetName, TextureRegion source, SpriteSheetMeta meta) throws TextureTilingException {
+        this.texture = source.getTexture();
         this.sheetName = sheetName;
-        checkTexture(texture, meta.gridX, meta.gridY);
+        this.ownsTexture = false;
+        checkTexture(source, meta.gridX, meta.gridY);
         sprites = new Sprite[meta.gridX * meta.gridY];
-        int spriteHeight = texture.getHeight() / meta.gridY;
-        int spriteWidth = texture.getWidth() / meta.gridX;
+        int spriteHeight = source.getRegionHeight() / meta.gridY;
+        int spriteWidth = source.getRegionWidth() / meta.gridX;
         for(int iY = 0; iY < meta.gridY; iY++) {
             for(int iX = 0; iX < meta.gridX; iX++) {
                 int pos = (iY * meta.gridX) + iX;
@@ -125,7 +141,7 @@ public class SpriteSheet implements Disposable {
                     wrapY = smeta.wrapY;
                 }
                 
-                region.setRegion(iX * spriteWidth, (iY * spriteHeight) + wrapY, width, height);
+                region.setRegion(source.getRegionX() + (iX * spriteWidth), source.getRegionY() + (iY * spriteHeight) + wrapY, width, height);
                 sprites[pos] = new Sprite(region, smeta);
             }
         }
@@ -147,12 +163,12 @@ public class SpriteSheet implements Disposable {
         return texture;
     }
     
-    private void checkTexture(Texture image, int width, int height) throws TextureTilingException {
-        if(image.getWidth() % width != 0) {
+    private void checkTexture(TextureRegion image, int width, int height) throws TextureTilingException {
+        if(image.getRegionWidth() % width != 0) {
             throw new TextureTilingException("Texture width is not divisible by defined width");
         }
         
-        if(image.getHeight() % height != 0) {
+        if(image.getRegionHeight() % height != 0) {
             throw new TextureTilingException("Texture width is not divisible by defined height");
         }
     }
@@ -173,6 +189,8 @@ public class SpriteSheet implements Disposable {
     
     @Override
     public void dispose() {
-        Gdx.app.postRunnable(() -> texture.dispose());
+        if(ownsTexture) {
+            Gdx.app.postRunnable(() -> texture.dispose());
+        }
     }
 }
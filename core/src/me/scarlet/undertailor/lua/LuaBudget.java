@@ -0,0 +1,389 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.lua;
+
+import me.scarlet.undertailor.Undertailor;
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaThread;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.lib.ZeroArgFunction;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Bounds the amount of work a single script callback may
+ * do within a frame.
+ * 
+ * <p>Limits are given as an instruction count and,
+ * optionally, a wall-clock time per callback name, checked
+ * through a debug count hook every {@link #CHECK_INTERVAL}
+ * instructions while the callback runs. Scripts compiled
+ * through LuaJC don't report instructions, and are only
+ * checked against the time limit after returning.</p>
+ * 
+ * <p>The time limit measures everything happening during
+ * the callback, including garbage collection pauses and the
+ * engine code it calls into, so it is off unless asked for;
+ * instruction limits are what a script can be held
+ * responsible for. No callback has a budget until one is
+ * set through {@link #setLimit(String, int, float)}.</p>
+ * 
+ * <p>What happens to an overrunning callback depends on the
+ * {@link Escalation} step its owner's {@link Record} has
+ * reached.</p>
+ */
+public class LuaBudget {
+    
+    public static final String BUDGET_TAG = "luabudget";
+    public static final String CALLBACK_COROUTINE = "coroutine";
+    public static final int CHECK_INTERVAL = 1000;
+    public static final int DEFAULT_SKIP_AFTER = 3;
+    public static final int DEFAULT_DISABLE_AFTER = 30;
+    public static final int RUNAWAY_FACTOR = 10;
+    
+    /**
+     * The steps an owner of callbacks goes through while
+     * overrunning its budget in a row; any callback within
+     * budget takes it back to {@link #WARN}.
+     */
+    public enum Escalation {
+        /**
+         * Overruns are only counted and logged, unless the
+         * callback runs for {@link LuaBudget#RUNAWAY_FACTOR}
+         * times its budget.
+         */
+        WARN,
+        /** Overrunning callbacks are aborted for the frame. */
+        SKIP,
+        /** Callbacks are no longer called at all. */
+        DISABLE;
+    }
+    
+    /**
+     * Thrown from within a callback to abort it once it goes
+     * over its budget.
+     * 
+     * <p>Not a {@link org.luaj.vm2.LuaError}, nor an {@link Exception}, so
+     * <code>pcall</code> and <code>xpcall</code> can't swallow
+     * it; it unwinds straight back to whoever began the
+     * budget.</p>
+     */
+    public static class BudgetExceededError extends Error {
+        
+        private static final long serialVersionUID = 1L;
+        
+        public BudgetExceededError(String message) {
+            super(message);
+        }
+    }
+    
+    /**
+     * The escalation state of a single owner of budgeted
+     * callbacks, such as a world object or a coroutine.
+     */
+    public static class Record {
+        
+        private int streak;
+        private Escalation step;
+        private Supplier<String> owner;
+        
+        /**
+         * @param owner describes the owner in log messages
+         */
+        public Record(Supplier<String> owner) {
+            this.owner = owner;
+            this.reset();
+        }
+        
+        public Escalation getStep() {
+            return step;
+        }
+        
+        public boolean isDisabled() {
+            return step == Escalation.DISABLE;
+        }
+        
+        public void setDisabled(boolean flag) {
+            if(flag) {
+                this.step = Escalation.DISABLE;
+            } else {
+                this.reset();
+            }
+        }
+        
+        public void reset() {
+            this.streak = 0;
+            this.step = Escalation.WARN;
+        }
+    }
+    
+    private Escalation escalation;
+    private int skipAfter;
+    private int disableAfter;
+    private Map<String, long[]> limits; // callback -> {instructions, nanos}; null key holds the default
+    private Map<String, int[]> overruns;
+    
+    // state of the budgeted call in progress
+    private LuaThread.State state;
+    private String callback;
+    private Record record;
+    private boolean aborting;
+    private long[] limit;
+    private long startTime;
+    private long instructions;
+    private boolean overran;
+    private LuaValue hook;
+    
+    public LuaBudget() {
+        this.escalation = Escalation.DISABLE;
+        this.skipAfter = DEFAULT_SKIP_AFTER;
+        this.disableAfter = DEFAULT_DISABLE_AFTER;
+        this.limits = new HashMap<>();
+        this.overruns = new HashMap<>();
+        this.state = null;
+        this.hook = new ZeroArgFunction() {
+            @Override
+            public LuaValue call() {
+                instructions += CHECK_INTERVAL;
+                if(!overran && isExceeded(1)) {
+                    overran = true;
+                }
+                
+                if(overran && (aborting || isExceeded(RUNAWAY_FACTOR))) {
+                    if(state.function != null) { // coroutines pick up where they left off next time
+                        state.lua_yield(LuaValue.NONE);
+                        return LuaValue.NONE;
+                    }
+                    
+                    throw new BudgetExceededError("script callback went over its budget");
+                }
+                
+                return LuaValue.NONE;
+            }
+        };
+    }
+    
+    /**
+     * Returns the furthest step owners of overrunning
+     * callbacks are escalated to.
+     */
+    public Escalation getEscalation() {
+        return escalation;
+    }
+    
+    public void setEscalation(Escalation escalation) {
+        this.escalation = escalation;
+    }
+    
+    public int getSkipAfter() {
+        return skipAfter;
+    }
+    
+    /**
+     * Sets how many consecutive overrunning callbacks an
+     * owner is given before its callbacks start being
+     * aborted.
+     */
+    public void setSkipAfter(int overruns) {
+        this.skipAfter = Math.max(1, overruns);
+    }
+    
+    public int getDisableAfter() {
+        return disableAfter;
+    }
+    
+    /**
+     * Sets how many consecutive overrunning callbacks an
+     * owner is given before being disabled.
+     */
+    public void setDisableAfter(int overruns) {
+        this.disableAfter = Math.max(1, overruns);
+    }
+    
+    /**
+     * Sets the budget of the given callback.
+     * 
+     * @param callback the name of the callback, or null to set
+     *        the budget of callbacks without their own
+     * @param instructions the instruction limit, or 0 for none
+     * @param millis the wall-clock time limit in
+     *        milliseconds, or 0 for none
+     */
+    public void setLimit(String callback, int instructions, float millis) {
+        if(instructions <= 0 && millis <= 0) {
+            this.limits.remove(callback);
+        } else {
+            this.limits.put(callback, new long[] {Math.max(0, instructions), (long) (Math.max(0F, millis) * 1000000L)});
+        }
+    }
+    
+    public void clearLimits() {
+        this.limits.clear();
+    }
+    
+    /**
+     * Returns whether any callback has a budget.
+     */
+    public boolean isEnabled() {
+        return !limits.isEmpty();
+    }
+    
+    /**
+     * Returns the amount of overruns recorded by each script
+     * since the last call to {@link #resetOverruns()}.
+     */
+    public Map<String, Integer> getOverruns() {
+        Map<String, Integer> returned = new HashMap<>();
+        overruns.forEach((script, count) -> returned.put(script, count[0]));
+        return returned;
+    }
+    
+    public void resetOverruns() {
+        this.overruns.clear();
+    }
+    
+    /**
+     * Starts budgeting a callback about to be called from the
+     * engine within the given environment.
+     * 
+     * <p>Callbacks called from within a coroutine count
+     * against the coroutine instead, and aren't budgeted on
+     * their own.</p>
+     * 
+     * @see #begin(LuaThread.State, String, Record)
+     */
+    public boolean begin(Globals env, String callback, Record record) {
+        if(env == null || limits.isEmpty()) {
+            return false;
+        }
+        
+        LuaThread.State state = Undertailor.getScriptManager().getHookOwner(env).running.state;
+        if(state.function != null) {
+            return false;
+        }
+        
+        return this.begin(state, callback, record);
+    }
+    
+    /**
+     * Starts budgeting a callback about to run on the given
+     * thread state, on behalf of the owner of the given
+     * record.
+     * 
+     * <p>Once the owner has been escalated to
+     * {@link Escalation#SKIP}, overrunning callbacks are
+     * aborted, or suspended if the state is a coroutine's;
+     * the owner of the coroutine should resume it again later
+     * on.</p>
+     * 
+     * <p>Returns false if the callback has no budget, or is
+     * being called from within another budgeted callback, in
+     * which case it counts against the latter's budget and
+     * {@link #end(String)} must not be called.</p>
+     */
+    public boolean begin(LuaThread.State state, String callback, Record record) {
+        if(this.state != null || limits.isEmpty()) {
+            return false;
+        }
+        
+        long[] limit = limits.containsKey(callback) ? limits.get(callback) : limits.get(null);
+        if(limit == null || state.hookfunc != null) {
+            return false;
+        }
+        
+        this.state = state;
+        this.callback = callback;
+        this.record = record;
+        this.aborting = record.step != Escalation.WARN;
+        this.limit = limit;
+        this.instructions = 0L;
+        this.overran = false;
+        state.hookfunc = hook;
+        state.hookcount = CHECK_INTERVAL;
+        state.bytecodes = 0;
+        this.startTime = System.nanoTime();
+        return true;
+    }
+    
+    /**
+     * Stops budgeting the current callback, returning whether
+     * it went over its budget.
+     * 
+     * <p>The record given to {@link #begin} is escalated by a
+     * step once its owner overruns its budget enough times in
+     * a row, and taken back to {@link Escalation#WARN} once it
+     * stays within it.</p>
+     * 
+     * @param script the name of the script owning the
+     *        callback, to record the overrun against
+     */
+    public boolean end(String script) {
+        if(state == null) {
+            return false;
+        }
+        
+        Record record = this.record;
+        state.hookfunc = null;
+        state.hookcount = 0;
+        this.state = null;
+        this.record = null;
+        
+        if(!overran && !isExceeded(1)) {
+            record.streak = 0;
+            record.step = Escalation.WARN;
+            return false;
+        }
+        
+        int[] count = overruns.get(script);
+        if(count == null) {
+            overruns.put(script, count = new int[1]);
+        }
+        
+        count[0]++;
+        record.streak++;
+        if(record.streak == 1) {
+            Undertailor.instance.warn(BUDGET_TAG, record.owner.get() + " went over the budget of " + callback);
+        }
+        
+        Escalation step = record.streak >= disableAfter ? Escalation.DISABLE : (record.streak >= skipAfter ? Escalation.SKIP : Escalation.WARN);
+        if(step.compareTo(escalation) > 0) {
+            step = escalation;
+        }
+        
+        if(step.compareTo(record.step) > 0) {
+            record.step = step;
+            Undertailor.instance.warn(BUDGET_TAG, (step == Escalation.DISABLE ? "disabled " : "aborting overrunning callbacks of ")
+                + record.owner.get() + " after " + record.streak + " overruns in a row");
+        }
+        
+        return true;
+    }
+    
+    private boolean isExceeded(int factor) {
+        return (limit[0] > 0 && instructions >= limit[0] * factor) || (limit[1] > 0 && System.nanoTime() - startTime >= limit[1] * factor);
+    }
+}
@@ -0,0 +1,193 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.lua;
+
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A view of a shared {@link LuaTable}, reading through to it
+ * until the view is first modified.
+ * 
+ * <p>The first write copies the entries of the shared table
+ * into the view, which from then on behaves as a plain table
+ * of its own; the shared table is never modified. Lookups,
+ * <code>pairs</code>, <code>next</code> and the length
+ * operator see the shared entries until then. Nested tables
+ * are handed out as views as well, created when first read;
+ * the metatable of the shared table is kept as it is.</p>
+ */
+public class LuaCopyOnWriteTable extends LuaTable {
+    
+    /**
+     * Returns the view of the given value within a set of
+     * views, creating it if the value is a table not yet
+     * viewed. Other values are returned as they are.
+     * 
+     * @param value the value to view
+     * @param views the views of one environment, by the
+     *        tables they view
+     */
+    public static LuaValue view(LuaValue value, Map<LuaValue, LuaValue> views) {
+        if(!value.istable() || value instanceof LuaCopyOnWriteTable) {
+            return value;
+        }
+        
+        LuaValue view = views.get(value);
+        if(view == null) {
+            view = new LuaCopyOnWriteTable((LuaTable) value, views);
+            views.put(value, view);
+        }
+        
+        return view;
+    }
+    
+    /**
+     * Returns a new, empty set of views.
+     */
+    public static Map<LuaValue, LuaValue> newViews() {
+        return new IdentityHashMap<>();
+    }
+    
+    private LuaTable shared; // null once copied
+    private Map<LuaValue, LuaValue> views;
+    
+    private LuaCopyOnWriteTable(LuaTable shared, Map<LuaValue, LuaValue> views) {
+        this.shared = shared;
+        this.views = views;
+        if(shared.getmetatable() != null) {
+            this.setmetatable(shared.getmetatable());
+        }
+    }
+    
+    /**
+     * Returns whether this view has been written to, and
+     * therefore holds a copy of the shared table.
+     */
+    public boolean isCopied() {
+        return shared == null;
+    }
+    
+    @Override
+    public LuaValue rawget(int key) {
+        return shared == null ? super.rawget(key) : view(shared.rawget(key), views);
+    }
+    
+    @Override
+    public LuaValue rawget(LuaValue key) {
+        return shared == null ? super.rawget(key) : view(shared.rawget(key), views);
+    }
+    
+    @Override
+    public Varargs next(LuaValue key) {
+        if(shared == null) {
+            return super.next(key);
+        }
+        
+        Varargs entry = shared.next(key);
+        if(entry.arg1().isnil()) {
+            return entry;
+        }
+        
+        return LuaValue.varargsOf(entry.arg1(), view(entry.arg(2), views));
+    }
+    
+    @Override
+    public int rawlen() {
+        return shared == null ? super.rawlen() : shared.rawlen();
+    }
+    
+    @Override
+    public void rawset(int key, LuaValue value) {
+        if(this.copyFor(LuaValue.valueOf(key), value)) {
+            super.rawset(key, value);
+        }
+    }
+    
+    @Override
+    public void rawset(LuaValue key, LuaValue value) {
+        if(this.copyFor(key, value)) {
+            super.rawset(key, value);
+        }
+    }
+    
+    @Override
+    public void hashset(LuaValue key, LuaValue value) {
+        if(this.copyFor(key, value)) {
+            super.hashset(key, value);
+        }
+    }
+    
+    @Override
+    public void insert(int pos, LuaValue value) {
+        this.copy();
+        super.insert(pos, value);
+    }
+    
+    @Override
+    public LuaValue remove(int pos) {
+        this.copy();
+        return super.remove(pos);
+    }
+    
+    @Override
+    public void sort(LuaValue comparator) {
+        this.copy();
+        super.sort(comparator);
+    }
+    
+    // returns false if the write changes nothing and needs no copy, such as clearing a missing key
+    private boolean copyFor(LuaValue key, LuaValue value) {
+        if(shared != null && value.isnil() && shared.rawget(key).isnil()) {
+            return false;
+        }
+        
+        this.copy();
+        return true;
+    }
+    
+    private void copy() {
+        if(shared == null) {
+            return;
+        }
+        
+        LuaTable source = shared;
+        this.shared = null;
+        this.presize(source.rawlen(), source.keyCount());
+        LuaValue key = LuaValue.NIL;
+        while(true) {
+            Varargs entry = source.next(key);
+            if((key = entry.arg1()).isnil()) {
+                break;
+            }
+            
+            super.rawset(key, view(entry.arg(2), views));
+        }
+    }
+}
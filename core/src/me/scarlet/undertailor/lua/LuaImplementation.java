@@ -110,6 +110,15 @@ public interface LuaImplementation {
      */
     void setObjectValue(LuaObjectValue<?> obj);
     
+    /**
+     * Returns the name of the script backing this
+     * {@link LuaImplementation}, used to attribute its calls
+     * when profiling.
+     */
+    default String getScriptName() {
+        return this.getClass().getSimpleName();
+    }
+    
     /**
      * Changes a function within this implementation.
      * 
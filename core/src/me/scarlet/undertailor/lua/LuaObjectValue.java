@@ -24,12 +24,13 @@
 
 package me.scarlet.undertailor.lua;
 
+import com.google.common.collect.MapMaker;
 import org.luaj.vm2.LuaError;
 import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 
-import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Generic container for Java objects to be passable as Lua objects.
@@ -44,7 +45,30 @@ import java.util.WeakHashMap;
  */
 public class LuaObjectValue<T> extends LuaTable {
     
-    private static Map<Object, LuaObjectValue<?>> objects = new WeakHashMap<>();
+    // only holds foreign types; LuaWrappables hold their own wrapper
+    private static ConcurrentMap<Object, LuaObjectValue<?>> objects = new MapMaker().weakKeys().makeMap(); // weak keys compare by identity
+    private static AtomicLong created = new AtomicLong();
+    
+    /**
+     * Returns the amount of {@link LuaObjectValue}s made
+     * through {@link #of(Object, String, LuaValue)} since
+     * startup.
+     * 
+     * <p>Once the game has settled this should stop rising;
+     * wrappers are reused for as long as their objects
+     * live.</p>
+     */
+    public static long getCreatedCount() {
+        return created.get();
+    }
+    
+    /**
+     * Returns the amount of wrappers currently held by the
+     * cache for objects that aren't {@link LuaWrappable}.
+     */
+    public static int getCachedCount() {
+        return objects.size();
+    }
     
     /**
      * Instantiates a new {@link LuaObjectValue} containing the given object,
@@ -79,11 +103,32 @@ public class LuaObjectValue<T> extends LuaTable {
      */
     @SuppressWarnings("unchecked")
     public static <T> LuaObjectValue<T> of(T object, String typename, LuaValue metatable) {
-        if(!objects.containsKey(object)) {
-            objects.put(object, new LuaObjectValue<>(object, typename, metatable));
+        if(object == null) { // can't be keyed; nothing to reuse it for anyway
+            created.incrementAndGet();
+            return new LuaObjectValue<>(object, typename, metatable);
+        }
+        
+        if(object instanceof LuaWrappable) {
+            LuaWrappable wrappable = (LuaWrappable) object;
+            if(wrappable.getLuaWrapper() == null) {
+                created.incrementAndGet();
+                wrappable.setLuaWrapper(new LuaObjectValue<>(object, typename, metatable));
+            }
+            
+            return (LuaObjectValue<T>) wrappable.getLuaWrapper();
         }
         
-        return (LuaObjectValue<T>) objects.get(object);
+        LuaObjectValue<?> value = objects.get(object);
+        if(value == null) {
+            LuaObjectValue<?> generated = new LuaObjectValue<>(object, typename, metatable);
+            value = objects.putIfAbsent(object, generated);
+            if(value == null) {
+                created.incrementAndGet();
+                value = generated;
+            }
+        }
+        
+        return (LuaObjectValue<T>) value;
     }
     
     /**
@@ -99,7 +144,11 @@ public class LuaObjectValue<T> extends LuaTable {
      *            {@link LuaObjectValue}
      */
     public static void destroyObjectValue(Object object) {
-        objects.remove(object);
+        if(object instanceof LuaWrappable) {
+            ((LuaWrappable) object).setLuaWrapper(null);
+        } else if(object != null) {
+            objects.remove(object);
+        }
     }
     
     private T object;
@@ -136,11 +185,11 @@ public class LuaObjectValue<T> extends LuaTable {
      */
     @Override
     public void rawset(LuaValue key, LuaValue value) {
-        if(key.isstring() && !value.isnil() && this.object instanceof LuaImplementation) {
+        if(key.isstring() && this.object instanceof LuaImplementation) {
             LuaImplementation impl = (LuaImplementation) object;
             for(String func : impl.getImplementable().getFunctions()) {
                 if(key.tojstring().equals(func)) {
-                    if(value.isfunction()) {
+                    if(value.isnil() || value.isfunction()) { // removals are reported too, so bound callbacks get dropped
                         impl.getImplementable().onFunctionChange(impl, key.tojstring(), value);
                         break;
                     } else { // can't be nil here so it has to be anything but a func
@@ -0,0 +1,201 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.lua;
+
+import me.scarlet.undertailor.Undertailor;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Attributes time spent within script callbacks to the
+ * script and function they were made to.
+ * 
+ * <p>Callers wrap each callback between {@link #enter(String, String)}
+ * and {@link #exit()}; both return immediately while the
+ * profiler isn't running. Nested callbacks (a script
+ * triggering another object's callback) are tracked as a
+ * stack, so results can be exported in the collapsed stack
+ * format read by flame graph tools.</p>
+ */
+public class LuaProfiler {
+    
+    public static final String PROFILER_TAG = "luaprof";
+    private static final int MAX_DEPTH = 64;
+    
+    private boolean running;
+    private long startTime;
+    private long elapsed;
+    
+    private int depth;
+    private String[] stackPath;
+    private String[] stackKey;
+    private long[] stackStart;
+    private long[] stackChild;
+    
+    private Map<String, long[]> functions; // script:function -> {calls, total, self}
+    private Map<String, long[]> stacks;    // collapsed path -> {self}
+    
+    public LuaProfiler() {
+        this.running = false;
+        this.depth = 0;
+        this.stackPath = new String[MAX_DEPTH];
+        this.stackKey = new String[MAX_DEPTH];
+        this.stackStart = new long[MAX_DEPTH];
+        this.stackChild = new long[MAX_DEPTH];
+        this.functions = new HashMap<>();
+        this.stacks = new HashMap<>();
+    }
+    
+    public boolean isRunning() {
+        return running;
+    }
+    
+    /**
+     * Starts profiling, discarding the results of any
+     * previous run.
+     */
+    public void start() {
+        this.functions.clear();
+        this.stacks.clear();
+        this.depth = 0;
+        this.elapsed = 0L;
+        this.startTime = System.nanoTime();
+        this.running = true;
+    }
+    
+    public void stop() {
+        if(running) {
+            this.elapsed = System.nanoTime() - startTime;
+            this.running = false;
+            this.depth = 0;
+        }
+    }
+    
+    /**
+     * Marks the start of a call to the given function of the
+     * given script.
+     */
+    public void enter(String script, String function) {
+        if(!running) {
+            return;
+        }
+        
+        if(depth >= MAX_DEPTH) {
+            depth++; // still balanced by exit, but not recorded
+            return;
+        }
+        
+        String key = script + ":" + function;
+        stackKey[depth] = key;
+        stackPath[depth] = depth == 0 ? key : stackPath[depth - 1] + ";" + key;
+        stackChild[depth] = 0L;
+        stackStart[depth] = System.nanoTime();
+        depth++;
+    }
+    
+    /**
+     * Marks the end of the call last given to
+     * {@link #enter(String, String)}.
+     */
+    public void exit() {
+        if(!running || depth <= 0) {
+            return;
+        }
+        
+        depth--;
+        if(depth >= MAX_DEPTH) {
+            return;
+        }
+        
+        long total = System.nanoTime() - stackStart[depth];
+        long self = total - stackChild[depth];
+        if(depth > 0 && depth - 1 < MAX_DEPTH) {
+            stackChild[depth - 1] += total;
+        }
+        
+        long[] stats = functions.get(stackKey[depth]);
+        if(stats == null) {
+            functions.put(stackKey[depth], stats = new long[3]);
+        }
+        
+        stats[0]++;
+        stats[1] += total;
+        stats[2] += self;
+        
+        long[] stack = stacks.get(stackPath[depth]);
+        if(stack == null) {
+            stacks.put(stackPath[depth], stack = new long[1]);
+        }
+        
+        stack[0] += self;
+    }
+    
+    /**
+     * Logs the functions with the most self time recorded
+     * by the current or last run.
+     * 
+     * @param count the maximum amount of functions to list
+     */
+    public void report(int count) {
+        long duration = running ? System.nanoTime() - startTime : elapsed;
+        List<Entry<String, long[]>> entries = new ArrayList<>(functions.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue()[2], a.getValue()[2]));
+        
+        Undertailor.instance.log(PROFILER_TAG, String.format("lua time over %.2fs (calls / total / self):", duration / 1000000000F));
+        for(int i = 0; i < Math.min(count, entries.size()); i++) {
+            long[] stats = entries.get(i).getValue();
+            Undertailor.instance.log(PROFILER_TAG, String.format("  %s: %d / %.2fms / %.2fms", entries.get(i).getKey(),
+                    stats[0], stats[1] / 1000000F, stats[2] / 1000000F));
+        }
+    }
+    
+    /**
+     * Writes the recorded stacks to the given file in the
+     * collapsed stack format, one stack per line followed by
+     * its self time in microseconds.
+     */
+    public void export(File file) throws IOException {
+        if(file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        
+        try(PrintWriter writer = new PrintWriter(new FileWriter(file))) {
+            for(Entry<String, long[]> entry : stacks.entrySet()) {
+                long micros = entry.getValue()[0] / 1000L;
+                if(micros > 0) {
+                    writer.println(entry.getKey().replace(' ', '_') + " " + micros);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.lua;
+
+/**
+ * An engine object holding its own Lua wrapper.
+ * 
+ * <p>{@link LuaObjectValue#of(Object, String, org.luaj.vm2.LuaValue)} stores the wrapper
+ * generated for a LuaWrappable upon the object itself, instead of within the
+ * shared cache used for other types of objects.</p>
+ */
+public interface LuaWrappable {
+    
+    /**
+     * Returns the {@link LuaObjectValue} wrapping this object, or null if one
+     * has yet to be made.
+     */
+    LuaObjectValue<?> getLuaWrapper();
+    
+    /**
+     * Sets the {@link LuaObjectValue} wrapping this object.
+     * 
+     * <p>This method solely exists for {@link LuaObjectValue} to store the
+     * wrapper it generated, and should not be called otherwise.</p>
+     * 
+     * @param wrapper the wrapper to store, or null to clear it
+     */
+    void setLuaWrapper(LuaObjectValue<?> wrapper);
+}
@@ -27,17 +27,22 @@ package me.scarlet.undertailor.lua.impl;
 import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.exception.LuaScriptException;
 import me.scarlet.undertailor.lua.Lua;
+import me.scarlet.undertailor.lua.LuaBudget;
+import me.scarlet.undertailor.lua.LuaBudget.BudgetExceededError;
 import me.scarlet.undertailor.lua.LuaImplementable;
 import me.scarlet.undertailor.lua.LuaImplementation;
 import me.scarlet.undertailor.lua.LuaObjectValue;
+import me.scarlet.undertailor.lua.LuaProfiler;
 import me.scarlet.undertailor.lua.impl.StyleImplementable.StyleImplementation;
 import me.scarlet.undertailor.lua.lib.meta.LuaStyleMeta;
+import me.scarlet.undertailor.manager.ScriptManager;
 import me.scarlet.undertailor.texts.Style;
 import me.scarlet.undertailor.texts.TextComponent.DisplayMeta;
 import me.scarlet.undertailor.util.LuaUtil;
 import org.luaj.vm2.Globals;
 import org.luaj.vm2.LuaError;
 import org.luaj.vm2.LuaFunction;
+import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.Varargs;
 
@@ -51,9 +56,22 @@ public class StyleImplementable implements LuaImplementable<File, StyleImplement
     public static final String IMPLFUNCTION_CREATE = "create"; // create(self)
     public static final String IMPLFUNCTION_ONNEXTTEXTRENDER = "onNextTextRender"; // onNextTextRender(self, delta)
     public static final String IMPLFUNCTION_APPLYCHARACTER = "applyCharacter"; // applyCharacter(self, charIndex, textLength)
+    public static final String IMPLFUNCTION_APPLYTEXT = "applyText"; // applyText(self, textLength, offsets)
     
-    public static final String[] REQUIRED_FUNCTIONS = new String[] {IMPLFUNCTION_CREATE, IMPLFUNCTION_APPLYCHARACTER};
-    public static final String[] FUNCTIONS = new String[] {IMPLFUNCTION_CREATE, IMPLFUNCTION_APPLYCHARACTER, IMPLFUNCTION_ONNEXTTEXTRENDER};
+    public static final String[] REQUIRED_FUNCTIONS = new String[] {IMPLFUNCTION_CREATE};
+    public static final String[] FUNCTIONS = new String[] {IMPLFUNCTION_CREATE, IMPLFUNCTION_APPLYCHARACTER, IMPLFUNCTION_APPLYTEXT, IMPLFUNCTION_ONNEXTTEXTRENDER};
+    
+    /**
+     * Values per character within the table handed to
+     * <code>applyText</code>; the <code>i</code>th non-space
+     * character (0-based, so <code>i</code> runs up to
+     * <code>textLength - 1</code>) owns indices
+     * <code>i * 5 + 1</code> through <code>i * 5 + 5</code>, being
+     * offX, offY, scaleX, scaleY and alpha. Missing values are
+     * left at their defaults; the table is cleared before each
+     * call.
+     */
+    public static final int APPLYTEXT_STRIDE = 5;
     
     public static class StyleImplementation implements LuaImplementation, Style {
         
@@ -65,6 +83,7 @@ public class StyleImplementable implements LuaImplementable<File, StyleImplement
         // generic impl of LuaImplementation; screw readability they're one-liners
         @Override public LuaImplementable<?, ?> getImplementable() { return impl; }
         @Override public void setImplementable(LuaImplementable<?, ?> impl) { this.impl = impl; }
+        @Override public String getScriptName() { return sourceFile.getName().split("\\.")[0]; }
         @Override public Map<String, LuaFunction> getFunctions() { if(this.functions != null) return new HashMap<>(functions); else return null; }
         @Override public void setFunctions(Map<String, LuaFunction> functions) { this.functions = functions; }
         
@@ -77,11 +96,62 @@ public class StyleImplementable implements LuaImplementable<File, StyleImplement
         }
         
         private File sourceFile;
+        private Globals globals;
+        
+        // budget escalation state
+        private LuaBudget.Record budgetRecord = new LuaBudget.Record(() -> "style " + this.getScriptName());
+        
+        // vectorized hook state, refreshed once per text render
+        private boolean textDirty = true;
+        private int textLength = -1;
+        private int lastCharIndex = -1;
+        private int ordinal;
+        private LuaValue textHook;
+        private LuaTable offsets;
+        private DisplayMeta textMeta;
         
         @SuppressWarnings("unchecked")
         @Override
         public DisplayMeta applyCharacter(int charIndex, int textLength) {
-            LuaValue returned = (LuaValue) LuaUtil.invokeNonNull(obj.get(), IMPLFUNCTION_APPLYCHARACTER, obj.get(), LuaValue.valueOf(charIndex), LuaValue.valueOf(textLength));
+            if(textDirty || this.textLength != textLength) {
+                this.refreshOffsets(textLength);
+            }
+            
+            if(budgetRecord.isDisabled()) {
+                return null;
+            }
+            
+            if(!textHook.isnil()) {
+                if(charIndex <= lastCharIndex) { // text started over without a render notice
+                    this.ordinal = 0;
+                }
+                
+                // charIndex counts spaces, the offsets table doesn't
+                int base = ordinal * APPLYTEXT_STRIDE;
+                this.lastCharIndex = charIndex;
+                this.ordinal++;
+                textMeta.reset();
+                textMeta.offX = (float) offsets.rawget(base + 1).optdouble(0);
+                textMeta.offY = (float) offsets.rawget(base + 2).optdouble(0);
+                textMeta.scaleX = (float) offsets.rawget(base + 3).optdouble(1);
+                textMeta.scaleY = (float) offsets.rawget(base + 4).optdouble(1);
+                textMeta.alpha = (float) offsets.rawget(base + 5).optdouble(1);
+                return textMeta;
+            }
+            
+            LuaValue returned = null;
+            LuaBudget budget = Undertailor.getScriptManager().getBudget();
+            boolean budgeted = budget.begin(globals, IMPLFUNCTION_APPLYCHARACTER, budgetRecord);
+            try {
+                returned = (LuaValue) LuaUtil.invokeNonNull(obj.get(), IMPLFUNCTION_APPLYCHARACTER, obj.get(), LuaValue.valueOf(charIndex), LuaValue.valueOf(textLength));
+            } catch(BudgetExceededError ignored) {
+                // character is left as is
+            } finally {
+                if(budgeted) {
+                    budget.end(this.getScriptName());
+                }
+            }
+            
             if(returned != null) {
                 return ((LuaObjectValue<DisplayMeta>) LuaUtil.checkType(returned, Lua.TYPENAME_DISPLAYMETA)).getObject();
             } else {
@@ -89,9 +159,60 @@ public class StyleImplementable implements LuaImplementable<File, StyleImplement
             }
         }
         
+        private void refreshOffsets(int textLength) {
+            LuaObjectValue<?> self = obj.get();
+            int cleared = Math.max(this.textLength, 0) * APPLYTEXT_STRIDE;
+            this.textHook = self.rawget(IMPLFUNCTION_APPLYTEXT);
+            this.textLength = textLength;
+            this.textDirty = false;
+            this.lastCharIndex = -1;
+            this.ordinal = 0;
+            if(!textHook.isnil() && !budgetRecord.isDisabled()) {
+                if(offsets == null) {
+                    this.offsets = new LuaTable();
+                    this.textMeta = new DisplayMeta();
+                } else {
+                    for(int i = 1; i <= cleared; i++) { // only these are ever read back
+                        offsets.rawset(i, LuaValue.NIL);
+                    }
+                }
+                
+                ScriptManager scriptManager = Undertailor.getScriptManager();
+                LuaProfiler profiler = scriptManager.getProfiler();
+                LuaBudget budget = scriptManager.getBudget();
+                boolean budgeted = budget.begin(globals, IMPLFUNCTION_APPLYTEXT, budgetRecord);
+                profiler.enter(this.getScriptName(), IMPLFUNCTION_APPLYTEXT);
+                try {
+                    textHook.call(self, LuaValue.valueOf(textLength), offsets);
+                } catch(BudgetExceededError ignored) {
+                    // whatever offsets were set before the abort still apply
+                } finally {
+                    profiler.exit();
+                    if(budgeted) {
+                        budget.end(this.getScriptName());
+                    }
+                }
+            }
+        }
+        
         @Override
         public void onNextTextRender(float delta) {
-            LuaUtil.invokeNonNull(obj.get(), IMPLFUNCTION_ONNEXTTEXTRENDER, obj.get(), LuaValue.valueOf(delta));
+            this.textDirty = true;
+            if(budgetRecord.isDisabled()) {
+                return;
+            }
+            
+            LuaBudget budget = Undertailor.getScriptManager().getBudget();
+            boolean budgeted = budget.begin(globals, IMPLFUNCTION_ONNEXTTEXTRENDER, budgetRecord);
+            try {
+                LuaUtil.invokeNonNull(obj.get(), IMPLFUNCTION_ONNEXTTEXTRENDER, obj.get(), LuaValue.valueOf(delta));
+            } catch(BudgetExceededError ignored) {
+                // callback is skipped for this frame
+            } finally {
+                if(budgeted) {
+                    budget.end(this.getScriptName());
+                }
+            }
         }
 
         @Override
@@ -108,10 +229,12 @@ public class StyleImplementable implements LuaImplementable<File, StyleImplement
     }
 
     private Map<String, File> loadedFiles;
+    private Map<String, Globals> loadedGlobals;
     private Map<String, Map<String, LuaFunction>> loadedMapping;
     
     public StyleImplementable() {
         this.loadedFiles = new HashMap<>();
+        this.loadedGlobals = new HashMap<>();
         this.loadedMapping = new HashMap<>();
     }
     
@@ -129,8 +252,14 @@ public class StyleImplementable implements LuaImplementable<File, StyleImplement
     public void loadFunctions(String scriptId, File loaded, Globals globals, boolean replace) throws LuaScriptException {
         if(!this.loadedMapping.containsKey(scriptId) || replace) {
             try {
-                loadedMapping.put(scriptId, LuaImplementable.loadFile(this, loaded, globals));
+                Map<String, LuaFunction> functions = LuaImplementable.loadFile(this, loaded, globals);
+                if(!functions.containsKey(IMPLFUNCTION_APPLYCHARACTER) && !functions.containsKey(IMPLFUNCTION_APPLYTEXT)) {
+                    throw new LuaScriptException("script implementation is missing required function \"" + IMPLFUNCTION_APPLYCHARACTER + "\" or \"" + IMPLFUNCTION_APPLYTEXT + "\"");
+                }
+                
+                loadedMapping.put(scriptId, functions);
                 loadedFiles.put(scriptId, loaded);
+                loadedGlobals.put(scriptId, globals);
             } catch(LuaScriptException | LuaError e) {
                 throw new LuaError("\n\t" + e.getMessage());
             } catch(Exception e) {
@@ -150,6 +279,7 @@ public class StyleImplementable implements LuaImplementable<File, StyleImplement
             impl.setObjectValue(LuaStyleMeta.create(impl));
 
             impl.sourceFile = loadedFiles.get(scriptId);
+            impl.globals = loadedGlobals.get(scriptId);
             impl.getFunctions().get(IMPLFUNCTION_CREATE).call(impl.getObjectValue());
             return impl;
         }
@@ -24,15 +24,20 @@
 
 package me.scarlet.undertailor.lua.impl;
 
+import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.environment.ui.UIComponent;
 import me.scarlet.undertailor.environment.ui.event.UIEvent;
 import me.scarlet.undertailor.exception.LuaScriptException;
+import me.scarlet.undertailor.lua.LuaBudget;
+import me.scarlet.undertailor.lua.LuaBudget.BudgetExceededError;
 import me.scarlet.undertailor.lua.LuaImplementable;
 import me.scarlet.undertailor.lua.LuaImplementation;
 import me.scarlet.undertailor.lua.LuaObjectValue;
+import me.scarlet.undertailor.lua.LuaProfiler;
 import me.scarlet.undertailor.lua.impl.UIComponentImplementable.UIComponentImplementation;
 import me.scarlet.undertailor.lua.lib.meta.LuaInputDataMeta;
 import me.scarlet.undertailor.lua.lib.meta.LuaUIComponentMeta;
+import me.scarlet.undertailor.manager.ScriptManager;
 import me.scarlet.undertailor.util.InputRetriever.InputData;
 import me.scarlet.undertailor.util.LuaUtil;
 import org.luaj.vm2.Globals;
@@ -63,20 +68,43 @@ public class UIComponentImplementable implements LuaImplementable<File, UICompon
         private Map<String, LuaFunction> functions;
         private WeakReference<LuaObjectValue<?>> obj;
         private String objName;
+        private Globals globals;
+        
+        // bound per-frame callbacks; kept in sync through onFunctionChange
+        private LuaValue self;
+        private LuaFunction processFunc, renderFunc;
+        
+        // budget escalation state
+        private LuaBudget.Record budgetRecord = new LuaBudget.Record(() -> "ui component " + objName);
         
         // generic impl of LuaImplementation; screw readability they're one-liners
         @Override public LuaImplementable<?, ?> getImplementable() { return impl; }
         @Override public void setImplementable(LuaImplementable<?, ?> impl) { this.impl = impl; }
+        @Override public String getScriptName() { return objName; }
         @Override public Map<String, LuaFunction> getFunctions() { if(this.functions != null) return new HashMap<>(functions); else return null; }
-        @Override public void setFunctions(Map<String, LuaFunction> functions) { this.functions = functions; }
+        @Override public void setFunctions(Map<String, LuaFunction> functions) {
+            this.functions = functions;
+            this.bind(IMPLFUNCTION_PROCESS, functions == null ? null : functions.get(IMPLFUNCTION_PROCESS));
+            this.bind(IMPLFUNCTION_RENDER, functions == null ? null : functions.get(IMPLFUNCTION_RENDER));
+        }
         
         @Override public LuaObjectValue<?> getObjectValue() { return obj.get(); }
         @Override public void setObjectValue(LuaObjectValue<?> obj) {
             this.obj = new WeakReference<>(obj);
+            this.self = obj;
             if(this.functions != null) {
                 functions.keySet().forEach(key -> obj.set(key, functions.get(key)));
             }
         }
+        
+        void bind(String funcName, LuaValue value) {
+            LuaFunction func = value == null || !value.isfunction() ? null : value.checkfunction();
+            if(funcName.equals(IMPLFUNCTION_PROCESS)) {
+                this.processFunc = func;
+            } else if(funcName.equals(IMPLFUNCTION_RENDER)) {
+                this.renderFunc = func;
+            }
+        }
 
         @Override
         public String getComponentTypeName() {
@@ -88,14 +116,56 @@ public class UIComponentImplementable implements LuaImplementable<File, UICompon
             LuaUtil.invokeNonNull(obj.get(), IMPLFUNCTION_ONDESTROY, obj.get(), LuaValue.valueOf(object));
         }
         
+        /**
+         * Returns whether this component's per-frame callbacks
+         * have been disabled for repeatedly going over their
+         * budget.
+         * 
+         * @see LuaBudget
+         */
+        public boolean isScriptDisabled() {
+            return budgetRecord.isDisabled();
+        }
+        
+        public void setScriptDisabled(boolean flag) {
+            budgetRecord.setDisabled(flag);
+        }
+        
+        // calls a bound callback under the profiler and the script budget
+        private void invoke(LuaFunction func, String funcName, LuaValue arg1, LuaValue arg2) {
+            if(budgetRecord.isDisabled()) {
+                return;
+            }
+            
+            ScriptManager scriptManager = Undertailor.getScriptManager();
+            LuaProfiler profiler = scriptManager.getProfiler();
+            LuaBudget budget = scriptManager.getBudget();
+            boolean budgeted = budget.begin(globals, funcName, budgetRecord);
+            profiler.enter(objName, funcName);
+            try {
+                func.call(self, arg1, arg2);
+            } catch(BudgetExceededError ignored) {
+                // callback is skipped for this frame
+            } finally {
+                profiler.exit();
+                if(budgeted) {
+                    budget.end(objName);
+                }
+            }
+        }
+        
         @Override
         public void process(float delta, InputData input) {
-            LuaUtil.invokeNonNull(obj.get(), IMPLFUNCTION_PROCESS, obj.get(), LuaValue.valueOf(delta), LuaInputDataMeta.create(input));
+            if(processFunc != null) {
+                this.invoke(processFunc, IMPLFUNCTION_PROCESS, LuaUtil.deltaValue(delta), LuaInputDataMeta.create(input));
+            }
         }
         
         @Override
         public void render(float parentAlpha) {
-            LuaUtil.invokeNonNull(obj.get(), IMPLFUNCTION_RENDER, obj.get(), LuaValue.valueOf(parentAlpha));
+            if(renderFunc != null) {
+                this.invoke(renderFunc, IMPLFUNCTION_RENDER, LuaValue.valueOf(parentAlpha), LuaValue.NIL);
+            }
         }
         
         @Override
@@ -105,13 +175,24 @@ public class UIComponentImplementable implements LuaImplementable<File, UICompon
     }
     
     private Map<String, File> loadedFiles;
+    private Map<String, Globals> loadedGlobals;
     private Map<String, Map<String, LuaFunction>> loadedMapping;
     
     public UIComponentImplementable() {
         this.loadedFiles = new HashMap<>();
+        this.loadedGlobals = new HashMap<>();
         this.loadedMapping = new HashMap<>();
     }
 
+    @Override
+    public boolean onFunctionChange(LuaImplementation impl, String funcName, LuaValue newValue) {
+        if(impl instanceof UIComponentImplementation) {
+            ((UIComponentImplementation) impl).bind(funcName, newValue);
+        }
+        
+        return true;
+    }
+    
     @Override
     public String[] getRequiredFunctions() {
         return REQUIRED_FUNCTIONS;
@@ -128,6 +209,7 @@ public class UIComponentImplementable implements LuaImplementable<File, UICompon
             try {
                 loadedMapping.put(scriptId, LuaImplementable.loadFile(this, loaded, globals));
                 loadedFiles.put(scriptId, loaded);
+                loadedGlobals.put(scriptId, globals);
             } catch(LuaScriptException | LuaError e) {
                 throw new LuaError("\n\t" + e.getMessage());
             } catch(Exception e) {
@@ -148,6 +230,7 @@ public class UIComponentImplementable implements LuaImplementable<File, UICompon
             
             File loadData = loadedFiles.get(scriptId);
             impl.objName = loadData.getName().split("\\.")[0];
+            impl.globals = loadedGlobals.get(scriptId);
             impl.getFunctions().get(IMPLFUNCTION_CREATE).invoke(impl.getObjectValue(), args);
             return impl;
         }
@@ -24,19 +24,24 @@
 
 package me.scarlet.undertailor.lua.impl;
 
+import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.collision.Collider;
 import me.scarlet.undertailor.environment.overworld.WorldObject;
 import me.scarlet.undertailor.environment.overworld.WorldRoom;
 import me.scarlet.undertailor.environment.overworld.WorldRoom.Entrypoint;
 import me.scarlet.undertailor.exception.LuaScriptException;
+import me.scarlet.undertailor.lua.LuaBudget;
+import me.scarlet.undertailor.lua.LuaBudget.BudgetExceededError;
 import me.scarlet.undertailor.lua.LuaImplementable;
 import me.scarlet.undertailor.lua.LuaImplementation;
 import me.scarlet.undertailor.lua.LuaObjectValue;
+import me.scarlet.undertailor.lua.LuaProfiler;
 import me.scarlet.undertailor.lua.impl.WorldObjectImplementable.WorldObjectImplementation;
 import me.scarlet.undertailor.lua.lib.meta.LuaEntrypointMeta;
 import me.scarlet.undertailor.lua.lib.meta.LuaInputDataMeta;
 import me.scarlet.undertailor.lua.lib.meta.LuaWorldObjectMeta;
 import me.scarlet.undertailor.lua.lib.meta.LuaWorldRoomMeta;
+import me.scarlet.undertailor.manager.ScriptManager;
 import me.scarlet.undertailor.util.InputRetriever.InputData;
 import me.scarlet.undertailor.util.LuaUtil;
 import org.luaj.vm2.Globals;
@@ -59,11 +64,13 @@ public class WorldObjectImplementable implements LuaImplementable<File, WorldObj
     public static final String IMPLFUNCTION_ONRENDER = "onRender";     // onRender(self)
     public static final String IMPLFUNCTION_ONPERSIST = "onPersist";   // onPersist(self)
     public static final String IMPLFUNCTION_ONCOLLIDE = "onCollide";   // onCollide(self, object)
+    public static final String IMPLFUNCTION_ONCOLLISIONBEGIN = "onCollisionBegin"; // onCollisionBegin(self, object)
+    public static final String IMPLFUNCTION_ONCOLLISIONEND = "onCollisionEnd";     // onCollisionEnd(self, object)
     public static final String IMPLFUNCTION_ONINTERACT = "onInteract"; // onInteract(self, object)
     public static final String IMPLFUNCTION_ONREGISTER = "onRegister"; // onRegister(self, id, room)
     
     public static final String[] REQUIRED_FUNCTIONS = {IMPLFUNCTION_CREATE};
-    public static final String[] FUNCTIONS = {IMPLFUNCTION_CREATE, IMPLFUNCTION_PROCESS, IMPLFUNCTION_ONRENDER, IMPLFUNCTION_ONCOLLIDE, IMPLFUNCTION_ONINTERACT, IMPLFUNCTION_ONPERSIST, IMPLFUNCTION_ONPAUSE, IMPLFUNCTION_ONRESUME};
+    public static final String[] FUNCTIONS = {IMPLFUNCTION_CREATE, IMPLFUNCTION_PROCESS, IMPLFUNCTION_ONRENDER, IMPLFUNCTION_ONCOLLIDE, IMPLFUNCTION_ONCOLLISIONBEGIN, IMPLFUNCTION_ONCOLLISIONEND, IMPLFUNCTION_ONINTERACT, IMPLFUNCTION_ONPERSIST, IMPLFUNCTION_ONPAUSE, IMPLFUNCTION_ONRESUME};
     
     public static class WorldObjectImplementation extends WorldObject implements LuaImplementation {
         
@@ -72,41 +79,140 @@ public class WorldObjectImplementable implements LuaImplementable<File, WorldObj
         private Map<String, LuaFunction> functions;
         private WeakReference<LuaObjectValue<?>> obj;
         private String objName;
+        private Globals globals;
+        
+        // bound per-frame callbacks; kept in sync through onFunctionChange
+        private LuaValue self;
+        private LuaFunction processFunc, renderFunc, collideFunc, collisionBeginFunc, collisionEndFunc;
+        
+        // budget escalation state
+        private LuaBudget.Record budgetRecord = new LuaBudget.Record(() -> "object " + objName + " (id " + this.getId() + ")");
         
         // generic impl of LuaImplementation; screw readability they're one-liners
         @Override public LuaImplementable<?, ?> getImplementable() { return impl; }
         @Override public void setImplementable(LuaImplementable<?, ?> impl) { this.impl = impl; }
+        @Override public String getScriptName() { return objName; }
         @Override public Map<String, LuaFunction> getFunctions() { if(this.functions != null) return new HashMap<>(functions); else return null; }
-        @Override public void setFunctions(Map<String, LuaFunction> functions) { this.functions = functions; }
+        @Override public void setFunctions(Map<String, LuaFunction> functions) {
+            this.functions = functions;
+            for(String func : FUNCTIONS) {
+                this.bind(func, functions == null ? null : functions.get(func));
+            }
+        }
         
         @Override public LuaObjectValue<?> getObjectValue() { return obj.get(); }
         @Override public void setObjectValue(LuaObjectValue<?> obj) {
             this.obj = new WeakReference<>(obj);
+            this.self = obj;
             if(this.functions != null) {
                 functions.keySet().forEach(key -> obj.set(key, functions.get(key)));
             }
         }
+        
+        void bind(String funcName, LuaValue value) {
+            LuaFunction func = value == null || !value.isfunction() ? null : value.checkfunction();
+            switch(funcName) {
+                case IMPLFUNCTION_PROCESS:
+                    this.processFunc = func;
+                    break;
+                case IMPLFUNCTION_ONRENDER:
+                    this.renderFunc = func;
+                    break;
+                case IMPLFUNCTION_ONCOLLIDE:
+                    this.collideFunc = func;
+                    break;
+                case IMPLFUNCTION_ONCOLLISIONBEGIN:
+                    this.collisionBeginFunc = func;
+                    break;
+                case IMPLFUNCTION_ONCOLLISIONEND:
+                    this.collisionEndFunc = func;
+                    break;
+                default:
+                    break;
+            }
+        }
 
         @Override
         public String getObjectName() {
             return objName;
         }
         
+        /**
+         * Returns whether this object's per-frame callbacks
+         * have been disabled for repeatedly going over their
+         * budget.
+         * 
+         * @see LuaBudget
+         */
+        public boolean isScriptDisabled() {
+            return budgetRecord.isDisabled();
+        }
+        
+        public void setScriptDisabled(boolean flag) {
+            budgetRecord.setDisabled(flag);
+        }
+        
+        // calls a bound callback under the profiler and the script budget
+        private void invoke(LuaFunction func, String funcName, LuaValue arg1, LuaValue arg2) {
+            if(budgetRecord.isDisabled()) {
+                return;
+            }
+            
+            ScriptManager scriptManager = Undertailor.getScriptManager();
+            LuaProfiler profiler = scriptManager.getProfiler();
+            LuaBudget budget = scriptManager.getBudget();
+            boolean budgeted = budget.begin(globals, funcName, budgetRecord);
+            profiler.enter(objName, funcName);
+            try {
+                func.call(self, arg1, arg2);
+            } catch(BudgetExceededError ignored) {
+                // callback is skipped for this frame
+            } finally {
+                profiler.exit();
+                if(budgeted) {
+                    budget.end(objName);
+                }
+            }
+        }
+        
         @Override
         public void process(float delta, InputData input) {
             super.process(delta, input);
-            LuaUtil.invokeNonNull(obj.get(), IMPLFUNCTION_PROCESS, obj.get(), LuaValue.valueOf(delta), LuaInputDataMeta.create(input));
+            if(processFunc != null) {
+                this.invoke(processFunc, IMPLFUNCTION_PROCESS, LuaUtil.deltaValue(delta), LuaInputDataMeta.create(input));
+            }
         }
         
         @Override
         public void onRender() {
-            LuaUtil.invokeNonNull(obj.get(), IMPLFUNCTION_ONRENDER, obj.get());
+            if(renderFunc != null) {
+                this.invoke(renderFunc, IMPLFUNCTION_ONRENDER, LuaValue.NIL, LuaValue.NIL);
+            }
         }
 
         @Override
         public void onCollide(Collider collider) {
-            if(collider instanceof WorldObject) {
-                LuaUtil.invokeNonNull(obj.get(), IMPLFUNCTION_ONCOLLIDE, obj.get(), LuaWorldObjectMeta.create((WorldObject) collider));
+            if(collideFunc != null && collider instanceof WorldObject) {
+                this.invoke(collideFunc, IMPLFUNCTION_ONCOLLIDE, LuaWorldObjectMeta.create((WorldObject) collider), LuaValue.NIL);
+            }
+        }
+        
+        @Override
+        public boolean receivesPersistEvents() {
+            return collideFunc != null;
+        }
+        
+        @Override
+        public void onCollisionBegin(Collider collider) {
+            if(collisionBeginFunc != null && collider instanceof WorldObject) {
+                this.invoke(collisionBeginFunc, IMPLFUNCTION_ONCOLLISIONBEGIN, LuaWorldObjectMeta.create((WorldObject) collider), LuaValue.NIL);
+            }
+        }
+        
+        @Override
+        public void onCollisionEnd(Collider collider) {
+            if(collisionEndFunc != null && collider instanceof WorldObject) {
+                this.invoke(collisionEndFunc, IMPLFUNCTION_ONCOLLISIONEND, LuaWorldObjectMeta.create((WorldObject) collider), LuaValue.NIL);
             }
         }
         
@@ -132,10 +238,12 @@ public class WorldObjectImplementable implements LuaImplementable<File, WorldObj
     }
     
     private Map<String, File> loadedFiles;
+    private Map<String, Globals> loadedGlobals;
     private Map<String, Map<String, LuaFunction>> loadedMapping;
     
     public WorldObjectImplementable() {
         this.loadedFiles = new HashMap<>();
+        this.loadedGlobals = new HashMap<>();
         this.loadedMapping = new HashMap<>();
     }
     
@@ -149,12 +257,22 @@ public class WorldObjectImplementable implements LuaImplementable<File, WorldObj
         return FUNCTIONS;
     }
 
+    @Override
+    public boolean onFunctionChange(LuaImplementation impl, String funcName, LuaValue newValue) {
+        if(impl instanceof WorldObjectImplementation) {
+            ((WorldObjectImplementation) impl).bind(funcName, newValue);
+        }
+        
+        return true;
+    }
+    
     @Override
     public void loadFunctions(String scriptId, File loaded, Globals globals, boolean replace) throws LuaScriptException {
         if(!this.loadedMapping.containsKey(scriptId) || replace) {
             try {
                 loadedMapping.put(scriptId, LuaImplementable.loadFile(this, loaded, globals));
                 loadedFiles.put(scriptId, loaded);
+                loadedGlobals.put(scriptId, globals);
             } catch(LuaScriptException | LuaError e) {
                 throw new LuaError("\n\t" + e.getMessage());
             } catch(Exception e) {
@@ -174,6 +292,7 @@ public class WorldObjectImplementable implements LuaImplementable<File, WorldObj
             impl.setObjectValue(LuaWorldObjectMeta.create(impl));
             
             impl.objName = loadedFiles.get(scriptId).getName().split("\\.")[0];
+            impl.globals = loadedGlobals.get(scriptId);
             impl.getFunctions().get(IMPLFUNCTION_CREATE).call(impl.getObjectValue());
             return impl;
         }
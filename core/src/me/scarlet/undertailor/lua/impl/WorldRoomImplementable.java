@@ -67,6 +67,7 @@ public class WorldRoomImplementable implements LuaImplementable<File, WorldRoomI
         // generic impl of LuaImplementation; screw readability they're one-liners
         @Override public LuaImplementable<?, ?> getImplementable() { return impl; }
         @Override public void setImplementable(LuaImplementable<?, ?> impl) { this.impl = impl; }
+        @Override public String getScriptName() { return this.getRoomName(); }
         @Override public Map<String, LuaFunction> getFunctions() { if(this.functions != null) return new HashMap<>(functions); else return null; }
         @Override public void setFunctions(Map<String, LuaFunction> functions) { this.functions = functions; }
         
@@ -36,7 +36,7 @@ import org.luaj.vm2.Varargs;
 import org.luaj.vm2.lib.VarArgFunction;
 
 import java.io.File;
-import java.io.InputStream;
+import java.io.FileNotFoundException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -173,17 +173,14 @@ public class BaseLib extends LuaLibrary {
     
     public LuaTable loadFile(String path) throws LuaError {
         File file = new File(Undertailor.ASSETS_DIRECTORY, path);
-        InputStream input = globals.finder.findResource(file.getAbsolutePath());
-        if (input == null)
-            throw new LuaError("file at " + file.getAbsolutePath() + " was not found");
         try {
             Globals table = Undertailor.getScriptManager().generateGlobals();
-            globals.load(input, "@" + file.getName(), "bt", table).invoke();
+            Undertailor.getScriptManager().loadScript(file, table).invoke();
             table.set(PARENT_GLOBAL_KEY, this.globals);
             
             Map<String, LuaValue> replaceQueue = new HashMap<>();
             LuaUtil.iterateTable(table, args -> {
-                if(args.arg(1).isstring() && args.arg(2).tojstring().startsWith("function: @" + file.getName())) {
+                if(args.arg(1).isstring() && LuaUtil.isScriptFunction(args.arg(2))) {
                     replaceQueue.put(args.arg1().tojstring(), args.arg(2));
                 }
             });
@@ -202,10 +199,8 @@ public class BaseLib extends LuaLibrary {
             }
             
             return table;
-        } finally {
-            try {
-                input.close();
-            } catch ( Exception ignored) {}
+        } catch(FileNotFoundException e) {
+            throw new LuaError("file at " + file.getAbsolutePath() + " was not found");
         }
     }
 }
@@ -34,6 +34,7 @@ import me.scarlet.undertailor.lua.LuaObjectValue;
 import me.scarlet.undertailor.lua.lib.game.AudioLib;
 import me.scarlet.undertailor.lua.lib.meta.LuaStyleMeta;
 import me.scarlet.undertailor.lua.lib.text.TextComponentLib;
+import me.scarlet.undertailor.manager.StyleManager;
 import me.scarlet.undertailor.texts.Font;
 import me.scarlet.undertailor.texts.Style;
 import me.scarlet.undertailor.texts.TextComponent;
@@ -55,8 +56,22 @@ public class TextLib extends LuaLibrary {
         return LuaObjectValue.of(text, Lua.TYPENAME_TEXT, LuaLibrary.asMetatable(Lua.LIB_TEXT));
     }
     
+    /**
+     * Resolves a style argument, accepting either the name of
+     * a style known to the {@link StyleManager} or a style
+     * object.
+     */
+    public static Style checkStyle(LuaValue value) {
+        if(value.type() == LuaValue.TSTRING) {
+            return Undertailor.getStyleManager().getStyle(value.tojstring());
+        }
+        
+        return LuaStyleMeta.check(value).getObject();
+    }
+    
     public static final LuaLibraryComponent[] COMPONENTS = {
             new newDisplayMeta(),
+            new newStyle(),
             new newText(),
             new drawText(),
             new addComponent(),
@@ -73,13 +88,14 @@ public class TextLib extends LuaLibrary {
     static class newDisplayMeta extends LibraryFunction {
         @Override
         public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 0, 5);
+            LuaUtil.checkArguments(args, 0, 6);
             
             float offX = (float) args.optdouble(1, 0F);
             float offY = (float) args.optdouble(2, 0F);
             float scaleX = (float) args.optdouble(3, 1F);
             float scaleY = (float) args.optdouble(4, 1F);
             Color color = args.arg(5).isnil() ? null : ColorsLib.check(args.arg(5)).getObject();
+            float alpha = (float) args.optdouble(6, 1F);
             
             if(scaleX < 0F) {
                 scaleX = 0F;
@@ -89,7 +105,25 @@ public class TextLib extends LuaLibrary {
                 scaleY = 0F;
             }
             
-            return LuaStyleMeta.createDisplayMeta(new DisplayMeta(offX, offY, scaleX, scaleY, color));
+            return LuaStyleMeta.createDisplayMeta(new DisplayMeta(offX, offY, scaleX, scaleY, color, alpha));
+        }
+    }
+    
+    static class newStyle extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, 2);
+            
+            Style style = Undertailor.getStyleManager().getStyle(args.checkjstring(1));
+            if(style == null) {
+                throw new LuaError("no style found under the name \"" + args.checkjstring(1) + "\"");
+            }
+            
+            if(!args.isnil(2)) {
+                LuaStyleMeta.applyParameters(style, args.checktable(2));
+            }
+            
+            return LuaStyleMeta.create(style);
         }
     }
     
@@ -99,7 +133,7 @@ public class TextLib extends LuaLibrary {
             LuaUtil.checkArguments(args, 1, 7);
             
             Font font = Undertailor.getFontManager().getFont(args.checkjstring(1));
-            Style style = args.isnil(2) ? null : Undertailor.getStyleManager().getStyle(args.arg(2).checkjstring());
+            Style style = args.isnil(2) ? null : TextLib.checkStyle(args.arg(2));
             Color color = args.isnil(3) ? null : ColorsLib.check(args.arg(3)).getObject();
             SoundWrapper sound = args.arg(4).isnil() ? null : (SoundWrapper) AudioLib.checkSound(args.arg(4)).getObject();
             int speed = args.optint(5, TextComponent.DEFAULT_SPEED);
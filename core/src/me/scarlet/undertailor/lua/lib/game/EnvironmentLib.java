@@ -1,6 +1,7 @@
 package me.scarlet.undertailor.lua.lib.game;
 
 import me.scarlet.undertailor.Undertailor;
+import me.scarlet.undertailor.collision.CollisionLayers;
 import me.scarlet.undertailor.environment.Environment;
 import me.scarlet.undertailor.environment.ui.UIObject;
 import me.scarlet.undertailor.lua.Lua;
@@ -51,6 +52,9 @@ public class EnvironmentLib extends LuaLibrary {
             new newWorldRoom(),
             new newWorldMap(),
             
+            new registerCollisionLayer(),
+            new hasCollisionLayer(),
+            
             new getOverworldController(),
             new getUIController(),
             new getScheduler(),
@@ -211,6 +215,34 @@ public class EnvironmentLib extends LuaLibrary {
         }
     }
     
+    // =-- Collision layer methods.
+    
+    // registerCollisionLayer(name)
+    static class registerCollisionLayer extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, 1);
+            
+            try {
+                CollisionLayers.registerLayer(args.checkjstring(1));
+            } catch(IllegalArgumentException e) {
+                throw new LuaError(e.getMessage());
+            }
+            
+            return LuaValue.NIL;
+        }
+    }
+    
+    // hasCollisionLayer(name)
+    static class hasCollisionLayer extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, 1);
+            
+            return LuaValue.valueOf(CollisionLayers.hasLayer(args.checkjstring(1)));
+        }
+    }
+    
     // --- Environment object methods.
     
     static class getOverworldController extends LibraryFunction {
@@ -50,7 +50,9 @@ public class GraphicsLib extends LuaLibrary {
             new drawCircle(),
             new drawFilledCircle(),
             new drawTriangle(),
-            new drawFilledTriangle()
+            new drawFilledTriangle(),
+            new isDeferred(),
+            new setDeferred()
     };
     
     public GraphicsLib() {
@@ -116,6 +118,24 @@ public class GraphicsLib extends LuaLibrary {
         }
     }
     
+    static class isDeferred extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 0, 0);
+            return LuaValue.valueOf(Undertailor.getRenderer().isDeferred());
+        }
+    }
+    
+    static class setDeferred extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, 1);
+            
+            Undertailor.getRenderer().setDeferred(args.checkboolean(1));
+            return LuaValue.NIL;
+        }
+    }
+    
     static class drawArc extends LibraryFunction {
         @Override
         public Varargs execute(Varargs args) {
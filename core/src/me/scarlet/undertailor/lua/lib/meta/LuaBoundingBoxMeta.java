@@ -25,6 +25,7 @@
 package me.scarlet.undertailor.lua.lib.meta;
 
 import com.badlogic.gdx.math.Vector2;
+import me.scarlet.undertailor.collision.CollisionLayers;
 import me.scarlet.undertailor.collision.bbshapes.BoundingBox;
 import me.scarlet.undertailor.collision.bbshapes.BoundingCircle;
 import me.scarlet.undertailor.collision.bbshapes.BoundingRectangle;
@@ -33,6 +34,7 @@ import me.scarlet.undertailor.lua.LuaLibrary;
 import me.scarlet.undertailor.lua.LuaLibraryComponent;
 import me.scarlet.undertailor.lua.LuaObjectValue;
 import me.scarlet.undertailor.util.LuaUtil;
+import org.luaj.vm2.LuaError;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.Varargs;
 
@@ -50,6 +52,34 @@ public class LuaBoundingBoxMeta extends LuaLibrary {
         return LuaUtil.checkType(value, Lua.TYPENAME_BOUNDINGBOX_RECTANGLE, Lua.TYPENAME_BOUNDINGBOX_CIRCLE);
     }
     
+    /**
+     * Combines the collision layer names passed from the given
+     * argument index onwards into category or mask bits. Each
+     * layer must have been registered beforehand.
+     */
+    public static short checkLayers(Varargs args, int start) {
+        String[] names = new String[Math.max(0, args.narg() - start + 1)];
+        for(int i = 0; i < names.length; i++) {
+            names[i] = args.checkjstring(start + i);
+        }
+        
+        try {
+            return CollisionLayers.getBits(names);
+        } catch(IllegalArgumentException e) {
+            throw new LuaError(e.getMessage());
+        }
+    }
+    
+    public static Varargs asLayerNames(short bits) {
+        String[] names = CollisionLayers.getNames(bits);
+        LuaValue[] values = new LuaValue[names.length];
+        for(int i = 0; i < names.length; i++) {
+            values[i] = LuaValue.valueOf(names[i]);
+        }
+        
+        return LuaValue.varargsOf(values);
+    }
+    
     public static final LuaLibraryComponent[] COMPONENTS = new LibraryFunction[] {
             new canCollide(),
             new setCanCollide(),
@@ -58,7 +88,11 @@ public class LuaBoundingBoxMeta extends LuaLibrary {
             new getOffset(),
             new setOffset(),
             new isSensor(),
-            new setSensor()
+            new setSensor(),
+            new getCollisionCategory(),
+            new setCollisionCategory(),
+            new getCollisionMask(),
+            new setCollisionMask()
     };
     
     public LuaBoundingBoxMeta() {
@@ -159,4 +193,46 @@ public class LuaBoundingBoxMeta extends LuaLibrary {
             return LuaValue.NIL;
         }
     }
+    
+    static class getCollisionCategory extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, 1);
+            
+            BoundingBox box = check(args.arg1()).getObject();
+            return asLayerNames(box.getCategoryBits()); // nothing if inherited from the owner
+        }
+    }
+    
+    static class setCollisionCategory extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, -1);
+            
+            BoundingBox box = check(args.arg1()).getObject();
+            box.setCategoryBits(checkLayers(args, 2));
+            return LuaValue.NIL;
+        }
+    }
+    
+    static class getCollisionMask extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, 1);
+            
+            BoundingBox box = check(args.arg1()).getObject();
+            return asLayerNames(box.getMaskBits());
+        }
+    }
+    
+    static class setCollisionMask extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, -1);
+            
+            BoundingBox box = check(args.arg1()).getObject();
+            box.setMaskBits(checkLayers(args, 2));
+            return LuaValue.NIL;
+        }
+    }
 }
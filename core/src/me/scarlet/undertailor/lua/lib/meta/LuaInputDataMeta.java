@@ -53,22 +53,18 @@ public class LuaInputDataMeta extends LuaLibrary {
         super(null, COMPONENTS);
     }
     
-    static class getPressData extends LibraryFunction {
+    static class getPressData extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            InputData data = check(args.arg1()).getObject();
-            return LuaPressDataMeta.create(data.getPressData(args.checkint(2)));
+        public Varargs execute(LuaValue arg1, LuaValue arg2) {
+            InputData data = check(arg1).getObject();
+            return LuaPressDataMeta.create(data.getPressData(arg2.checkint()));
         }
     }
     
-    static class isConsumed extends LibraryFunction {
+    static class isConsumed extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            InputData data = check(args.arg1()).getObject();
+        public Varargs execute(LuaValue arg) {
+            InputData data = check(arg).getObject();
             return LuaValue.valueOf(data.isConsumed());
         }
     }
@@ -67,7 +67,9 @@ public class LuaOverworldControllerMeta extends LuaLibrary {
             new setEntryTransition(),
             new setExitTransition(),
             new isCameraFixing(),
-            new setCameraFixing()
+            new setCameraFixing(),
+            new isCulling(),
+            new setCulling()
     };
     
     public LuaOverworldControllerMeta() {
@@ -181,6 +183,32 @@ public class LuaOverworldControllerMeta extends LuaLibrary {
         }
     }
     
+    static class isCulling extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, 1);
+            
+            OverworldController controller = check(args.arg1()).getObject();
+            
+            return LuaValue.valueOf(controller.isCulling());
+        }
+    }
+    
+    static class setCulling extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 2, 3);
+            
+            OverworldController controller = check(args.arg1()).getObject();
+            boolean flag = args.checkboolean(2);
+            float margin = (float) args.optdouble(3, controller.getCullingMargin());
+            
+            controller.setCulling(flag);
+            controller.setCullingMargin(margin);
+            return LuaValue.NIL;
+        }
+    }
+    
     static class getCameraPosition extends LibraryFunction {
         @Override
         public Varargs execute(Varargs args) {
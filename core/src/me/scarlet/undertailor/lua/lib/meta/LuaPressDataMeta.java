@@ -56,44 +56,46 @@ public class LuaPressDataMeta extends LuaLibrary {
         super(null, COMPONENTS);
     }
     
-    static class justPressed extends LibraryFunction {
+    static class justPressed extends TwoArgLibraryFunction {
+        
+        justPressed() {
+            super(1);
+        }
+        
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 2);
-            
-            PressData data = check(args.arg1()).getObject();
-            long time = (long) (args.optdouble(2, 0) * 1000);
+        public Varargs execute(LuaValue arg1, LuaValue arg2) {
+            PressData data = check(arg1).getObject();
+            long time = (long) (arg2.optdouble(0) * 1000);
             return LuaValue.valueOf(data.justPressed(time));
         }
     }
     
-    static class justReleased extends LibraryFunction {
+    static class justReleased extends TwoArgLibraryFunction {
+        
+        justReleased() {
+            super(1);
+        }
+        
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 2);
-            
-            PressData data = check(args.arg1()).getObject();
-            long time = (long) (args.optdouble(2, 0) * 1000);
+        public Varargs execute(LuaValue arg1, LuaValue arg2) {
+            PressData data = check(arg1).getObject();
+            long time = (long) (arg2.optdouble(0) * 1000);
             return LuaValue.valueOf(data.justReleased(time));
         }
     }
     
-    static class isPressed extends LibraryFunction {
+    static class isPressed extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            PressData data = check(args.arg1()).getObject();
+        public Varargs execute(LuaValue arg) {
+            PressData data = check(arg).getObject();
             return LuaValue.valueOf(data.isPressed());
         }
     }
     
-    static class getHoldTime extends LibraryFunction {
+    static class getHoldTime extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            PressData data = check(args.arg1()).getObject();
+        public Varargs execute(LuaValue arg) {
+            PressData data = check(arg).getObject();
             return LuaValue.valueOf(data.getHoldTime() / 1000.0);
         }
     }
@@ -1,12 +1,15 @@
 package me.scarlet.undertailor.lua.lib.meta;
 
+import me.scarlet.undertailor.environment.overworld.map.RoomMap;
 import me.scarlet.undertailor.lua.Lua;
 import me.scarlet.undertailor.lua.LuaLibrary;
 import me.scarlet.undertailor.lua.LuaLibraryComponent;
 import me.scarlet.undertailor.lua.LuaObjectValue;
 import me.scarlet.undertailor.util.LuaUtil;
 import me.scarlet.undertailor.wrappers.RoomDataWrapper;
+import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
 
 public class LuaRoomMapMeta extends LuaLibrary {
 
@@ -19,10 +22,25 @@ public class LuaRoomMapMeta extends LuaLibrary {
     }
     
     public static final LuaLibraryComponent[] COMPONENTS = {
-            
+            new getPresets()
     };
     
     public LuaRoomMapMeta() {
         super(null, COMPONENTS);
     }
+    
+    static class getPresets extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, 1);
+            
+            RoomMap map = check(args.arg1()).getObject().getReference();
+            LuaTable presets = new LuaTable();
+            for(String preset : map.getPresets()) {
+                presets.insert(0, LuaValue.valueOf(preset));
+            }
+            
+            return presets;
+        }
+    }
 }
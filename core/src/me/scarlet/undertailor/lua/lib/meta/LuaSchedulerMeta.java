@@ -26,6 +26,7 @@ package me.scarlet.undertailor.lua.lib.meta;
 
 import me.scarlet.undertailor.environment.Scheduler;
 import me.scarlet.undertailor.environment.scheduler.LuaTask;
+import me.scarlet.undertailor.environment.ui.UIObject;
 import me.scarlet.undertailor.lua.Lua;
 import me.scarlet.undertailor.lua.LuaLibrary;
 import me.scarlet.undertailor.lua.LuaLibraryComponent;
@@ -52,13 +53,34 @@ public class LuaSchedulerMeta extends LuaLibrary {
             new registerTask(),
             new cancelTask(),
             new hasTask(),
-            new generateTask()
+            new generateTask(),
+            new getTime(),
+            new scheduleTask(),
+            new scheduleTaskAt(),
+            new sleepTask(),
+            new startCoroutine(),
+            new waitSeconds(),
+            new waitFrames(),
+            new waitPress(),
+            new waitDestroyed(),
+            new waitRoomChange()
     }; 
     
     public LuaSchedulerMeta() {
         super(null, COMPONENTS);
     }
     
+    // accepts either a task table or a bare process function
+    static LuaTask asTask(LuaValue value) {
+        if(value.isfunction()) {
+            LuaTable compile = new LuaTable();
+            compile.set(LuaTask.IMPLMETHOD_PROCESS, value);
+            return new LuaTask(compile);
+        }
+        
+        return new LuaTask(value.checktable());
+    }
+    
     static class getOwningEnvironment extends LibraryFunction {
         @Override
         public Varargs execute(Varargs args) {
@@ -129,4 +151,125 @@ public class LuaSchedulerMeta extends LuaLibrary {
             return LuaValue.valueOf(scheduler.registerTask(new LuaTask(compile), active));
         }
     }
+    
+    static class getTime extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, 1);
+            
+            Scheduler scheduler = check(args.arg1()).getObject();
+            return LuaValue.valueOf(scheduler.getTime());
+        }
+    }
+    
+    static class scheduleTask extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 3, 4);
+            
+            Scheduler scheduler = check(args.arg1()).getObject();
+            LuaTask task = asTask(args.arg(2));
+            float delay = (float) args.checkdouble(3);
+            float interval = (float) args.optdouble(4, 0);
+            
+            return LuaValue.valueOf(scheduler.scheduleTask(task, delay, interval));
+        }
+    }
+    
+    static class scheduleTaskAt extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 3, 3);
+            
+            Scheduler scheduler = check(args.arg1()).getObject();
+            LuaTask task = asTask(args.arg(2));
+            double time = args.checkdouble(3);
+            
+            return LuaValue.valueOf(scheduler.scheduleTaskAt(task, time));
+        }
+    }
+    
+    static class sleepTask extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 3, 3);
+            
+            Scheduler scheduler = check(args.arg1()).getObject();
+            long id = args.checklong(2);
+            float seconds = (float) args.checkdouble(3);
+            
+            return LuaValue.valueOf(scheduler.sleepTask(id, seconds));
+        }
+    }
+    
+    static class startCoroutine extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 2, 3);
+            
+            Scheduler scheduler = check(args.arg1()).getObject();
+            LuaFunction func = args.checkfunction(2);
+            String name = args.optjstring(3, null);
+            
+            return LuaValue.valueOf(scheduler.startCoroutine(func, name));
+        }
+    }
+    
+    static class waitSeconds extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 2, 2);
+            
+            Scheduler scheduler = check(args.arg1()).getObject();
+            float seconds = (float) args.checkdouble(2);
+            
+            return scheduler.waitSeconds(seconds);
+        }
+    }
+    
+    static class waitFrames extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, 2);
+            
+            Scheduler scheduler = check(args.arg1()).getObject();
+            int frames = args.optint(2, 1);
+            
+            return scheduler.waitFrames(frames);
+        }
+    }
+    
+    static class waitPress extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 2, 2);
+            
+            Scheduler scheduler = check(args.arg1()).getObject();
+            int key = args.checkint(2);
+            
+            return scheduler.waitPress(key);
+        }
+    }
+    
+    static class waitDestroyed extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 2, 2);
+            
+            Scheduler scheduler = check(args.arg1()).getObject();
+            UIObject object = LuaUIObjectMeta.check(args.arg(2)).getObject();
+            
+            return scheduler.waitDestroyed(object);
+        }
+    }
+    
+    static class waitRoomChange extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, 1);
+            
+            Scheduler scheduler = check(args.arg1()).getObject();
+            return scheduler.waitRoomChange();
+        }
+    }
 }
@@ -29,8 +29,11 @@ import me.scarlet.undertailor.lua.LuaLibrary;
 import me.scarlet.undertailor.lua.LuaLibraryComponent;
 import me.scarlet.undertailor.lua.LuaObjectValue;
 import me.scarlet.undertailor.texts.Style;
+import me.scarlet.undertailor.texts.styles.NativeStyle;
 import me.scarlet.undertailor.texts.TextComponent.DisplayMeta;
 import me.scarlet.undertailor.util.LuaUtil;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.Varargs;
 
@@ -48,9 +51,50 @@ public class LuaStyleMeta extends LuaLibrary {
         return LuaObjectValue.of(value, Lua.TYPENAME_DISPLAYMETA);
     }
     
+    public static NativeStyle checkNative(LuaValue value) {
+        Style style = check(value).getObject();
+        if(!(style instanceof NativeStyle)) {
+            throw new LuaError("bad argument: style is not a built-in style");
+        }
+        
+        return (NativeStyle) style;
+    }
+    
+    /**
+     * Sets the parameters of a built-in style from the
+     * name-value pairs of the given table.
+     */
+    public static void applyParameters(Style style, LuaTable params) {
+        if(!(style instanceof NativeStyle)) {
+            throw new LuaError("bad argument: only built-in styles take parameters");
+        }
+        
+        NativeStyle nativeStyle = (NativeStyle) style;
+        LuaValue key = LuaValue.NIL;
+        while(true) {
+            Varargs next = params.next(key);
+            if((key = next.arg1()).isnil()) {
+                break;
+            }
+            
+            setParameter(nativeStyle, key.checkjstring(), (float) next.arg(2).checkdouble());
+        }
+    }
+    
+    private static void setParameter(NativeStyle style, String name, float value) {
+        try {
+            style.setParameter(name, value);
+        } catch(IllegalArgumentException e) {
+            throw new LuaError("bad argument: " + e.getMessage());
+        }
+    }
+    
     public static final LuaLibraryComponent[] COMPONENTS = new LibraryFunction[] {
             new applyCharacter(),
-            new onNextTextRender()
+            new onNextTextRender(),
+            new getParameter(),
+            new setParameter(),
+            new resetStyle()
     };
     
     public LuaStyleMeta() {
@@ -70,6 +114,46 @@ public class LuaStyleMeta extends LuaLibrary {
         }
     }
     
+    static class getParameter extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 2, 2);
+            
+            NativeStyle style = checkNative(args.arg1());
+            try {
+                return LuaValue.valueOf(style.getParameter(args.checkjstring(2)));
+            } catch(IllegalArgumentException e) {
+                throw new LuaError("bad argument: " + e.getMessage());
+            }
+        }
+    }
+    
+    static class setParameter extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 2, 3);
+            
+            NativeStyle style = checkNative(args.arg1());
+            if(args.istable(2)) {
+                applyParameters(style, args.checktable(2));
+            } else {
+                setParameter(style, args.checkjstring(2), (float) args.checkdouble(3));
+            }
+            
+            return LuaValue.NIL;
+        }
+    }
+    
+    static class resetStyle extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, 1);
+            
+            checkNative(args.arg1()).reset();
+            return LuaValue.NIL;
+        }
+    }
+    
     static class onNextTextRender extends LibraryFunction {
         @Override
         public Varargs execute(Varargs args) {
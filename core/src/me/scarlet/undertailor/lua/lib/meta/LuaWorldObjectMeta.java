@@ -62,6 +62,10 @@ public class LuaWorldObjectMeta extends LuaLibrary {
             new setIgnoringCollisionWith(),
             new isOneSidedReaction(),
             new setOneSidedReaction(),
+            new getCollisionCategory(),
+            new setCollisionCategory(),
+            new getCollisionMask(),
+            new setCollisionMask(),
             new getBodyType(),
             new setBodyType(),
             new getZ(),
@@ -84,40 +88,37 @@ public class LuaWorldObjectMeta extends LuaLibrary {
             new getRoom(),
             new destroy(),
             new isPersisting(),
-            new setPersisting()
+            new setPersisting(),
+            new isPinned(),
+            new setPinned(),
+            new getActivity()
     };
     
     public LuaWorldObjectMeta() {
         super(null, COMPONENTS);
     }
     
-    static class getID extends LibraryFunction {
+    static class getID extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            WorldObject object = check(args.arg1()).getObject();
+        public Varargs execute(LuaValue arg) {
+            WorldObject object = check(arg).getObject();
             return LuaValue.valueOf(object.getId());
         }
     }
     
-    static class getRotation extends LibraryFunction {
+    static class getRotation extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            WorldObject object = check(args.arg1()).getObject();
+        public Varargs execute(LuaValue arg) {
+            WorldObject object = check(arg).getObject();
             return LuaValue.valueOf(object.getRotation());
         }
     }
     
-    static class setRotation extends LibraryFunction {
+    static class setRotation extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            WorldObject object = check(args.arg1()).getObject();
-            float rotation = (float) args.checkdouble(2);
+        public Varargs execute(LuaValue arg1, LuaValue arg2) {
+            WorldObject object = check(arg1).getObject();
+            float rotation = (float) arg2.checkdouble();
             object.setRotation(rotation);
             return LuaValue.NIL;
         }
@@ -183,6 +184,48 @@ public class LuaWorldObjectMeta extends LuaLibrary {
         }
     }
     
+    static class getCollisionCategory extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, 1);
+            
+            WorldObject object = check(args.arg1()).getObject();
+            return LuaBoundingBoxMeta.asLayerNames(object.getCategoryBits());
+        }
+    }
+    
+    static class setCollisionCategory extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 2, -1);
+            
+            WorldObject object = check(args.arg1()).getObject();
+            object.setCategoryBits(LuaBoundingBoxMeta.checkLayers(args, 2));
+            return LuaValue.NIL;
+        }
+    }
+    
+    static class getCollisionMask extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, 1);
+            
+            WorldObject object = check(args.arg1()).getObject();
+            return LuaBoundingBoxMeta.asLayerNames(object.getMaskBits());
+        }
+    }
+    
+    static class setCollisionMask extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 2, -1);
+            
+            WorldObject object = check(args.arg1()).getObject();
+            object.setMaskBits(LuaBoundingBoxMeta.checkLayers(args, 2));
+            return LuaValue.NIL;
+        }
+    }
+    
     static class getBodyType extends LibraryFunction {
         @Override
         public Varargs execute(Varargs args) {
@@ -276,59 +319,47 @@ public class LuaWorldObjectMeta extends LuaLibrary {
         }
     }
     
-    static class getHeight extends LibraryFunction {
+    static class getHeight extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            WorldObject object = check(args.arg1()).getObject();
+        public Varargs execute(LuaValue arg) {
+            WorldObject object = check(arg).getObject();
             return LuaValue.valueOf(object.getHeight());
         }
     }
     
-    static class setHeight extends LibraryFunction {
+    static class setHeight extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            WorldObject object = check(args.arg1()).getObject();
-            object.setHeight((float) args.checkdouble(2));
+        public Varargs execute(LuaValue arg1, LuaValue arg2) {
+            WorldObject object = check(arg1).getObject();
+            object.setHeight((float) arg2.checkdouble());
             return LuaValue.NIL;
         }
     }
     
-    static class getZ extends LibraryFunction {
+    static class getZ extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            WorldObject object = check(args.arg1()).getObject();
+        public Varargs execute(LuaValue arg) {
+            WorldObject object = check(arg).getObject();
             return LuaValue.valueOf(object.getZ());
         }
     }
     
-    static class setZ extends LibraryFunction {
+    static class setZ extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            WorldObject object = check(args.arg1()).getObject();
-            int z = args.checkint(2);
+        public Varargs execute(LuaValue arg1, LuaValue arg2) {
+            WorldObject object = check(arg1).getObject();
+            int z = arg2.checkint();
             object.setZ(z);
             return LuaValue.NIL;
         }
     }
     
-    static class getVelocity extends LibraryFunction {
+    static class getVelocity extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            WorldObject object = check(args.arg1()).getObject();
+        public Varargs execute(LuaValue arg) {
+            WorldObject object = check(arg).getObject();
             Vector2 vel = object.getBody().getLinearVelocity();
-            return LuaValue.varargsOf(new LuaValue[] {
-                    LuaValue.valueOf(vel.x),
-                    LuaValue.valueOf(vel.y)});
+            return LuaValue.varargsOf(LuaValue.valueOf(vel.x), LuaValue.valueOf(vel.y));
         }
     }
     
@@ -361,28 +392,27 @@ public class LuaWorldObjectMeta extends LuaLibrary {
         }
     }
     
-    static class getPosition extends LibraryFunction {
+    static class getPosition extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            WorldObject object = check(args.arg1()).getObject();
+        public Varargs execute(LuaValue arg) {
+            WorldObject object = check(arg).getObject();
             Vector2 pos = object.getPosition();
-            return LuaValue.varargsOf(new LuaValue[] {
-                    LuaValue.valueOf(pos.x),
-                    LuaValue.valueOf(pos.y)});
+            return LuaValue.varargsOf(LuaValue.valueOf(pos.x), LuaValue.valueOf(pos.y));
         }
     }
     
-    static class setPosition extends LibraryFunction {
+    static class setPosition extends ThreeArgLibraryFunction {
+        
+        setPosition() {
+            super(2);
+        }
+        
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 3);
-            
-            WorldObject object = check(args.arg1()).getObject();
+        public Varargs execute(LuaValue arg1, LuaValue arg2, LuaValue arg3) {
+            WorldObject object = check(arg1).getObject();
             Vector2 pos = object.getPosition();
-            float x = (float) args.optdouble(2, pos.x);
-            float y = (float) args.optdouble(3, pos.y);
+            float x = (float) arg2.optdouble(pos.x);
+            float y = (float) arg3.optdouble(pos.y);
             
             object.setPosition(x, y);
             return LuaValue.NIL;
@@ -429,34 +459,28 @@ public class LuaWorldObjectMeta extends LuaLibrary {
         }
     }
     
-    static class getScale extends LibraryFunction {
+    static class getScale extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            WorldObject object = check(args.arg1()).getObject();
+        public Varargs execute(LuaValue arg) {
+            WorldObject object = check(arg).getObject();
             return LuaValue.valueOf(object.getScale());
         }
     }
     
-    static class setScale extends LibraryFunction {
+    static class setScale extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            WorldObject object = check(args.arg1()).getObject();
-            float scale = (float) args.checkdouble(2);
+        public Varargs execute(LuaValue arg1, LuaValue arg2) {
+            WorldObject object = check(arg1).getObject();
+            float scale = (float) arg2.checkdouble();
             object.setScale(scale);
             return LuaValue.NIL;
         }
     }
     
-    static class canCollide extends LibraryFunction {
+    static class canCollide extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            WorldObject object = check(args.arg1()).getObject();
+        public Varargs execute(LuaValue arg) {
+            WorldObject object = check(arg).getObject();
             return LuaValue.valueOf(object.canCollide());
         }
     }
@@ -473,23 +497,19 @@ public class LuaWorldObjectMeta extends LuaLibrary {
         }
     }
     
-    static class isVisible extends LibraryFunction {
+    static class isVisible extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            WorldObject object = check(args.arg1()).getObject();
+        public Varargs execute(LuaValue arg) {
+            WorldObject object = check(arg).getObject();
             return LuaValue.valueOf(object.isVisible());
         }
     }
     
-    static class setVisible extends LibraryFunction {
+    static class setVisible extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            WorldObject object = check(args.arg1()).getObject();
-            boolean flag = args.checkboolean(2);
+        public Varargs execute(LuaValue arg1, LuaValue arg2) {
+            WorldObject object = check(arg1).getObject();
+            boolean flag = arg2.checkboolean();
             object.setVisible(flag);
             return LuaValue.NIL;
         }
@@ -541,4 +561,36 @@ public class LuaWorldObjectMeta extends LuaLibrary {
             return LuaValue.NIL;
         }
     }
+    
+    static class isPinned extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, 1);
+            
+            WorldObject object = check(args.arg1()).getObject();
+            return LuaValue.valueOf(object.isPinned());
+        }
+    }
+    
+    static class setPinned extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 2, 2);
+            
+            WorldObject object = check(args.arg1()).getObject();
+            boolean flag = args.checkboolean(2);
+            object.setPinned(flag);
+            return LuaValue.NIL;
+        }
+    }
+    
+    static class getActivity extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, 1);
+            
+            WorldObject object = check(args.arg1()).getObject();
+            return LuaValue.valueOf(object.getActivity().name().toLowerCase());
+        }
+    }
 }
@@ -24,15 +24,22 @@
 
 package me.scarlet.undertailor.lua.lib.meta;
 
+import me.scarlet.undertailor.collision.CollisionHandler;
 import me.scarlet.undertailor.environment.OverworldController;
 import me.scarlet.undertailor.environment.overworld.WorldObject;
 import me.scarlet.undertailor.environment.overworld.WorldRoom;
 import me.scarlet.undertailor.environment.overworld.WorldRoom.Entrypoint;
+import me.scarlet.undertailor.environment.overworld.WorldRoom.RaycastResult;
+import me.scarlet.undertailor.environment.overworld.map.RoomMap;
 import me.scarlet.undertailor.lua.Lua;
 import me.scarlet.undertailor.lua.LuaLibrary;
 import me.scarlet.undertailor.lua.LuaLibraryComponent;
 import me.scarlet.undertailor.lua.LuaObjectValue;
 import me.scarlet.undertailor.util.LuaUtil;
+
+import java.util.List;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.Varargs;
 
@@ -53,9 +60,19 @@ public class LuaWorldRoomMeta extends LuaLibrary {
             new getObject(),
             new getMap(),
             new setMap(),
+            new getMapPreset(),
+            new setMapPreset(),
             new removeObject(),
             new newEntrypoint(),
-            new registerEntrypoint()
+            new registerEntrypoint(),
+            new getPhysicsRate(),
+            new setPhysicsRate(),
+            new queryArea(),
+            new queryPoint(),
+            new raycast(),
+            new hasLineOfSight(),
+            new getActivityRanges(),
+            new setActivityRanges()
     };
     
     public LuaWorldRoomMeta() {
@@ -99,6 +116,34 @@ public class LuaWorldRoomMeta extends LuaLibrary {
         }
     }
     
+    static class getMapPreset extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, 1);
+            
+            WorldRoom room = check(args.arg1()).getObject();
+            String preset = room.getMapPreset();
+            return preset == null ? LuaValue.NIL : LuaValue.valueOf(preset);
+        }
+    }
+    
+    static class setMapPreset extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 2, 2);
+            
+            WorldRoom room = check(args.arg1()).getObject();
+            String preset = args.checkjstring(2);
+            RoomMap map = room.getMap() == null ? null : room.getMap().getReference();
+            if(map == null || map.getPreset(preset) == null) {
+                throw new LuaError("bad argument: no traversable preset named " + preset);
+            }
+            
+            room.setMapPreset(preset);
+            return LuaValue.NIL;
+        }
+    }
+    
     static class getRoomName extends LibraryFunction {
         @Override
         public Varargs execute(Varargs args) {
@@ -170,5 +215,137 @@ public class LuaWorldRoomMeta extends LuaLibrary {
         }
     }
     
+    static class getPhysicsRate extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, 1);
+            
+            CollisionHandler handler = check(args.arg1()).getObject().getCollisionHandler();
+            return LuaUtil.asVarargs(LuaValue.valueOf(handler.getTickRate()), LuaValue.valueOf(handler.getMaxSubsteps()));
+        }
+    }
+    
+    static class setPhysicsRate extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 2, 3);
+            
+            CollisionHandler handler = check(args.arg1()).getObject().getCollisionHandler();
+            float tickRate = (float) args.checkdouble(2);
+            int maxSubsteps = args.optint(3, handler.getMaxSubsteps());
+            
+            handler.setTickRate(tickRate);
+            handler.setMaxSubsteps(maxSubsteps);
+            return LuaValue.NIL;
+        }
+    }
+    
+    static LuaTable asTable(List<WorldObject> objects, LuaTable target) {
+        LuaTable table = target == null ? new LuaTable() : target;
+        int length = table.length();
+        for(int i = 0; i < objects.size(); i++) {
+            table.set(i + 1, LuaWorldObjectMeta.create(objects.get(i)));
+        }
+        
+        for(int i = objects.size() + 1; i <= length; i++) { // clear leftovers of a reused table
+            table.set(i, LuaValue.NIL);
+        }
+        
+        return table;
+    }
+    
+    static class queryArea extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 5, 6);
+            
+            WorldRoom room = check(args.arg1()).getObject();
+            float x1 = (float) args.checkdouble(2);
+            float y1 = (float) args.checkdouble(3);
+            float x2 = (float) args.checkdouble(4);
+            float y2 = (float) args.checkdouble(5);
+            LuaTable target = args.isnil(6) ? null : args.checktable(6);
+            
+            return asTable(room.queryArea(x1, y1, x2, y2), target);
+        }
+    }
+    
+    static class queryPoint extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 3, 4);
+            
+            WorldRoom room = check(args.arg1()).getObject();
+            float x = (float) args.checkdouble(2);
+            float y = (float) args.checkdouble(3);
+            LuaTable target = args.isnil(4) ? null : args.checktable(4);
+            
+            return asTable(room.queryPoint(x, y), target);
+        }
+    }
+    
+    static class raycast extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 5, 5);
+            
+            WorldRoom room = check(args.arg1()).getObject();
+            float x1 = (float) args.checkdouble(2);
+            float y1 = (float) args.checkdouble(3);
+            float x2 = (float) args.checkdouble(4);
+            float y2 = (float) args.checkdouble(5);
+            
+            RaycastResult result = room.raycast(x1, y1, x2, y2);
+            if(result == null) {
+                return LuaValue.NIL;
+            }
+            
+            LuaValue object = result.getCollider() instanceof WorldObject ? LuaWorldObjectMeta.create((WorldObject) result.getCollider()) : LuaValue.NIL;
+            return LuaUtil.asVarargs(LuaValue.valueOf(result.getPoint().x), LuaValue.valueOf(result.getPoint().y), object,
+                LuaValue.valueOf(result.getNormal().x), LuaValue.valueOf(result.getNormal().y));
+        }
+    }
+    
+    static class hasLineOfSight extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 5, 5);
+            
+            WorldRoom room = check(args.arg1()).getObject();
+            float x1 = (float) args.checkdouble(2);
+            float y1 = (float) args.checkdouble(3);
+            float x2 = (float) args.checkdouble(4);
+            float y2 = (float) args.checkdouble(5);
+            
+            return LuaValue.valueOf(room.hasLineOfSight(x1, y1, x2, y2));
+        }
+    }
+    
+    static class getActivityRanges extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, 1);
+            
+            WorldRoom room = check(args.arg1()).getObject();
+            return LuaUtil.asVarargs(LuaValue.valueOf(room.getActiveRange()), LuaValue.valueOf(room.getDormantRange()),
+                LuaValue.valueOf(room.getReducedInterval()));
+        }
+    }
+    
+    static class setActivityRanges extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 3, 4);
+            
+            WorldRoom room = check(args.arg1()).getObject();
+            float active = (float) args.checkdouble(2);
+            float dormant = (float) args.checkdouble(3);
+            int interval = args.optint(4, room.getReducedInterval());
+            
+            room.setActivityRanges(active, dormant, interval);
+            return LuaValue.NIL;
+        }
+    }
+    
     // TODO map data access
 }
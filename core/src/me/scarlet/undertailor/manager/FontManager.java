@@ -28,9 +28,9 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Texture;
 import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.exception.TextureTilingException;
+import me.scarlet.undertailor.gfx.AtlasPacker;
 import me.scarlet.undertailor.texts.Font;
 import me.scarlet.undertailor.texts.Font.FontData;
-import me.scarlet.undertailor.texts.TextComponent;
 import me.scarlet.undertailor.texts.Text;
 import me.scarlet.undertailor.util.LuaUtil;
 import ninja.leaping.configurate.json.JSONConfigurationLoader;
@@ -124,6 +124,12 @@ public class FontManager extends Manager<Font> {
         return null;
     }
     
+    public void queueTextures(AtlasPacker packer) {
+        for(Font font : fonts.values()) {
+            font.queueTexture(packer);
+        }
+    }
+    
     public void write(Text text, float posX, float posY) {
         write(text, posX, posY, 1);
     }
@@ -141,18 +147,10 @@ public class FontManager extends Manager<Font> {
             return;
         }
         
-        if(text.getMembers().size() < 1) {
+        if(text.getMemberCount() < 1) {
             return; // ignore empty texts
         }
         
-        if(text.getMembers().size() == 1) {
-            text.getFont().write(text.getText(), text.getStyle(), text.getColor(), posX, posY, scaleX, scaleY, alpha);
-        } else {
-            int pos = 0;
-            for(int i = 0; i < text.getMembers().size(); i++) {
-                TextComponent component = text.getMembers().get(i);
-                pos += component.getFont().write(component.getText(), component.getStyle(), component.getColor(), posX + pos, posY, scaleX, scaleY, alpha);
-            }
-        }
+        text.getLayout(scaleX, scaleY).draw(posX, posY, alpha);
     }
 }
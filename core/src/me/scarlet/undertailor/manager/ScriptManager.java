@@ -24,11 +24,20 @@
 
 package me.scarlet.undertailor.manager;
 
+import me.scarlet.undertailor.Undertailor;
+import me.scarlet.undertailor.lua.LuaBudget;
+import me.scarlet.undertailor.lua.LuaCopyOnWriteTable;
 import me.scarlet.undertailor.lua.LuaImplementable;
 import me.scarlet.undertailor.lua.LuaLibrary;
+import me.scarlet.undertailor.lua.LuaProfiler;
 import org.luaj.vm2.Globals;
 import org.luaj.vm2.LoadState;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaFunction;
+import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Prototype;
+import org.luaj.vm2.compiler.DumpState;
 import org.luaj.vm2.compiler.LuaC;
 import org.luaj.vm2.lib.Bit32Lib;
 import org.luaj.vm2.lib.DebugLib;
@@ -38,13 +47,59 @@ import org.luaj.vm2.lib.TableLib;
 import org.luaj.vm2.lib.jse.JseBaseLib;
 import org.luaj.vm2.lib.jse.JseMathLib;
 import org.luaj.vm2.lib.jse.JseOsLib;
+import org.luaj.vm2.luajc.JavaLoader;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.zip.CRC32;
 
 public class ScriptManager {
     
+    public static final String MANAGER_TAG = "scriptman";
+    
+    /**
+     * Placed on the first line of a script to have it
+     * compiled to JVM bytecode regardless of the global
+     * compile mode.
+     */
+    public static final String COMPILE_PRAGMA = "--@compile";
+    
+    /**
+     * A compiled script, alongside the modification time of
+     * the file it was compiled from.
+     */
+    private static class CompiledScript {
+        
+        private long lastModified;
+        private Prototype prototype;
+        private boolean compileRequested;
+        private boolean compileFailed;
+        private Class<? extends LuaFunction> compiledClass;
+        
+        CompiledScript(long lastModified, Prototype prototype, boolean compileRequested) {
+            this.lastModified = lastModified;
+            this.prototype = prototype;
+            this.compileRequested = compileRequested;
+            this.compileFailed = false;
+            this.compiledClass = null;
+        }
+    }
+    
     private static LuaValue[] SHARED_BASE_LIBS;
     
     static {
@@ -60,11 +115,325 @@ public class ScriptManager {
     private Map<Class<? extends LuaLibrary>, LuaValue> metatables;
     private Map<Class<? extends LuaLibrary>, LuaLibrary> libraries;
     private Map<Class<? extends LuaImplementable<?, ?>>, LuaImplementable<?, ?>> implementables;
+    private Map<String, CompiledScript> compiled;
+    private File cacheDirectory;
+    
+    private boolean sharedGlobals;
+    private boolean compiling;
+    private Globals baseGlobals;
+    private LuaTable baseTables;
+    private LuaTable environmentMeta;
+    private LuaProfiler profiler;
+    private LuaBudget budget;
     
     public ScriptManager() {
         this.libraries = new HashMap<>();
         this.metatables = new HashMap<>();
         this.implementables = new HashMap<>();
+        this.compiled = new HashMap<>();
+        this.cacheDirectory = null;
+        this.sharedGlobals = false;
+        this.compiling = false;
+        this.baseGlobals = null;
+        this.profiler = new LuaProfiler();
+        this.budget = new LuaBudget();
+    }
+    
+    /**
+     * Returns the {@link LuaProfiler} script callbacks
+     * report their calls to.
+     */
+    public LuaProfiler getProfiler() {
+        return profiler;
+    }
+    
+    /**
+     * Returns the {@link LuaBudget} bounding the work done by
+     * script callbacks.
+     */
+    public LuaBudget getBudget() {
+        return budget;
+    }
+    
+    /**
+     * Returns the {@link Globals} whose running thread carries
+     * the debug hooks of scripts loaded with the given
+     * environment.
+     * 
+     * <p>Environments sharing a base share its debug library,
+     * which reads hooks from the base's thread.</p>
+     */
+    public Globals getHookOwner(Globals env) {
+        if(baseGlobals != null && env.debuglib == baseGlobals.debuglib) {
+            return baseGlobals;
+        }
+        
+        return env;
+    }
+    
+    public boolean isCompiling() {
+        return compiling;
+    }
+    
+    /**
+     * Sets whether every script is compiled into JVM bytecode
+     * through LuaJC, instead of only those marked with
+     * {@link #COMPILE_PRAGMA}.
+     * 
+     * <p>Scripts failing to compile, or all of them if LuaJC's
+     * dependencies are missing, fall back to the
+     * interpreter.</p>
+     */
+    public void setCompiling(boolean flag) {
+        this.compiling = flag;
+    }
+    
+    public boolean isSharingGlobals() {
+        return sharedGlobals;
+    }
+    
+    /**
+     * Sets whether {@link #generateGlobals()} hands out light
+     * environments backed by one shared base environment
+     * instead of building a full environment for every script.
+     * Off by default.
+     * 
+     * <p>Global assignments made by a script land in its own
+     * environment, so no script sees another's globals. The
+     * tables of the base and shareable libraries (string,
+     * table, math, os, bit32 and the like) are handed to each
+     * environment as copy-on-write views
+     * ({@link LuaCopyOnWriteTable}); a script modifying one
+     * modifies its own copy, never the shared table.
+     * <code>require</code> is bound to each environment.</p>
+     * 
+     * <p>Assigning nil to a global function of the base only
+     * clears the script's own value; the shared one shows
+     * through again. The metatable shared by strings is
+     * process-wide either way, and is not isolated.</p>
+     */
+    public void setSharingGlobals(boolean flag) {
+        this.sharedGlobals = flag;
+    }
+    
+    public File getCacheDirectory() {
+        return cacheDirectory;
+    }
+    
+    /**
+     * Sets the directory compiled scripts are persisted to
+     * between runs, or null to only cache them in memory.
+     */
+    public void setCacheDirectory(File directory) {
+        this.cacheDirectory = directory;
+    }
+    
+    /**
+     * Loads the given script file as a function, with the
+     * provided value as its environment.
+     * 
+     * <p>Scripts are only compiled the first time they're
+     * loaded, or after the file has been modified; later
+     * loads reuse the compiled prototype.</p>
+     * 
+     * @param scriptFile the script file to load
+     * @param env the environment of the loaded chunk
+     * 
+     * @throws FileNotFoundException if the file wasn't found
+     */
+    public LuaFunction loadScript(File scriptFile, LuaValue env) throws FileNotFoundException {
+        CompiledScript script = this.getScript(scriptFile);
+        return this.loadScript(script, scriptFile, env, compiling || script.compileRequested);
+    }
+    
+    /**
+     * Loads the given script file as a function, with the
+     * provided value as its environment, compiled through
+     * LuaJC or interpreted regardless of
+     * {@link #isCompiling()}.
+     * 
+     * @param compile whether to compile the script, falling
+     *        back to the interpreter if it can't be
+     * 
+     * @throws FileNotFoundException if the file wasn't found
+     */
+    public LuaFunction loadScript(File scriptFile, LuaValue env, boolean compile) throws FileNotFoundException {
+        return this.loadScript(this.getScript(scriptFile), scriptFile, env, compile);
+    }
+    
+    private LuaFunction loadScript(CompiledScript script, File scriptFile, LuaValue env, boolean compile) {
+        if(compile && !script.compileFailed) {
+            LuaFunction function = this.loadCompiled(script, scriptFile.getName(), env);
+            if(function != null) {
+                return function;
+            }
+        }
+        
+        Prototype prototype = script.prototype;
+        try {
+            Globals globals = env instanceof Globals ? (Globals) env : null;
+            if(globals != null && globals.loader != null) {
+                return globals.loader.load(prototype, prototype.source.tojstring(), env);
+            }
+            
+            return LuaC.instance.load(prototype, prototype.source.tojstring(), env);
+        } catch(IOException e) {
+            throw new LuaError(e);
+        }
+    }
+    
+    /**
+     * Returns the compiled {@link Prototype} of the given
+     * script file, compiling it if it hasn't been already.
+     * 
+     * @throws FileNotFoundException if the file wasn't found
+     */
+    public Prototype getPrototype(File scriptFile) throws FileNotFoundException {
+        return this.getScript(scriptFile).prototype;
+    }
+    
+    /**
+     * Instantiates the bytecode-compiled form of the given
+     * script, generating its classes on first use. Returns
+     * null if the script couldn't be compiled.
+     */
+    private LuaFunction loadCompiled(CompiledScript script, String name, LuaValue env) {
+        try {
+            if(script.compiledClass == null) {
+                String className = "lua_" + name.replaceAll("\\.lua$", "").replaceAll("[^A-Za-z0-9_]", "_");
+                LuaFunction function = new JavaLoader().load(script.prototype, className, name, env);
+                script.compiledClass = function.getClass();
+                return function;
+            }
+            
+            LuaFunction function = script.compiledClass.getDeclaredConstructor().newInstance(); // generated classes are reused across loads
+            function.initupvalue1(env);
+            return function;
+        } catch(Exception | LinkageError e) {
+            script.compileFailed = true;
+            Undertailor.instance.warn(MANAGER_TAG, "could not compile script " + name + ", falling back to the interpreter: " + e);
+            return null;
+        }
+    }
+    
+    private CompiledScript getScript(File scriptFile) throws FileNotFoundException {
+        if(!scriptFile.isFile()) {
+            throw new FileNotFoundException(scriptFile.getAbsolutePath());
+        }
+        
+        String path;
+        try {
+            path = scriptFile.getCanonicalPath();
+        } catch(IOException e) {
+            path = scriptFile.getAbsolutePath();
+        }
+        
+        long lastModified = scriptFile.lastModified();
+        long length = scriptFile.length();
+        CompiledScript script = compiled.get(path);
+        if(script != null && script.lastModified == lastModified) {
+            return script;
+        }
+        
+        File cacheFile = this.getCacheFile(path);
+        Prototype prototype = cacheFile == null ? null : this.readCached(cacheFile, path, length, lastModified, scriptFile.getName());
+        if(prototype == null) {
+            try(InputStream input = new BufferedInputStream(new FileInputStream(scriptFile))) {
+                prototype = LuaC.instance.compile(input, "@" + scriptFile.getName());
+            } catch(FileNotFoundException e) {
+                throw e;
+            } catch(IOException e) {
+                throw new LuaError(e);
+            }
+            
+            if(cacheFile != null) {
+                this.writeCached(cacheFile, path, length, lastModified, prototype);
+            }
+        }
+        
+        script = new CompiledScript(lastModified, prototype, this.isCompileRequested(scriptFile));
+        compiled.put(path, script);
+        return script;
+    }
+    
+    private boolean isCompileRequested(File scriptFile) {
+        try(BufferedReader reader = new BufferedReader(new FileReader(scriptFile))) {
+            String line = reader.readLine();
+            return line != null && line.trim().startsWith(COMPILE_PRAGMA);
+        } catch(IOException e) {
+            return false;
+        }
+    }
+    
+    private File getCacheFile(String path) {
+        if(cacheDirectory == null) {
+            return null;
+        }
+        
+        return new File(cacheDirectory, Integer.toHexString(path.hashCode()) + "_" + Integer.toHexString(path.length()) + ".luac");
+    }
+    
+    /**
+     * Reads a cached {@link Prototype}, returning null if the
+     * cache entry is missing, belongs to a different script
+     * (cache file names are only a hash of the path), is
+     * stale, or fails its checksum or cannot be loaded.
+     */
+    private Prototype readCached(File cacheFile, String path, long length, long lastModified, String name) {
+        if(!cacheFile.isFile()) {
+            return null;
+        }
+        
+        try(DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            if(!input.readUTF().equals(path)) {
+                return null; // hash collision
+            }
+            
+            if(input.readLong() != length || input.readLong() != lastModified) {
+                return null; // stale
+            }
+            
+            long checksum = input.readLong();
+            int size = input.readInt();
+            if(size < 0 || size > cacheFile.length()) {
+                throw new IOException("bad dump size " + size);
+            }
+            
+            byte[] dump = new byte[size];
+            input.readFully(dump);
+            CRC32 crc = new CRC32();
+            crc.update(dump);
+            if(crc.getValue() != checksum) {
+                throw new IOException("checksum mismatch");
+            }
+            
+            return LoadState.undump(new ByteArrayInputStream(dump), "@" + name);
+        } catch(IOException | RuntimeException e) { // malformed dumps fail with a LuaError
+            Undertailor.instance.warn(MANAGER_TAG, "could not read cached script " + cacheFile.getName() + ": " + e);
+            return null;
+        }
+    }
+    
+    private void writeCached(File cacheFile, String path, long length, long lastModified, Prototype prototype) {
+        if(!cacheDirectory.isDirectory() && !cacheDirectory.mkdirs()) {
+            return;
+        }
+        
+        try(DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(cacheFile)))) {
+            ByteArrayOutputStream dump = new ByteArrayOutputStream();
+            DumpState.dump(prototype, dump, false);
+            CRC32 crc = new CRC32();
+            crc.update(dump.toByteArray());
+            
+            output.writeUTF(path);
+            output.writeLong(length);
+            output.writeLong(lastModified);
+            output.writeLong(crc.getValue());
+            output.writeInt(dump.size());
+            dump.writeTo(output);
+        } catch(IOException e) {
+            Undertailor.instance.warn(MANAGER_TAG, "could not cache compiled script " + cacheFile.getName() + ": " + e.getMessage());
+        }
     }
     
     /**
@@ -82,6 +451,9 @@ public class ScriptManager {
         for(LuaLibrary library : libraries) {
             this.libraries.put(library.getClass(), library);
         }
+        
+        this.baseGlobals = null; // rebuilt with the new libraries on next use
+        this.baseTables = null;
     }
     
     /**
@@ -135,7 +507,73 @@ public class ScriptManager {
      * @see #generateGlobals(boolean)
      */
     public Globals generateGlobals() {
-        return generateGlobals(true);
+        return sharedGlobals ? generateEnvironment() : generateGlobals(true);
+    }
+    
+    /**
+     * Generates a new environment reading through to a
+     * shared base environment holding every base and
+     * shareable library.
+     * 
+     * <p>Functions and other values of the base are read
+     * through the environment's metatable. Library tables are
+     * placed in the environment as copy-on-write views
+     * ({@link LuaCopyOnWriteTable}), also registered as loaded
+     * for the environment's own <code>require</code>. Only
+     * non-shareable libraries ({@link LuaLibrary#isShareable()})
+     * are loaded into the new environment, as clean
+     * clones.</p>
+     */
+    public Globals generateEnvironment() {
+        if(baseGlobals == null) {
+            baseGlobals = generateGlobals(true); // non-shareable libraries still strip unsafe functions here
+            
+            LuaTable baseValues = new LuaTable();
+            baseTables = new LuaTable();
+            for(LuaValue key : baseGlobals.keys()) {
+                LuaValue value = baseGlobals.rawget(key);
+                if(value == baseGlobals || key.tojstring().equals("package")) {
+                    continue; // every environment has its own
+                }
+                
+                // tables are viewed per environment; they never resolve through the base
+                (value.istable() ? baseTables : baseValues).rawset(key, value);
+            }
+            
+            environmentMeta = new LuaTable();
+            environmentMeta.set(LuaValue.INDEX, baseValues);
+            environmentMeta.set(LuaValue.METATABLE, LuaValue.FALSE); // keeps the base out of reach
+        }
+        
+        Globals returned = new Globals();
+        returned.STDIN = baseGlobals.STDIN;
+        returned.STDOUT = baseGlobals.STDOUT;
+        returned.STDERR = baseGlobals.STDERR;
+        returned.finder = baseGlobals.finder;
+        returned.baselib = baseGlobals.baselib;
+        returned.debuglib = baseGlobals.debuglib;
+        returned.loader = baseGlobals.loader;
+        returned.compiler = baseGlobals.compiler;
+        returned.undumper = baseGlobals.undumper;
+        returned.setmetatable(environmentMeta);
+        returned.rawset("_G", returned);
+        returned.load(new PackageLib()); // require loads modules into this environment
+        
+        Map<LuaValue, LuaValue> views = LuaCopyOnWriteTable.newViews();
+        for(LuaValue key : baseTables.keys()) {
+            LuaTable view = (LuaTable) LuaCopyOnWriteTable.view(baseTables.rawget(key), views);
+            returned.rawset(key, view);
+            returned.package_.setIsLoaded(key.tojstring(), view);
+        }
+        
+        returned.package_.setIsLoaded("_G", returned);
+        for(LuaLibrary lib : libraries.values()) {
+            if(!lib.isShareable()) {
+                returned.load(lib.cleanClone());
+            }
+        }
+        
+        return returned;
     }
     
     /**
@@ -28,6 +28,7 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import me.scarlet.undertailor.Undertailor;
+import me.scarlet.undertailor.gfx.AtlasPacker;
 import me.scarlet.undertailor.gfx.SpriteSheet;
 import me.scarlet.undertailor.util.LuaUtil;
 import me.scarlet.undertailor.wrappers.SpriteSheetWrapper;
@@ -111,6 +112,20 @@ public class SpriteSheetManager extends Manager<SpriteSheetWrapper> {
         return null;
     }
     
+    public void queueTextures(AtlasPacker packer) {
+        for(SpriteSheetWrapper wrapper : sheets.values()) {
+            wrapper.queueTexture(packer);
+        }
+    }
+    
+    public void dispose() {
+        for(SpriteSheetWrapper wrapper : sheets.values()) {
+            wrapper.disposeTexture();
+        }
+        
+        sheets.clear();
+    }
+    
     public void keepSheetLoaded(String sheetName, boolean preload) {
         SpriteSheetWrapper wrapper = this.getSheet(sheetName);
         if(wrapper != null) {
@@ -28,6 +28,10 @@ import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.exception.LuaScriptException;
 import me.scarlet.undertailor.lua.impl.StyleImplementable;
 import me.scarlet.undertailor.texts.Style;
+import me.scarlet.undertailor.texts.styles.FadeInStyle;
+import me.scarlet.undertailor.texts.styles.RainbowStyle;
+import me.scarlet.undertailor.texts.styles.ShakeStyle;
+import me.scarlet.undertailor.texts.styles.WaveStyle;
 import me.scarlet.undertailor.util.LuaUtil;
 
 import java.io.File;
@@ -42,6 +46,12 @@ public class StyleManager extends Manager<Style> {
     
     public StyleManager() {
         this.styles = new HashMap<>();
+        
+        // built-in native styles; lua styles of the same name replace them
+        styles.put("wave", new WaveStyle());
+        styles.put("shake", new ShakeStyle());
+        styles.put("rainbow", new RainbowStyle());
+        styles.put("fadein", new FadeInStyle());
     }
     
     public void loadObjects(File directory) {
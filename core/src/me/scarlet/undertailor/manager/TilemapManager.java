@@ -26,6 +26,7 @@ package me.scarlet.undertailor.manager;
 
 import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.exception.TextureTilingException;
+import me.scarlet.undertailor.gfx.AtlasPacker;
 import me.scarlet.undertailor.util.LuaUtil;
 import me.scarlet.undertailor.wrappers.TilemapWrapper;
 
@@ -86,6 +87,12 @@ public class TilemapManager extends Manager<TilemapWrapper> {
         }
     }
     
+    public void queueTextures(AtlasPacker packer) {
+        for(TilemapWrapper wrapper : tilemaps.values()) {
+            wrapper.queueTexture(packer);
+        }
+    }
+    
     public TilemapWrapper getTilemap(String name) {
         if(tilemaps.containsKey(name)) {
             return tilemaps.get(name);
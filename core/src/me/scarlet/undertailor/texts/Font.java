@@ -27,9 +27,11 @@ package me.scarlet.undertailor.texts;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Vector2;
 import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.exception.TextureTilingException;
+import me.scarlet.undertailor.gfx.AtlasPacker;
 import me.scarlet.undertailor.gfx.Sprite;
 import me.scarlet.undertailor.gfx.Sprite.SpriteMeta;
 import me.scarlet.undertailor.gfx.SpriteSheet;
@@ -158,6 +160,12 @@ public class Font {
                     }
                 }
                 
+                data.compiledMeta = new HashMap<>();
+                for(int i = 0; i < data.characterList.length(); i++) {
+                    char ch = data.characterList.charAt(i);
+                    data.compiledMeta.put(ch, data.compileCharacterMeta(ch));
+                }
+                
                 return data;
             } catch(RuntimeException e) {
                 e.printStackTrace();
@@ -169,6 +177,7 @@ public class Font {
         private CharMeta globalMeta;
         private String characterList;
         private Map<String, CharMeta> charMeta;
+        private Map<Character, CharMeta> compiledMeta; // merged meta per character in the list
         private int x = 1, y = 1;
         private int spacing = -1; // pixels between letters
         private int space = -1; // pixels that count as a space
@@ -184,6 +193,15 @@ public class Font {
         }
         
         public CharMeta getCharacterMeta(char ch) {
+            CharMeta compiled = compiledMeta.get(ch);
+            if(compiled != null) {
+                return compiled;
+            }
+            
+            return compileCharacterMeta(ch);
+        }
+        
+        private CharMeta compileCharacterMeta(char ch) {
             Set<CharMeta> collectedMeta = charMeta.entrySet().stream()
                     .filter(entry -> entry.getKey().indexOf(ch) != -1)
                     .map(Entry::getValue).collect(Collectors.toSet());
@@ -211,9 +229,14 @@ public class Font {
     
     private FontData data;
     private SpriteSheet sheet;
+    private SpriteSheetMeta sheetMeta;
+    
+    // glyph lookup tables, indexed by character
+    private Sprite[] glyphs;
+    private int[] advances;
     public Font(Texture spriteSheet, FontData data) throws TextureTilingException {
         this.data = data;
-        SpriteSheetMeta sheetMeta = new SpriteSheetMeta();
+        this.sheetMeta = new SpriteSheetMeta();
         sheetMeta.gridX = data.x;
         sheetMeta.gridY = data.y;
         sheetMeta.spriteMeta = new SpriteMeta[data.characterList.length()];
@@ -223,14 +246,42 @@ public class Font {
         }
 
         this.sheet = new SpriteSheet("font-" + data.fontName, spriteSheet, sheetMeta);
+        this.buildGlyphTables();
+    }
+    
+    private void buildGlyphTables() {
+        int size = 0;
+        for(int i = 0; i < data.characterList.length(); i++) {
+            size = Math.max(size, data.characterList.charAt(i) + 1);
+        }
+        
+        this.glyphs = new Sprite[size];
+        this.advances = new int[size];
+        for(int i = data.characterList.length() - 1; i >= 0; i--) { // backwards; first occurrence wins, same as indexOf
+            char ch = data.characterList.charAt(i);
+            glyphs[ch] = sheet.getSprite(i);
+            advances[ch] = glyphs[ch].getTextureRegion().getRegionWidth() + data.getLetterSpacing();
+        }
     }
     
     public FontData getFontData() {
         return data;
     }
     
+    public void queueTexture(AtlasPacker packer) {
+        packer.queue("font-" + data.fontName, sheet.getTexture(), region -> {
+            try {
+                this.sheet = new SpriteSheet("font-" + data.fontName, region, sheetMeta);
+                this.buildGlyphTables();
+                return true;
+            } catch(TextureTilingException e) { // same dimensions as before; shouldn't happen
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+    
     public Sprite getChar(char ch) {
-        return sheet.getSprite(data.characterList.indexOf(ch));
+        return ch < glyphs.length ? glyphs[ch] : null;
     }
     
     public int write(String text, Style style, Color color, float posX, float posY) {
@@ -246,28 +297,41 @@ public class Font {
     }
     
     public int write(String text, Style style, Color color, float posX, float posY, float scaleX, float scaleY, float alpha) {
-        if(text.trim().isEmpty()) {
+        int textLength = 0; // non-space characters
+        boolean blank = true;
+        for(int i = 0; i < text.length(); i++) {
+            char chara = text.charAt(i);
+            if(chara != ' ') {
+                textLength++;
+            }
+            
+            if(chara > ' ') {
+                blank = false;
+            }
+        }
+        
+        if(blank) {
             return 0;
         }
         
-        char[] chars = new char[text.length()];
-        text.getChars(0, text.length(), chars, 0);
         int pos = 0;
-        int textLength = text.replaceAll(" ", "").length();
-        
-        //for(char chara : chars) {
         if(style != null) {
             style.onNextTextRender(Gdx.graphics.getDeltaTime());
         }
         
-        for(int i = 0; i < chars.length; i++) {
-            char chara = chars[i];
-            if(Character.valueOf(' ').compareTo(chara) == 0) {
-                pos += (this.getFontData().getSpaceSize() * scaleX);
+        for(int i = 0; i < text.length(); i++) {
+            char chara = text.charAt(i);
+            if(chara == ' ') {
+                pos += (data.getSpaceSize() * scaleX);
                 continue;
             }
             
-            float aX = 0F, aY = 0F, aScaleX = 1.0F, aScaleY = 1.0F;
+            Sprite glyph = this.getChar(chara);
+            if(glyph == null) {
+                continue; // not in this font
+            }
+            
+            float aX = 0F, aY = 0F, aScaleX = 1.0F, aScaleY = 1.0F, aAlpha = 1.0F;
             Color usedColor = color;
             if(style != null) {
                 DisplayMeta dmeta = style.applyCharacter(i, textLength);
@@ -276,6 +340,7 @@ public class Font {
                     aY = dmeta.offY;
                     aScaleX = dmeta.scaleX;
                     aScaleY = dmeta.scaleY;
+                    aAlpha = dmeta.alpha;
                     usedColor = dmeta.color == null ? color : dmeta.color;
                 }
             }
@@ -287,19 +352,68 @@ public class Font {
             float drawPosX = posX + pos + offsetX;
             float drawPosY = posY + offsetY;
             
-            this.writeCharacter(chara, usedColor, drawPosX, drawPosY, iScaleX, iScaleY, alpha);
-            pos += ((this.getChar(chara).getTextureRegion().getRegionWidth() + this.getFontData().getLetterSpacing()) * scaleX);
+            this.writeCharacter(glyph, usedColor, drawPosX, drawPosY, iScaleX, iScaleY, alpha * aAlpha);
+            pos += (advances[chara] * scaleX);
+        }
+        
+        return pos;
+    }
+    
+    /**
+     * Appends the glyphs of the provided text to the provided
+     * {@link TextLayout}, positioned at the given horizontal
+     * offset, instead of drawing them.
+     * 
+     * @return the width taken by the text, same as
+     *         {@link #write(String, Style, Color, float, float, float, float, float)}
+     */
+    public int layout(String text, Style style, Color color, float posX, TextLayout layout) {
+        int textLength = 0; // non-space characters
+        boolean blank = true;
+        for(int i = 0; i < text.length(); i++) {
+            char chara = text.charAt(i);
+            if(chara != ' ') {
+                textLength++;
+            }
+            
+            if(chara > ' ') {
+                blank = false;
+            }
+        }
+        
+        if(blank) {
+            return 0;
+        }
+        
+        int pos = 0;
+        float scaleX = layout.getScaleX();
+        layout.beginSegment(style);
+        for(int i = 0; i < text.length(); i++) {
+            char chara = text.charAt(i);
+            if(chara == ' ') {
+                pos += (data.getSpaceSize() * scaleX);
+                continue;
+            }
+            
+            Sprite glyph = this.getChar(chara);
+            if(glyph == null) {
+                continue; // not in this font
+            }
+            
+            layout.addGlyph(glyph, color, posX + pos, i, textLength);
+            pos += (advances[chara] * scaleX);
         }
         
         return pos;
     }
     
     public void writeCharacter(char character, Color color, float posX, float posY, float scaleX, float scaleY, float alpha) {
-        if(Character.valueOf(' ').compareTo(character) == 0) {
+        Sprite glyph = this.getChar(character);
+        if(character == ' ' || glyph == null) {
             return; // ignore spaces
         }
         
-        writeCharacter(this.getChar(character), color, posX, posY, scaleX, scaleY, alpha);
+        writeCharacter(glyph, color, posX, posY, scaleX, scaleY, alpha);
     }
     
     private void writeCharacter(Sprite charSprite, Color color, float posX, float posY, float scaleX, float scaleY, float alpha) {
@@ -79,6 +79,7 @@ public class Text extends TextComponent {
     }
     
     private List<TextComponent> members;
+    private TextLayout layout;
     
     private Text() {
         this.members = new ArrayList<>();
@@ -130,11 +131,43 @@ public class Text extends TextComponent {
         return new ArrayList<>(members);
     }
 
+    public int getMemberCount() {
+        return members.size();
+    }
+    
     public void addComponents(TextComponent... components) {
         for(TextComponent component : components) {
             component.parent = this;
             members.add(component);
         }
+        
+        this.touch();
+    }
+    
+    /**
+     * Returns the retained glyph layout of this {@link Text},
+     * rebuilding it only if a component changed or a different
+     * scale was requested since it was last built.
+     */
+    public TextLayout getLayout(float scaleX, float scaleY) {
+        if(layout == null) {
+            layout = new TextLayout();
+        }
+        
+        if(!layout.isValid(version, scaleX, scaleY)) {
+            layout.reset(version, scaleX, scaleY);
+            if(members.size() == 1) {
+                this.getFont().layout(this.getText(), this.getStyle(), this.getColor(), 0F, layout);
+            } else {
+                int pos = 0;
+                for(int i = 0; i < members.size(); i++) {
+                    TextComponent component = members.get(i);
+                    pos += component.getFont().layout(component.getText(), component.getStyle(), component.getColor(), pos, layout);
+                }
+            }
+        }
+        
+        return layout;
     }
 
     public TextComponent getComponentAtCharacter(int chara) {
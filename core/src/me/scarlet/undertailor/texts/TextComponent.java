@@ -35,7 +35,7 @@ public class TextComponent {
             return new DisplayMeta();
         }
         
-        public float offX, offY, scaleX, scaleY;
+        public float offX, offY, scaleX, scaleY, alpha;
         public Color color;
         
         public DisplayMeta() {
@@ -43,15 +43,30 @@ public class TextComponent {
         }
         
         public DisplayMeta(float offX, float offY, float scaleX, float scaleY, Color color) {
+            this(offX, offY, scaleX, scaleY, color, 1.0F);
+        }
+        
+        public DisplayMeta(float offX, float offY, float scaleX, float scaleY, Color color, float alpha) {
             this.offX = offX;
             this.offY = offY;
             this.scaleX = scaleX;
             this.scaleY = scaleY;
             this.color = color;
+            this.alpha = alpha;
+        }
+        
+        public DisplayMeta reset() {
+            this.offX = 0F;
+            this.offY = 0F;
+            this.scaleX = 1.0F;
+            this.scaleY = 1.0F;
+            this.color = null;
+            this.alpha = 1.0F;
+            return this;
         }
         
         public String toString() {
-            return "[" + offX + ", " + offY + ", " + scaleX + ", " + scaleY + "]";
+            return "[" + offX + ", " + offY + ", " + scaleX + ", " + scaleY + ", " + alpha + "]";
         }
     }
     
@@ -147,6 +162,7 @@ public class TextComponent {
     protected Integer speed;       // how many characters to play in a second
     protected Integer segmentSize; // characters in one segment?
     protected Float delay;         // delay between text components
+    protected int version;         // bumped whenever something affecting layout changes
     
     public static final int DEFAULT_SPEED = 35;
     
@@ -203,12 +219,24 @@ public class TextComponent {
         }
     }*/
     
+    public int getVersion() {
+        return version;
+    }
+    
+    protected void touch() {
+        this.version++;
+        if(parent != null) {
+            parent.touch();
+        }
+    }
+    
     public String getText() {
         return text;
     }
     
     public void setText(String text) {
         this.text = text;
+        this.touch();
     }
     
     public Color getColor() {
@@ -225,6 +253,7 @@ public class TextComponent {
     
     public void setColor(Color color) {
         this.color = color;
+        this.touch();
     }
     
     public SoundWrapper getSound() {
@@ -265,6 +294,7 @@ public class TextComponent {
     
     public void setStyle(Style style) {
         this.style = style;
+        this.touch();
     }
     
     public Font getFont() {
@@ -277,6 +307,7 @@ public class TextComponent {
     
     public void setFont(Font font) {
         this.font = font;
+        this.touch();
     }
     
     public float getDelay() {
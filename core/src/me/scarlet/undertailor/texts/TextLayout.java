@@ -0,0 +1,214 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.texts;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import me.scarlet.undertailor.Undertailor;
+import me.scarlet.undertailor.gfx.Sprite;
+import me.scarlet.undertailor.gfx.Sprite.SpriteMeta;
+import me.scarlet.undertailor.texts.TextComponent.DisplayMeta;
+import me.scarlet.undertailor.util.MultiRenderer;
+
+import java.util.Arrays;
+
+/**
+ * A retained layout of positioned glyphs for a single
+ * {@link Text} object.
+ * 
+ * <p>Glyphs are positioned relative to the text's origin
+ * once, and replayed every frame with nothing but the draw
+ * calls themselves. Glyphs belonging to a component with a
+ * {@link Style} are still passed through the style every
+ * frame, as styles are free to animate.</p>
+ */
+public class TextLayout {
+    
+    private static final Color RESTORE = new Color();
+    private static final int STRIDE = 7; // x, y, originX, originY, width, height, pen
+    
+    private int version;
+    private float scaleX, scaleY;
+    
+    // segments, one per written component
+    private int segmentCount;
+    private Style[] segmentStyles;
+    private int[] segmentEnds;
+    
+    // glyphs
+    private int glyphCount;
+    private Sprite[] sprites;
+    private Color[] colors;
+    private int[] charIndices;
+    private int[] textLengths;
+    private float[] quads;
+    
+    TextLayout() {
+        this.version = -1;
+        this.segmentStyles = new Style[2];
+        this.segmentEnds = new int[2];
+        
+        this.sprites = new Sprite[32];
+        this.colors = new Color[32];
+        this.charIndices = new int[32];
+        this.textLengths = new int[32];
+        this.quads = new float[32 * STRIDE];
+    }
+    
+    boolean isValid(int version, float scaleX, float scaleY) {
+        return this.version == version && this.scaleX == scaleX && this.scaleY == scaleY;
+    }
+    
+    void reset(int version, float scaleX, float scaleY) {
+        Arrays.fill(sprites, 0, glyphCount, null);
+        Arrays.fill(colors, 0, glyphCount, null);
+        Arrays.fill(segmentStyles, 0, segmentCount, null);
+        
+        this.version = version;
+        this.scaleX = scaleX;
+        this.scaleY = scaleY;
+        this.segmentCount = 0;
+        this.glyphCount = 0;
+    }
+    
+    void beginSegment(Style style) {
+        if(segmentCount == segmentStyles.length) {
+            segmentStyles = Arrays.copyOf(segmentStyles, segmentCount * 2);
+            segmentEnds = Arrays.copyOf(segmentEnds, segmentCount * 2);
+        }
+        
+        segmentStyles[segmentCount] = style;
+        segmentEnds[segmentCount] = glyphCount;
+        segmentCount++;
+    }
+    
+    void addGlyph(Sprite glyph, Color color, float pen, int charIndex, int textLength) {
+        if(glyphCount == sprites.length) {
+            int size = glyphCount * 2;
+            sprites = Arrays.copyOf(sprites, size);
+            colors = Arrays.copyOf(colors, size);
+            charIndices = Arrays.copyOf(charIndices, size);
+            textLengths = Arrays.copyOf(textLengths, size);
+            quads = Arrays.copyOf(quads, size * STRIDE);
+        }
+        
+        // same placement as Sprite.draw with ensureBottomLeft set
+        SpriteMeta meta = glyph.getMeta();
+        TextureRegion region = glyph.getTextureRegion();
+        float originX = meta == null ? 0F : meta.originX;
+        float originY = meta == null ? 0F : meta.originY;
+        int offX = meta == null ? 0 : meta.offX;
+        int offY = meta == null ? 0 : meta.offY;
+        
+        int index = glyphCount * STRIDE;
+        quads[index] = pen + (offX * scaleX) + originX;
+        quads[index + 1] = (offY * scaleY) + originY;
+        quads[index + 2] = originX;
+        quads[index + 3] = originY;
+        quads[index + 4] = region.getRegionWidth();
+        quads[index + 5] = region.getRegionHeight();
+        quads[index + 6] = pen;
+        
+        sprites[glyphCount] = glyph;
+        colors[glyphCount] = color == null ? Color.YELLOW : color;
+        charIndices[glyphCount] = charIndex;
+        textLengths[glyphCount] = textLength;
+        glyphCount++;
+        segmentEnds[segmentCount - 1] = glyphCount;
+    }
+    
+    public float getScaleX() {
+        return scaleX;
+    }
+    
+    public float getScaleY() {
+        return scaleY;
+    }
+    
+    public int getGlyphCount() {
+        return glyphCount;
+    }
+    
+    public void draw(float posX, float posY, float alpha) {
+        if(segmentCount == 0) {
+            return;
+        }
+        
+        MultiRenderer renderer = Undertailor.getRenderer();
+        RESTORE.set(renderer.getBatchColor());
+        
+        Color current = null;
+        int glyph = 0;
+        for(int i = 0; i < segmentCount; i++) {
+            Style style = segmentStyles[i];
+            if(style != null) {
+                style.onNextTextRender(Gdx.graphics.getDeltaTime());
+            }
+            
+            for(; glyph < segmentEnds[i]; glyph++) {
+                Color color = colors[glyph];
+                if(style == null) {
+                    if(color != current) {
+                        renderer.setBatchColor(color, alpha);
+                        current = color;
+                    }
+                    
+                    int index = glyph * STRIDE;
+                    renderer.draw(sprites[glyph].getTextureRegion(), posX + quads[index], posY + quads[index + 1],
+                            quads[index + 2], quads[index + 3], quads[index + 4], quads[index + 5], scaleX, scaleY, 0F);
+                } else {
+                    current = this.drawStyled(renderer, style, glyph, color, posX, posY, alpha);
+                }
+            }
+        }
+        
+        renderer.setBatchColor(RESTORE, RESTORE.a);
+    }
+    
+    private Color drawStyled(MultiRenderer renderer, Style style, int glyph, Color color, float posX, float posY, float alpha) {
+        float aX = 0F, aY = 0F, aScaleX = 1.0F, aScaleY = 1.0F, aAlpha = 1.0F;
+        Color usedColor = color;
+        DisplayMeta dmeta = style.applyCharacter(charIndices[glyph], textLengths[glyph]);
+        if(dmeta != null) {
+            aX = dmeta.offX;
+            aY = dmeta.offY;
+            aScaleX = dmeta.scaleX;
+            aScaleY = dmeta.scaleY;
+            aAlpha = dmeta.alpha;
+            usedColor = dmeta.color == null ? color : dmeta.color;
+        }
+        
+        renderer.setBatchColor(usedColor, alpha * aAlpha); // styles may hand back the same color object with new values
+        
+        int index = glyph * STRIDE;
+        float iScaleX = scaleX * aScaleX;
+        float iScaleY = scaleY * aScaleY;
+        float drawPosX = posX + quads[index + 6] + (aX * iScaleX);
+        float drawPosY = posY + (aY * iScaleY);
+        sprites[glyph].draw(drawPosX, drawPosY, iScaleX, iScaleY, 0F, false, false, (int) quads[index + 4], (int) quads[index + 5], true);
+        return null;
+    }
+}
@@ -0,0 +1,57 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.texts.styles;
+
+import com.badlogic.gdx.math.MathUtils;
+import me.scarlet.undertailor.texts.TextComponent.DisplayMeta;
+
+/**
+ * Fades characters in one after the other, starting from the
+ * last {@link #reset()}.
+ */
+public class FadeInStyle extends NativeStyle {
+    
+    public static final String[] PARAMETERS = {"delay", "duration"};
+    
+    private static final int DELAY = 0, DURATION = 1;
+    
+    public FadeInStyle() {
+        super(PARAMETERS, new float[] {0.05F, 0.2F});
+    }
+    
+    @Override
+    public DisplayMeta applyCharacter(int charIndex, int textLength) {
+        float elapsed = time - (charIndex * params[DELAY]);
+        
+        meta.reset();
+        meta.alpha = params[DURATION] > 0F ? MathUtils.clamp(elapsed / params[DURATION], 0F, 1F) : (elapsed >= 0F ? 1F : 0F);
+        return meta;
+    }
+    
+    @Override
+    protected NativeStyle newInstance() {
+        return new FadeInStyle();
+    }
+}
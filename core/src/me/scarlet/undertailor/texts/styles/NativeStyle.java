@@ -0,0 +1,103 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.texts.styles;
+
+import me.scarlet.undertailor.texts.Style;
+import me.scarlet.undertailor.texts.TextComponent.DisplayMeta;
+
+/**
+ * Base class for {@link Style}s implemented in Java, sparing
+ * the per-character calls into Lua.
+ * 
+ * <p>Native styles are configured through a fixed set of
+ * named float parameters, which can be changed at any time
+ * (including every frame) at no real cost. The
+ * {@link DisplayMeta} returned by
+ * {@link #applyCharacter(int, int)} is reused across calls and
+ * is only valid until the next one.</p>
+ */
+public abstract class NativeStyle implements Style {
+    
+    private String[] paramNames;
+    protected float[] params;
+    protected DisplayMeta meta;
+    protected float time;
+    
+    protected NativeStyle(String[] paramNames, float[] defaults) {
+        this.paramNames = paramNames;
+        this.params = defaults.clone();
+        this.meta = new DisplayMeta();
+        this.time = 0F;
+    }
+    
+    public String[] getParameterNames() {
+        return paramNames.clone();
+    }
+    
+    public float getParameter(String name) {
+        return params[this.indexOf(name)];
+    }
+    
+    public void setParameter(String name, float value) {
+        params[this.indexOf(name)] = value;
+    }
+    
+    /**
+     * Returns the time, in seconds, this style has been
+     * rendered for since its creation or its last
+     * {@link #reset()}.
+     */
+    public float getTime() {
+        return time;
+    }
+    
+    public void reset() {
+        this.time = 0F;
+    }
+    
+    @Override
+    public void onNextTextRender(float delta) {
+        this.time += delta;
+    }
+    
+    @Override
+    public Style duplicate() {
+        NativeStyle copy = this.newInstance();
+        System.arraycopy(params, 0, copy.params, 0, params.length);
+        return copy;
+    }
+    
+    protected abstract NativeStyle newInstance();
+    
+    private int indexOf(String name) {
+        for(int i = 0; i < paramNames.length; i++) {
+            if(paramNames[i].equals(name)) {
+                return i;
+            }
+        }
+        
+        throw new IllegalArgumentException("unknown style parameter \"" + name + "\"");
+    }
+}
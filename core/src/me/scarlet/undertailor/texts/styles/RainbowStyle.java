@@ -0,0 +1,80 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.texts.styles;
+
+import com.badlogic.gdx.graphics.Color;
+import me.scarlet.undertailor.texts.TextComponent.DisplayMeta;
+
+/**
+ * Cycles characters through the hues of the rainbow.
+ */
+public class RainbowStyle extends NativeStyle {
+    
+    public static final String[] PARAMETERS = {"speed", "spread", "saturation", "value"};
+    
+    private static final int SPEED = 0, SPREAD = 1, SATURATION = 2, VALUE = 3;
+    
+    private Color color;
+    
+    public RainbowStyle() {
+        super(PARAMETERS, new float[] {180F, 30F, 1F, 1F});
+        this.color = new Color(Color.WHITE);
+    }
+    
+    @Override
+    public DisplayMeta applyCharacter(int charIndex, int textLength) {
+        float hue = ((time * params[SPEED]) + (charIndex * params[SPREAD])) % 360F;
+        if(hue < 0F) {
+            hue += 360F;
+        }
+        
+        setHsv(color, hue, params[SATURATION], params[VALUE]);
+        meta.reset();
+        meta.color = color;
+        return meta;
+    }
+    
+    @Override
+    protected NativeStyle newInstance() {
+        return new RainbowStyle();
+    }
+    
+    private static void setHsv(Color color, float hue, float saturation, float value) {
+        float h = hue / 60F;
+        int sector = (int) h;
+        float f = h - sector;
+        float p = value * (1F - saturation);
+        float q = value * (1F - (saturation * f));
+        float t = value * (1F - (saturation * (1F - f)));
+        switch(sector) {
+            case 0: color.set(value, t, p, 1F); break;
+            case 1: color.set(q, value, p, 1F); break;
+            case 2: color.set(p, value, t, 1F); break;
+            case 3: color.set(p, q, value, 1F); break;
+            case 4: color.set(t, p, value, 1F); break;
+            default: color.set(value, p, q, 1F); break;
+        }
+    }
+}
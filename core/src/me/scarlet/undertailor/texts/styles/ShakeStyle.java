@@ -0,0 +1,82 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.texts.styles;
+
+import me.scarlet.undertailor.texts.TextComponent.DisplayMeta;
+
+/**
+ * Jitters characters by whole pixels, picking new offsets
+ * every <code>interval</code> seconds.
+ */
+public class ShakeStyle extends NativeStyle {
+    
+    public static final String[] PARAMETERS = {"magnitude", "interval"};
+    
+    private static final int MAGNITUDE = 0, INTERVAL = 1;
+    
+    private int frame;
+    
+    public ShakeStyle() {
+        super(PARAMETERS, new float[] {1F, 0.05F});
+        this.frame = 0;
+    }
+    
+    @Override
+    public void onNextTextRender(float delta) {
+        super.onNextTextRender(delta);
+        this.frame++;
+    }
+    
+    @Override
+    public DisplayMeta applyCharacter(int charIndex, int textLength) {
+        int tick = params[INTERVAL] > 0F ? (int) (time / params[INTERVAL]) : frame;
+        int hash = mix((tick * 31) + charIndex);
+        
+        meta.reset();
+        meta.offX = Math.round(params[MAGNITUDE] * toUnit(hash));
+        meta.offY = Math.round(params[MAGNITUDE] * toUnit(hash >>> 16));
+        return meta;
+    }
+    
+    @Override
+    protected NativeStyle newInstance() {
+        return new ShakeStyle();
+    }
+    
+    // cheap integer hash, stable for the same tick and character
+    private static int mix(int value) {
+        value ^= value >>> 16;
+        value *= 0x85EBCA6B;
+        value ^= value >>> 13;
+        value *= 0xC2B2AE35;
+        value ^= value >>> 16;
+        return value;
+    }
+    
+    // low 16 bits to [-1, 1]
+    private static float toUnit(int value) {
+        return ((value & 0xFFFF) / 32767.5F) - 1F;
+    }
+}
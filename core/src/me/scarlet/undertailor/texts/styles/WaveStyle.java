@@ -0,0 +1,54 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.texts.styles;
+
+import com.badlogic.gdx.math.MathUtils;
+import me.scarlet.undertailor.texts.TextComponent.DisplayMeta;
+
+/**
+ * Moves characters up and down along a sine wave.
+ */
+public class WaveStyle extends NativeStyle {
+    
+    public static final String[] PARAMETERS = {"amplitude", "frequency", "speed"};
+    
+    private static final int AMPLITUDE = 0, FREQUENCY = 1, SPEED = 2;
+    
+    public WaveStyle() {
+        super(PARAMETERS, new float[] {2F, 0.5F, 8F});
+    }
+    
+    @Override
+    public DisplayMeta applyCharacter(int charIndex, int textLength) {
+        meta.reset();
+        meta.offY = params[AMPLITUDE] * MathUtils.sin((time * params[SPEED]) - (charIndex * params[FREQUENCY]));
+        return meta;
+    }
+    
+    @Override
+    protected NativeStyle newInstance() {
+        return new WaveStyle();
+    }
+}
@@ -0,0 +1,213 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.util;
+
+import java.util.Arrays;
+
+/**
+ * A compact buffer of draw commands recorded by a
+ * {@link MultiRenderer} running in deferred mode.
+ * 
+ * <p>Each recorded command is assigned to a group of
+ * commands sharing the same state key (the texture for
+ * sprites, the shape type for shapes). A command may only
+ * join an earlier group if it does not overlap anything
+ * drawn by the groups recorded after it, so regrouping
+ * never changes what ends up on screen.</p>
+ */
+class DrawCommandBuffer {
+    
+    static final int SPRITE = 0;
+    static final int TEXTURE = 1;
+    static final int LINE = 2;
+    static final int ARC = 3;
+    static final int RECT = 4;
+    static final int CIRCLE = 5;
+    static final int FILLED_CIRCLE = 6;
+    static final int TRIANGLE = 7;
+    
+    private static final int GROUP_LOOKBACK = 16;
+    
+    private int count;
+    private int[] types;
+    private int[] offsets;
+    private int[] groups;
+    private Object[] objects;
+    
+    private int paramCount;
+    private float[] params;
+    
+    private int groupCount;
+    private Object[] groupKeys;
+    private float[] groupBounds;
+    private int[] groupStarts;
+    
+    private int[] order;
+    private Object lastKey;
+    private int recordedSwitches;
+    
+    DrawCommandBuffer() {
+        this.types = new int[256];
+        this.offsets = new int[256];
+        this.groups = new int[256];
+        this.objects = new Object[256];
+        this.order = new int[256];
+        this.params = new float[256 * 12];
+        this.groupKeys = new Object[64];
+        this.groupBounds = new float[64 * 4];
+        this.groupStarts = new int[65];
+        this.clear();
+    }
+    
+    boolean isEmpty() {
+        return count == 0;
+    }
+    
+    int size() {
+        return count;
+    }
+    
+    /**
+     * Starts recording a new command. Parameters of the
+     * command are then pushed through {@link #put(float)}.
+     */
+    void add(int type, Object key, Object object, float minX, float minY, float maxX, float maxY) {
+        if(count == types.length) {
+            int size = count * 2;
+            types = Arrays.copyOf(types, size);
+            offsets = Arrays.copyOf(offsets, size);
+            groups = Arrays.copyOf(groups, size);
+            objects = Arrays.copyOf(objects, size);
+            order = Arrays.copyOf(order, size);
+        }
+        
+        if(count == 0 || key != lastKey) {
+            recordedSwitches++;
+        }
+        
+        this.lastKey = key;
+        types[count] = type;
+        offsets[count] = paramCount;
+        objects[count] = object;
+        groups[count] = this.assignGroup(key, minX, minY, maxX, maxY);
+        count++;
+    }
+    
+    void put(float value) {
+        if(paramCount == params.length) {
+            params = Arrays.copyOf(params, paramCount * 2);
+        }
+        
+        params[paramCount++] = value;
+    }
+    
+    /**
+     * Orders the recorded commands by their groups.
+     * 
+     * @return the amount of state switches avoided
+     */
+    int sort() {
+        Arrays.fill(groupStarts, 0, groupCount + 1, 0);
+        for(int i = 0; i < count; i++) {
+            groupStarts[groups[i] + 1]++;
+        }
+        
+        for(int i = 0; i < groupCount; i++) {
+            groupStarts[i + 1] += groupStarts[i];
+        }
+        
+        for(int i = 0; i < count; i++) {
+            order[groupStarts[groups[i]]++] = i;
+        }
+        
+        int switches = 0;
+        for(int i = 0; i < groupCount; i++) {
+            if(i == 0 || groupKeys[i] != groupKeys[i - 1]) {
+                switches++;
+            }
+        }
+        
+        return recordedSwitches - switches;
+    }
+    
+    int get(int index) {
+        return order[index];
+    }
+    
+    int getType(int command) {
+        return types[command];
+    }
+    
+    Object getObject(int command) {
+        return objects[command];
+    }
+    
+    float getParam(int command, int index) {
+        return params[offsets[command] + index];
+    }
+    
+    void clear() {
+        Arrays.fill(objects, 0, count, null);
+        Arrays.fill(groupKeys, 0, groupCount, null);
+        this.count = 0;
+        this.paramCount = 0;
+        this.groupCount = 0;
+        this.lastKey = null;
+        this.recordedSwitches = 0;
+    }
+    
+    private int assignGroup(Object key, float minX, float minY, float maxX, float maxY) {
+        int limit = Math.max(0, groupCount - GROUP_LOOKBACK);
+        for(int i = groupCount - 1; i >= limit; i--) {
+            int b = i * 4;
+            if(groupKeys[i] == key) {
+                groupBounds[b] = Math.min(groupBounds[b], minX);
+                groupBounds[b + 1] = Math.min(groupBounds[b + 1], minY);
+                groupBounds[b + 2] = Math.max(groupBounds[b + 2], maxX);
+                groupBounds[b + 3] = Math.max(groupBounds[b + 3], maxY);
+                return i;
+            }
+            
+            if(maxX >= groupBounds[b] && minX <= groupBounds[b + 2]
+                    && maxY >= groupBounds[b + 1] && minY <= groupBounds[b + 3]) {
+                break; // overlaps; can't be drawn before this group
+            }
+        }
+        
+        if(groupCount == groupKeys.length) {
+            groupKeys = Arrays.copyOf(groupKeys, groupCount * 2);
+            groupBounds = Arrays.copyOf(groupBounds, groupCount * 8);
+            groupStarts = Arrays.copyOf(groupStarts, (groupCount * 2) + 1);
+        }
+        
+        int b = groupCount * 4;
+        groupKeys[groupCount] = key;
+        groupBounds[b] = minX;
+        groupBounds[b + 1] = minY;
+        groupBounds[b + 2] = maxX;
+        groupBounds[b + 3] = maxY;
+        return groupCount++;
+    }
+}
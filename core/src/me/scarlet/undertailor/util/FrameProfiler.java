@@ -0,0 +1,288 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.util;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.Vector2;
+import me.scarlet.undertailor.Undertailor;
+import me.scarlet.undertailor.lua.LuaObjectValue;
+import me.scarlet.undertailor.texts.Font;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Times the phases of each frame.
+ * 
+ * <p>Every phase records its self time; time spent within a
+ * phase nested inside it (such as collision within overworld
+ * processing) is only counted towards the nested phase. The
+ * last {@link #DEFAULT_WINDOW} frames are kept per phase,
+ * from which percentiles are computed on request.</p>
+ * 
+ * <p>Collection itself performs no allocation; only the
+ * overlay and {@link #dump()} do.</p>
+ */
+public class FrameProfiler {
+    
+    public static final String PROFILER_TAG = "profiler";
+    
+    public static final int SCHEDULER = 0;
+    public static final int UI_PROCESS = 1;
+    public static final int OVERWORLD_PROCESS = 2;
+    public static final int COLLISION = 3;
+    public static final int ROOM_RENDER = 4;
+    public static final int UI_RENDER = 5;
+    public static final int FLUSH = 6;
+    
+    public static final String[] PHASE_NAMES = {"scheduler", "ui process", "overworld process", "collision", "room render", "ui render", "flush"};
+    public static final int DEFAULT_WINDOW = 240;
+    
+    private static final long FRAME_BUDGET = 16666667L; // 60 fps, in nanoseconds
+    private static final int OVERLAY_FRAMES = 120;
+    private static final float OVERLAY_HEIGHT = 100F; // pixels per frame budget
+    private static final int OVERLAY_REFRESH = 30; // frames between overlay text updates
+    
+    private boolean enabled;
+    private boolean overlay;
+    
+    private int window;
+    private long frames;
+    private int head;
+    private long[][] samples; // [phase][frame]
+    private long[] current;
+    private long[] wrappers; // lua wrappers created per frame
+    private long lastWrapperCount;
+    
+    // nesting stack
+    private int depth;
+    private int[] stackPhase;
+    private long[] stackStart;
+    private long[] stackChild;
+    
+    private long[] sorted;
+    private Color[] colors;
+    private String[] overlayLines;
+    private Vector2 drawPos;
+    private Vector2 drawEnd;
+    
+    public FrameProfiler() {
+        this(DEFAULT_WINDOW);
+    }
+    
+    public FrameProfiler(int window) {
+        this.enabled = false;
+        this.overlay = false;
+        
+        this.window = window;
+        this.frames = 0;
+        this.head = 0;
+        this.samples = new long[PHASE_NAMES.length][window];
+        this.current = new long[PHASE_NAMES.length];
+        this.wrappers = new long[window];
+        this.lastWrapperCount = LuaObjectValue.getCreatedCount();
+        
+        this.depth = 0;
+        this.stackPhase = new int[PHASE_NAMES.length];
+        this.stackStart = new long[PHASE_NAMES.length];
+        this.stackChild = new long[PHASE_NAMES.length];
+        
+        this.sorted = new long[window];
+        this.colors = new Color[] {
+                new Color(Color.GOLD), new Color(Color.SKY), new Color(Color.LIME), new Color(Color.ORANGE),
+                new Color(Color.RED), new Color(Color.VIOLET), new Color(Color.LIGHT_GRAY)
+        };
+        this.overlayLines = new String[PHASE_NAMES.length];
+        this.drawPos = new Vector2();
+        this.drawEnd = new Vector2();
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public void setEnabled(boolean flag) {
+        this.enabled = flag;
+        this.depth = 0;
+        Arrays.fill(current, 0L);
+        this.lastWrapperCount = LuaObjectValue.getCreatedCount();
+    }
+    
+    public boolean isShowingOverlay() {
+        return overlay;
+    }
+    
+    public void setShowingOverlay(boolean flag) {
+        this.overlay = flag;
+        Arrays.fill(overlayLines, null);
+    }
+    
+    public void begin(int phase) {
+        if(!enabled || depth == stackPhase.length) {
+            return;
+        }
+        
+        stackPhase[depth] = phase;
+        stackChild[depth] = 0L;
+        stackStart[depth] = System.nanoTime();
+        depth++;
+    }
+    
+    public void end(int phase) {
+        if(!enabled) {
+            return;
+        }
+        
+        long now = System.nanoTime();
+        while(depth > 0) { // unwind anything left open by an exception
+            depth--;
+            long total = now - stackStart[depth];
+            current[stackPhase[depth]] += total - stackChild[depth];
+            if(depth > 0) {
+                stackChild[depth - 1] += total;
+            }
+            
+            if(stackPhase[depth] == phase) {
+                break;
+            }
+        }
+    }
+    
+    /**
+     * Commits the times collected during the current frame
+     * into the rolling window.
+     */
+    public void endFrame() {
+        if(!enabled) {
+            return;
+        }
+        
+        for(int i = 0; i < current.length; i++) {
+            samples[i][head] = current[i];
+            current[i] = 0L;
+        }
+        
+        long wrapperCount = LuaObjectValue.getCreatedCount();
+        this.wrappers[head] = wrapperCount - lastWrapperCount;
+        this.lastWrapperCount = wrapperCount;
+        
+        this.depth = 0;
+        this.head = (head + 1) % window;
+        this.frames++;
+    }
+    
+    /**
+     * Returns the given percentile, from 0 to 1, of the times
+     * recorded for the given phase within the rolling window,
+     * in nanoseconds.
+     */
+    public long getPercentile(int phase, float percentile) {
+        int count = (int) Math.min(frames, window);
+        if(count == 0) {
+            return 0L;
+        }
+        
+        System.arraycopy(samples[phase], 0, sorted, 0, count);
+        Arrays.sort(sorted, 0, count);
+        int index = (int) Math.ceil(percentile * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+    
+    public void dump() {
+        Undertailor.instance.log(PROFILER_TAG, "frame times over the last " + Math.min(frames, window) + " frame(s) (p50 / p95 / p99):");
+        for(int i = 0; i < PHASE_NAMES.length; i++) {
+            Undertailor.instance.log(PROFILER_TAG, "  " + this.formatPhase(i));
+        }
+        
+        int count = (int) Math.min(frames, window);
+        long churn = 0L, peak = 0L;
+        for(int i = 0; i < count; i++) {
+            churn += wrappers[i];
+            peak = Math.max(peak, wrappers[i]);
+        }
+        
+        Undertailor.instance.log(PROFILER_TAG, "  lua wrappers: " + churn + " created (peak " + peak + "/frame), "
+                + LuaObjectValue.getCreatedCount() + " total, " + LuaObjectValue.getCachedCount() + " cached");
+        
+        Map<String, Integer> overruns = Undertailor.getScriptManager().getBudget().getOverruns();
+        if(!overruns.isEmpty()) {
+            Undertailor.instance.log(PROFILER_TAG, "  lua budget overruns:");
+            overruns.forEach((script, overrun) -> Undertailor.instance.log(PROFILER_TAG, "    " + script + ": " + overrun));
+        }
+    }
+    
+    /**
+     * Draws a stacked bar graph of the most recent frames,
+     * along with the percentiles of each phase.
+     */
+    public void renderOverlay(float posX, float posY) {
+        if(!enabled || !overlay) {
+            return;
+        }
+        
+        MultiRenderer renderer = Undertailor.getRenderer();
+        int count = (int) Math.min(frames, Math.min(window, OVERLAY_FRAMES));
+        float barWidth = 2F;
+        float scale = OVERLAY_HEIGHT / FRAME_BUDGET;
+        for(int i = 0; i < count; i++) {
+            int frame = (head - count + i + window) % window;
+            float y = posY;
+            for(int phase = 0; phase < PHASE_NAMES.length; phase++) {
+                float height = samples[phase][frame] * scale;
+                if(height > 0F) {
+                    renderer.setShapeColor(colors[phase], 1F);
+                    renderer.drawFilledRectangle(drawPos.set(posX + (i * barWidth), y), barWidth, height);
+                    y += height;
+                }
+            }
+        }
+        
+        renderer.setShapeColor(Color.WHITE, 1F);
+        renderer.drawLine(drawPos.set(posX, posY + OVERLAY_HEIGHT), drawEnd.set(posX + (OVERLAY_FRAMES * barWidth), posY + OVERLAY_HEIGHT), 1F);
+        
+        Font font = Undertailor.getFontManager().getFont("8bitop");
+        if(font == null) {
+            return;
+        }
+        
+        if(overlayLines[0] == null || frames % OVERLAY_REFRESH == 0) {
+            for(int i = 0; i < PHASE_NAMES.length; i++) {
+                overlayLines[i] = this.formatPhase(i);
+            }
+        }
+        
+        float textX = posX + (OVERLAY_FRAMES * barWidth) + 8F;
+        for(int i = 0; i < PHASE_NAMES.length; i++) {
+            font.write(overlayLines[i], null, colors[i], textX, posY + ((PHASE_NAMES.length - 1 - i) * 14F));
+        }
+    }
+    
+    private String formatPhase(int phase) {
+        return String.format("%s: %.2fms / %.2fms / %.2fms", PHASE_NAMES[phase],
+                getPercentile(phase, 0.50F) / 1000000F,
+                getPercentile(phase, 0.95F) / 1000000F,
+                getPercentile(phase, 0.99F) / 1000000F);
+    }
+}
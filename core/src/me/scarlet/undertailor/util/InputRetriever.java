@@ -26,6 +26,8 @@ package me.scarlet.undertailor.util;
 
 import com.badlogic.gdx.InputProcessor;
 import com.badlogic.gdx.utils.TimeUtils;
+import me.scarlet.undertailor.lua.LuaObjectValue;
+import me.scarlet.undertailor.lua.LuaWrappable;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -34,11 +36,12 @@ public class InputRetriever implements InputProcessor {
     
     public static InputData currentData;
     
-    public static class InputData {
+    public static class InputData implements LuaWrappable {
 
         private long currentTick;
         private boolean isConsumed;
         private Map<Integer, PressData> pressData;
+        private LuaObjectValue<?> luaWrapper;
         
         public InputData(Map<Integer, PressData> pressData) {
             this.isConsumed = false;
@@ -60,9 +63,19 @@ public class InputRetriever implements InputProcessor {
         public void consume() {
             this.isConsumed = true;
         }
+        
+        @Override
+        public LuaObjectValue<?> getLuaWrapper() {
+            return luaWrapper;
+        }
+        
+        @Override
+        public void setLuaWrapper(LuaObjectValue<?> wrapper) {
+            this.luaWrapper = wrapper;
+        }
     }
     
-    public static class PressData {
+    public static class PressData implements LuaWrappable {
         
         private long holdTime;
         private InputData parent;
@@ -71,6 +84,7 @@ public class InputRetriever implements InputProcessor {
         private long lastPressTime;
         private long lastReleaseTick;
         private long lastReleaseTime;
+        private LuaObjectValue<?> luaWrapper;
         
         public PressData(InputData parent) {
             this.isPressed = false;
@@ -143,6 +157,16 @@ public class InputRetriever implements InputProcessor {
             this.lastPressTick = parent.currentTick;
             this.lastPressTime = TimeUtils.millis();
         }
+        
+        @Override
+        public LuaObjectValue<?> getLuaWrapper() {
+            return luaWrapper;
+        }
+        
+        @Override
+        public void setLuaWrapper(LuaObjectValue<?> wrapper) {
+            this.luaWrapper = wrapper;
+        }
     }
     
     private long tick;
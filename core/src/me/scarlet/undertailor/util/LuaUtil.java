@@ -26,9 +26,13 @@ package me.scarlet.undertailor.util;
 
 import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.exception.LuaScriptException;
+import me.scarlet.undertailor.lua.LuaImplementation;
+import me.scarlet.undertailor.lua.LuaObjectValue;
+import me.scarlet.undertailor.lua.LuaProfiler;
 import me.scarlet.undertailor.manager.StyleManager;
 import org.luaj.vm2.Globals;
 import org.luaj.vm2.LoadState;
+import org.luaj.vm2.LuaClosure;
 import org.luaj.vm2.LuaError;
 import org.luaj.vm2.LuaFunction;
 import org.luaj.vm2.LuaTable;
@@ -37,16 +41,19 @@ import org.luaj.vm2.Varargs;
 import org.luaj.vm2.compiler.LuaC;
 import org.luaj.vm2.lib.BaseLib;
 import org.luaj.vm2.lib.jse.JseBaseLib;
+import org.luaj.vm2.luajc.JavaLoader;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Consumer;
 
 public class LuaUtil {
     
+    private static float lastDelta = Float.NaN;
+    private static LuaValue lastDeltaValue = null;
+    
     /**
      * Iterate through the values of a {@link LuaTable}.
      * 
@@ -127,7 +134,7 @@ public class LuaUtil {
         }
         
         iterateTable(globals, entry -> {
-            if(entry.arg(2).tojstring().startsWith("function: @")) {
+            if(isScriptFunction(entry.arg(2))) {
                 functions.put(entry.arg(1).tojstring(), entry.arg(2).checkfunction());
             }
         });
@@ -135,6 +142,15 @@ public class LuaUtil {
         return functions;
     }
     
+    /**
+     * Returns whether the given value is a function defined
+     * by a script, whether interpreted or compiled by LuaJC,
+     * rather than one provided by a library.
+     */
+    public static boolean isScriptFunction(LuaValue value) {
+        return value instanceof LuaClosure || (value.isfunction() && value.getClass().getClassLoader() instanceof JavaLoader);
+    }
+    
     public static void checkArguments(Varargs args, int min, int max) {
         if(args.narg() < min || (max > 0 && args.narg() > max)) {
             throw new LuaError("arguments insufficient or overflowing (min " + min + (max <= 0 ? ")" : " max " + max + ")"));
@@ -199,13 +215,36 @@ public class LuaUtil {
     }
     
     public static Varargs invokeNonNull(LuaValue source, String functionName, Varargs args) {
-        if(!source.rawget(functionName).isnil()) {
-            return source.rawget(functionName).invoke(args);
+        LuaValue func = source.rawget(functionName);
+        if(!func.isnil()) {
+            LuaProfiler profiler = Undertailor.getScriptManager().getProfiler();
+            if(!profiler.isRunning()) {
+                return func.invoke(args);
+            }
+            
+            profiler.enter(getScriptName(source), functionName);
+            try {
+                return func.invoke(args);
+            } finally {
+                profiler.exit();
+            }
         }
         
         return null;
     }
     
+    /**
+     * Returns the name of the script implementing the given
+     * value, or its type name if it isn't an implementation.
+     */
+    public static String getScriptName(LuaValue value) {
+        if(value instanceof LuaObjectValue && ((LuaObjectValue<?>) value).getObject() instanceof LuaImplementation) {
+            return ((LuaImplementation) ((LuaObjectValue<?>) value).getObject()).getScriptName();
+        }
+        
+        return value.typename();
+    }
+    
     public static Varargs invokeNonNull(LuaValue source, String functionName, LuaValue... args) {
         return invokeNonNull(source, functionName, asVarargs(args));
     }
@@ -222,17 +261,25 @@ public class LuaUtil {
         return invokeNonNull(func, asVarargs(args));
     }
     
+    /**
+     * Boxes a frame delta as a Lua value, reusing the last
+     * one boxed as every script processed in a frame is
+     * usually given the same delta.
+     */
+    public static LuaValue deltaValue(float delta) {
+        if(delta != lastDelta || lastDeltaValue == null) {
+            lastDeltaValue = LuaValue.valueOf(delta);
+            lastDelta = delta;
+        }
+        
+        return lastDeltaValue;
+    }
+    
     public static String formatJavaException(Exception e) {
         return e.getClass().getSimpleName() + " - " + e.getMessage();
     }
     
     public static void loadFile(Globals loader, File scriptFile) throws FileNotFoundException {
-        InputStream stream = loader.finder.findResource(scriptFile.getAbsolutePath());
-        if(stream == null) {
-            throw new FileNotFoundException(scriptFile.getAbsolutePath());
-        }
-        
-        String chunkname = "@" + scriptFile.getName();
-        loader.load(stream, chunkname, "bt", loader).invoke();
+        Undertailor.getScriptManager().loadScript(scriptFile, loader).invoke();
     }
 }
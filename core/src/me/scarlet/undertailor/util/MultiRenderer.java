@@ -26,24 +26,129 @@ package me.scarlet.undertailor.util;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.graphics.glutils.ShaderProgram;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer.ShapeType;
 import com.badlogic.gdx.math.Matrix4;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntArray;
 
-public class MultiRenderer {
+public class MultiRenderer implements Disposable {
+    
+    /**
+     * {@link ShaderProgram} shared between the {@link SpriteCache}s drawn by a
+     * renderer, multiplying their vertex colors by a tint set when drawing.
+     * 
+     * <p>SpriteCache disposes the shader it was created with, so disposing
+     * does nothing here; the owning renderer releases it instead.</p>
+     */
+    static class CacheShader extends ShaderProgram {
+        
+        static final String VERTEX = "attribute vec4 " + ShaderProgram.POSITION_ATTRIBUTE + ";\n"
+            + "attribute vec4 " + ShaderProgram.COLOR_ATTRIBUTE + ";\n"
+            + "attribute vec2 " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n"
+            + "uniform mat4 u_projTrans;\n"
+            + "uniform vec4 u_tint;\n"
+            + "varying vec4 v_color;\n"
+            + "varying vec2 v_texCoords;\n"
+            + "void main() {\n"
+            + "    v_color = " + ShaderProgram.COLOR_ATTRIBUTE + ";\n"
+            + "    v_color.a = v_color.a * (255.0/254.0);\n"
+            + "    v_color = v_color * u_tint;\n"
+            + "    v_texCoords = " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n"
+            + "    gl_Position = u_projTrans * " + ShaderProgram.POSITION_ATTRIBUTE + ";\n"
+            + "}\n";
+        static final String FRAGMENT = "#ifdef GL_ES\n"
+            + "precision mediump float;\n"
+            + "#endif\n"
+            + "varying vec4 v_color;\n"
+            + "varying vec2 v_texCoords;\n"
+            + "uniform sampler2D u_texture;\n"
+            + "void main() {\n"
+            + "    gl_FragColor = v_color * texture2D(u_texture, v_texCoords);\n"
+            + "}\n";
+        
+        CacheShader() {
+            super(VERTEX, FRAGMENT);
+            if(!this.isCompiled()) {
+                throw new IllegalStateException("could not compile cache shader: " + this.getLog());
+            }
+            
+            // set by SpriteCache.begin() for custom shaders, unused here
+            this.fetchUniformLocation("u_proj", false);
+            this.fetchUniformLocation("u_trans", false);
+        }
+        
+        @Override
+        public void dispose() {}
+        
+        void release() {
+            super.dispose();
+        }
+    }
     
     private Color clearColor;
     private SpriteBatch batch;
     private ShapeRenderer renderer;
+    
+    private boolean deferred;
+    private long flushesAvoided;
+    private DrawCommandBuffer commands;
+    private CacheShader cacheShader;
     public MultiRenderer() {
         this.clearColor = Color.BLACK;
         this.batch = new SpriteBatch();
         this.renderer = new ShapeRenderer();
+        
+        this.deferred = false;
+        this.flushesAvoided = 0;
+        this.commands = new DrawCommandBuffer();
+    }
+    
+    /**
+     * Returns whether or not this renderer is running in
+     * deferred mode.
+     * 
+     * <p>In deferred mode, draw calls are recorded instead of
+     * being drawn immediately. Recorded commands are regrouped
+     * by renderer and texture wherever it doesn't change the
+     * drawn result, and are drawn when the renderer is
+     * flushed, or when the projection matrix, transform matrix,
+     * shader or blending state is changed.</p>
+     * 
+     * @return if this renderer is deferring draw calls
+     */
+    public boolean isDeferred() {
+        return deferred;
+    }
+    
+    public void setDeferred(boolean flag) {
+        if(!flag) {
+            this.drawCommands();
+        }
+        
+        this.deferred = flag;
+    }
+    
+    /**
+     * Returns the amount of batch flushes avoided by deferred
+     * mode since the last call to
+     * {@link #resetFlushesAvoided()}.
+     * 
+     * @return the amount of flushes avoided
+     */
+    public long getFlushesAvoided() {
+        return flushesAvoided;
+    }
+    
+    public void resetFlushesAvoided() {
+        this.flushesAvoided = 0;
     }
     
     public void setProjectionMatrix(Matrix4 matrix) {
@@ -77,6 +182,7 @@ public class MultiRenderer {
     }
     
     public void flush() {
+        this.drawCommands();
         if(batch.isDrawing()) {
             batch.end();
         }
@@ -104,6 +210,7 @@ public class MultiRenderer {
     }
     
     public void setBatchProjectionMatrix(Matrix4 matrix) {
+        this.drawCommands();
         batch.setProjectionMatrix(matrix);
     }
     
@@ -112,6 +219,7 @@ public class MultiRenderer {
     }
     
     public void setBatchTransformMatrix(Matrix4 matrix) {
+        this.drawCommands();
         batch.setTransformMatrix(matrix);
     }
     
@@ -124,6 +232,7 @@ public class MultiRenderer {
             return;
         }
         
+        this.drawCommands();
         if(flag) {
             batch.enableBlending();
         } else {
@@ -145,10 +254,19 @@ public class MultiRenderer {
     }
     
     public void setBatchShader(ShaderProgram shader) {
+        this.drawCommands();
         batch.setShader(shader);
     }
     
     public void draw(Texture texture, float x, float y) {
+        if(deferred) {
+            commands.add(DrawCommandBuffer.TEXTURE, texture, texture, x, y, x + texture.getWidth(), y + texture.getHeight());
+            commands.put(batch.getPackedColor());
+            commands.put(x);
+            commands.put(y);
+            return;
+        }
+        
         this.startDrawingSprite();
         batch.draw(texture, x, y);
     }
@@ -174,10 +292,109 @@ public class MultiRenderer {
     }
     
     public void draw(TextureRegion region, float x, float y, float originX, float originY, float width, float height, float scaleX, float scaleY, float rotation) {
+        if(deferred) {
+            float wX = x + originX;
+            float wY = y + originY;
+            float x1 = -originX * scaleX, x2 = (width - originX) * scaleX;
+            float y1 = -originY * scaleY, y2 = (height - originY) * scaleY;
+            if(rotation != 0F) {
+                float rX = Math.max(Math.abs(x1), Math.abs(x2));
+                float rY = Math.max(Math.abs(y1), Math.abs(y2));
+                float radius = (float) Math.sqrt((rX * rX) + (rY * rY));
+                commands.add(DrawCommandBuffer.SPRITE, region.getTexture(), region, wX - radius, wY - radius, wX + radius, wY + radius);
+            } else {
+                commands.add(DrawCommandBuffer.SPRITE, region.getTexture(), region,
+                        wX + Math.min(x1, x2), wY + Math.min(y1, y2), wX + Math.max(x1, x2), wY + Math.max(y1, y2));
+            }
+            
+            commands.put(batch.getPackedColor());
+            commands.put(x);
+            commands.put(y);
+            commands.put(originX);
+            commands.put(originY);
+            commands.put(width);
+            commands.put(height);
+            commands.put(scaleX);
+            commands.put(scaleY);
+            commands.put(rotation);
+            commands.put(region.isFlipX() ? 1F : 0F);
+            commands.put(region.isFlipY() ? 1F : 0F);
+            return;
+        }
+        
         this.startDrawingSprite();
         batch.draw(region, x, y, originX, originY, width, height, scaleX, scaleY, rotation);
     }
     
+    /**
+     * Returns the shader {@link SpriteCache}s drawn through
+     * {@link #drawCache(SpriteCache, IntArray, Color, float)}
+     * should be created with, compiling it on first use.
+     * 
+     * <p>The shader is shared; caches can be disposed freely
+     * without disposing it.</p>
+     */
+    public ShaderProgram getCacheShader() {
+        if(cacheShader == null) {
+            cacheShader = new CacheShader();
+        }
+        
+        return cacheShader;
+    }
+    
+    /**
+     * Draws cached sets of sprites, using the current
+     * projection and transform matrices and blending state of
+     * the underlying {@link SpriteBatch}.
+     * 
+     * <p>The cache must have been created with
+     * {@link #getCacheShader()}. Its sprites are tinted by the
+     * given color and alpha as they are drawn, so a change of
+     * either does not require rebuilding the cache.</p>
+     * 
+     * <p>Pending batch and shape draws are flushed
+     * beforehand, as the cache issues its own draw calls.</p>
+     * 
+     * @param cache the SpriteCache holding the caches
+     * @param cacheIds the ids of the caches to draw
+     * @param tint the color to tint the sprites with
+     * @param alpha the alpha to tint the sprites with
+     */
+    public void drawCache(SpriteCache cache, IntArray cacheIds, Color tint, float alpha) {
+        if(cacheIds.size <= 0) {
+            return;
+        }
+        
+        this.flush();
+        
+        cache.setProjectionMatrix(batch.getProjectionMatrix());
+        cache.setTransformMatrix(batch.getTransformMatrix());
+        if(batch.isBlendingEnabled()) {
+            Gdx.gl.glEnable(GL20.GL_BLEND);
+            Gdx.gl.glBlendFunc(batch.getBlendSrcFunc(), batch.getBlendDstFunc());
+        } else {
+            Gdx.gl.glDisable(GL20.GL_BLEND);
+        }
+        
+        cache.begin();
+        this.getCacheShader().setUniformf("u_tint", tint.r, tint.g, tint.b, alpha);
+        for(int i = 0; i < cacheIds.size; i++) {
+            cache.draw(cacheIds.get(i));
+        }
+        
+        cache.end();
+    }
+    
+    @Override
+    public void dispose() {
+        batch.dispose();
+        renderer.dispose();
+        if(cacheShader != null) {
+            cacheShader.release();
+            cacheShader = null;
+        }
+    }
+    
 //     ### ShapeRenderer methods
     
     private void startDrawingShape() {
@@ -198,6 +415,7 @@ public class MultiRenderer {
     }
     
     public void setShapeProjectionMatrix(Matrix4 matrix) {
+        this.drawCommands();
         renderer.setProjectionMatrix(matrix);
     }
     
@@ -206,6 +424,7 @@ public class MultiRenderer {
     }
     
     public void setShapeTransformMatrix(Matrix4 matrix) {
+        this.drawCommands();
         renderer.setTransformMatrix(matrix);
     }
     
@@ -219,6 +438,17 @@ public class MultiRenderer {
     }
     
     public void drawLine(Vector2 begin, Vector2 end, float thickness) {
+        if(deferred) {
+            this.recordShape(DrawCommandBuffer.LINE, ShapeType.Filled, Math.min(begin.x, end.x) - thickness, Math.min(begin.y, end.y) - thickness,
+                    Math.max(begin.x, end.x) + thickness, Math.max(begin.y, end.y) + thickness);
+            commands.put(begin.x);
+            commands.put(begin.y);
+            commands.put(end.x);
+            commands.put(end.y);
+            commands.put(thickness);
+            return;
+        }
+        
         this.startDrawingShape();
         if(renderer.getCurrentType() != ShapeType.Filled) {
             renderer.set(ShapeType.Filled);
@@ -228,6 +458,11 @@ public class MultiRenderer {
     }
     
     public void drawArc(Vector2 pos, float radius, float start, float degrees) {
+        if(deferred) {
+            this.drawArc(pos, radius, start, degrees, -1);
+            return;
+        }
+        
         this.startDrawingShape();
         if(renderer.getCurrentType() != ShapeType.Filled) {
             renderer.set(ShapeType.Filled);
@@ -238,6 +473,17 @@ public class MultiRenderer {
     
     
     public void drawArc(Vector2 pos, float radius, float start, float degrees, int segments) {
+        if(deferred) {
+            this.recordShape(DrawCommandBuffer.ARC, ShapeType.Filled, pos.x - radius, pos.y - radius, pos.x + radius, pos.y + radius);
+            commands.put(pos.x);
+            commands.put(pos.y);
+            commands.put(radius);
+            commands.put(start);
+            commands.put(degrees);
+            commands.put(segments);
+            return;
+        }
+        
         this.startDrawingShape();
         if(renderer.getCurrentType() != ShapeType.Filled) {
             renderer.set(ShapeType.Filled);
@@ -247,11 +493,6 @@ public class MultiRenderer {
     }
     
     public void drawRectangle(Vector2 pos, float width, float height, float lineThickness) {
-        this.startDrawingShape();
-        if(renderer.getCurrentType() != ShapeType.Filled) {
-            renderer.set(ShapeType.Filled);
-        }
-        
         Vector2 bR = new Vector2(pos.x + width, pos.y);
         Vector2 tL = new Vector2(pos.x, pos.y + height);
         Vector2 tR = new Vector2(bR.x, tL.y);
@@ -262,6 +503,16 @@ public class MultiRenderer {
     }
     
     public void drawFilledRectangle(Vector2 pos, float width, float height) {
+        if(deferred) {
+            this.recordShape(DrawCommandBuffer.RECT, ShapeType.Filled, Math.min(pos.x, pos.x + width), Math.min(pos.y, pos.y + height),
+                    Math.max(pos.x, pos.x + width), Math.max(pos.y, pos.y + height));
+            commands.put(pos.x);
+            commands.put(pos.y);
+            commands.put(width);
+            commands.put(height);
+            return;
+        }
+        
         this.startDrawingShape();
         if(renderer.getCurrentType() != ShapeType.Filled) {
             renderer.set(ShapeType.Filled);
@@ -271,6 +522,14 @@ public class MultiRenderer {
     }
     
     public void drawCircle(float x, float y, float radius) {
+        if(deferred) {
+            this.recordShape(DrawCommandBuffer.CIRCLE, ShapeType.Line, x - radius, y - radius, x + radius, y + radius);
+            commands.put(x);
+            commands.put(y);
+            commands.put(radius);
+            return;
+        }
+        
         this.startDrawingShape();
         if(renderer.getCurrentType() != ShapeType.Line) {
             renderer.set(ShapeType.Line);
@@ -280,6 +539,14 @@ public class MultiRenderer {
     }
     
     public void drawFilledCircle(float x, float y, float radius) {
+        if(deferred) {
+            this.recordShape(DrawCommandBuffer.FILLED_CIRCLE, ShapeType.Filled, x - radius, y - radius, x + radius, y + radius);
+            commands.put(x);
+            commands.put(y);
+            commands.put(radius);
+            return;
+        }
+        
         this.startDrawingShape();
         if(renderer.getCurrentType() != ShapeType.Filled) {
             renderer.set(ShapeType.Filled);
@@ -289,17 +556,25 @@ public class MultiRenderer {
     }
     
     public void drawTriangle(Vector2 vx1, Vector2 vx2, Vector2 vx3, float lineThickness) {
-        this.startDrawingShape();
-        if(renderer.getCurrentType() != ShapeType.Filled) {
-            renderer.set(ShapeType.Filled);
-        }
-        
         this.drawLine(vx1, vx2, lineThickness);
         this.drawLine(vx2, vx3, lineThickness);
         this.drawLine(vx3, vx1, lineThickness);
     }
     
     public void drawFilledTriangle(Vector2 vx1, Vector2 vx2, Vector2 vx3) {
+        if(deferred) {
+            this.recordShape(DrawCommandBuffer.TRIANGLE, ShapeType.Filled,
+                    Math.min(vx1.x, Math.min(vx2.x, vx3.x)), Math.min(vx1.y, Math.min(vx2.y, vx3.y)),
+                    Math.max(vx1.x, Math.max(vx2.x, vx3.x)), Math.max(vx1.y, Math.max(vx2.y, vx3.y)));
+            commands.put(vx1.x);
+            commands.put(vx1.y);
+            commands.put(vx2.x);
+            commands.put(vx2.y);
+            commands.put(vx3.x);
+            commands.put(vx3.y);
+            return;
+        }
+        
         this.startDrawingShape();
         if(renderer.getCurrentType() != ShapeType.Filled) {
             renderer.set(ShapeType.Filled);
@@ -307,4 +582,95 @@ public class MultiRenderer {
         
         renderer.triangle(vx1.x, vx1.y, vx2.x, vx2.y, vx3.x, vx3.y);
     }
+    
+//     ### Deferred mode
+    
+    private void recordShape(int type, ShapeType shapeType, float minX, float minY, float maxX, float maxY) {
+        Color color = renderer.getColor();
+        commands.add(type, shapeType, null, minX, minY, maxX, maxY);
+        commands.put(color.r);
+        commands.put(color.g);
+        commands.put(color.b);
+        commands.put(color.a);
+    }
+    
+    private void drawCommands() {
+        if(commands.isEmpty()) {
+            return;
+        }
+        
+        flushesAvoided += commands.sort();
+        float batchColor = batch.getPackedColor();
+        Color shapeColor = renderer.getColor();
+        float shapeR = shapeColor.r, shapeG = shapeColor.g, shapeB = shapeColor.b, shapeA = shapeColor.a;
+        for(int i = 0; i < commands.size(); i++) {
+            int command = commands.get(i);
+            int type = commands.getType(command);
+            if(type == DrawCommandBuffer.SPRITE || type == DrawCommandBuffer.TEXTURE) {
+                this.startDrawingSprite();
+                batch.setColor(commands.getParam(command, 0));
+                if(type == DrawCommandBuffer.TEXTURE) {
+                    batch.draw((Texture) commands.getObject(command), commands.getParam(command, 1), commands.getParam(command, 2));
+                } else {
+                    TextureRegion region = (TextureRegion) commands.getObject(command);
+                    boolean flipX = region.isFlipX() != (commands.getParam(command, 10) > 0F);
+                    boolean flipY = region.isFlipY() != (commands.getParam(command, 11) > 0F);
+                    region.flip(flipX, flipY);
+                    batch.draw(region, commands.getParam(command, 1), commands.getParam(command, 2),
+                            commands.getParam(command, 3), commands.getParam(command, 4),
+                            commands.getParam(command, 5), commands.getParam(command, 6),
+                            commands.getParam(command, 7), commands.getParam(command, 8),
+                            commands.getParam(command, 9));
+                    region.flip(flipX, flipY);
+                }
+                
+                continue;
+            }
+            
+            this.startDrawingShape();
+            ShapeType shapeType = type == DrawCommandBuffer.CIRCLE ? ShapeType.Line : ShapeType.Filled;
+            if(renderer.getCurrentType() != shapeType) {
+                renderer.set(shapeType);
+            }
+            
+            renderer.setColor(commands.getParam(command, 0), commands.getParam(command, 1),
+                    commands.getParam(command, 2), commands.getParam(command, 3));
+            switch(type) {
+                case DrawCommandBuffer.LINE:
+                    renderer.rectLine(commands.getParam(command, 4), commands.getParam(command, 5),
+                            commands.getParam(command, 6), commands.getParam(command, 7), commands.getParam(command, 8));
+                    break;
+                case DrawCommandBuffer.ARC:
+                    int segments = (int) commands.getParam(command, 9);
+                    if(segments <= -1) {
+                        renderer.arc(commands.getParam(command, 4), commands.getParam(command, 5), commands.getParam(command, 6),
+                                commands.getParam(command, 7), commands.getParam(command, 8));
+                    } else {
+                        renderer.arc(commands.getParam(command, 4), commands.getParam(command, 5), commands.getParam(command, 6),
+                                commands.getParam(command, 7), commands.getParam(command, 8), segments);
+                    }
+                    
+                    break;
+                case DrawCommandBuffer.RECT:
+                    renderer.rect(commands.getParam(command, 4), commands.getParam(command, 5),
+                            commands.getParam(command, 6), commands.getParam(command, 7));
+                    break;
+                case DrawCommandBuffer.CIRCLE:
+                case DrawCommandBuffer.FILLED_CIRCLE:
+                    renderer.circle(commands.getParam(command, 4), commands.getParam(command, 5), commands.getParam(command, 6));
+                    break;
+                case DrawCommandBuffer.TRIANGLE:
+                    renderer.triangle(commands.getParam(command, 4), commands.getParam(command, 5),
+                            commands.getParam(command, 6), commands.getParam(command, 7),
+                            commands.getParam(command, 8), commands.getParam(command, 9));
+                    break;
+                default:
+                    break;
+            }
+        }
+        
+        commands.clear();
+        batch.setColor(batchColor);
+        renderer.setColor(shapeR, shapeG, shapeB, shapeA);
+    }
 }
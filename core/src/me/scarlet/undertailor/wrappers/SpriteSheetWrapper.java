@@ -25,8 +25,10 @@
 package me.scarlet.undertailor.wrappers;
 
 import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.exception.TextureTilingException;
+import me.scarlet.undertailor.gfx.AtlasPacker;
 import me.scarlet.undertailor.gfx.SpriteSheet;
 import me.scarlet.undertailor.manager.SpriteSheetManager;
 import me.scarlet.undertailor.util.LuaUtil;
@@ -39,13 +41,40 @@ public class SpriteSheetWrapper extends DisposableWrapper<SpriteSheet> {
     public static final long MAX_LIFETIME = 60000; // 1 minute
     
     private String name;
-    private Texture texture;
+    private boolean packed;
+    private TextureRegion texture;
     private ConfigurationNode config;
     public SpriteSheetWrapper(String name, Texture texture, ConfigurationNode config) {
         super(null);
         this.name = name;
         this.config = config;
-        this.texture = texture;
+        this.packed = false;
+        this.texture = new TextureRegion(texture);
+    }
+    
+    public void queueTexture(AtlasPacker packer) {
+        packer.queue("sheet-" + name, texture.getTexture(), region -> {
+            if(!this.isDisposed() && !this.dispose()) { // still referenced; keep the sheet on its own texture
+                Undertailor.instance.debug(SpriteSheetManager.MANAGER_TAG, "not moving spritesheet " + name + " into the atlas (in use)");
+                return false;
+            }
+            
+            this.packed = true;
+            this.texture = region;
+            return true;
+        });
+    }
+    
+    /**
+     * Disposes the texture this sheet was loaded from, if it
+     * never moved into the atlas. The wrapper is unusable
+     * afterwards.
+     */
+    public void disposeTexture() {
+        this.dispose();
+        if(!packed) {
+            texture.getTexture().dispose();
+        }
     }
 
     @Override
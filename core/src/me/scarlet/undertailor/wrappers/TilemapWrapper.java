@@ -24,8 +24,14 @@
 
 package me.scarlet.undertailor.wrappers;
 
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.environment.overworld.map.Tilemap;
 import me.scarlet.undertailor.exception.TextureTilingException;
+import me.scarlet.undertailor.gfx.AtlasPacker;
+import me.scarlet.undertailor.manager.TilemapManager;
 
 import java.io.File;
 
@@ -34,16 +40,37 @@ public class TilemapWrapper extends DisposableWrapper<Tilemap> {
     private File meta;
     private File texture;
     private String tilemapName;
+    private TextureRegion packed;
     public TilemapWrapper(String tilemapName, File texture, File meta) throws TextureTilingException {
         super(null);
         this.meta = meta;
         this.texture = texture;
+        this.packed = null;
         this.tilemapName = tilemapName;
     }
+    
+    public void queueTexture(AtlasPacker packer) {
+        if(texture.exists()) {
+            Pixmap pixmap = new Pixmap(Gdx.files.absolute(texture.getAbsolutePath()));
+            packer.queue("tilemap-" + tilemapName, pixmap, region -> {
+                if(!this.isDisposed() && !this.dispose()) { // still referenced; keep the tilemap on its own texture
+                    Undertailor.instance.debug(TilemapManager.MANAGER_TAG, "not moving tilemap " + tilemapName + " into the atlas (in use)");
+                    return false;
+                }
+                
+                this.packed = region;
+                return true;
+            });
+        }
+    }
 
     @Override
     public Tilemap newReference() {
         try {
+            if(packed != null) {
+                return new Tilemap(tilemapName, packed, meta);
+            }
+            
             return new Tilemap(tilemapName, texture, meta);
         } catch(Exception e) {
             e.printStackTrace();